@@ -0,0 +1,124 @@
+package com.example.shuke_audio_play;
+
+import android.annotation.TargetApi;
+import android.media.MediaCodec;
+import android.media.MediaDataSource;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * 🔓 压缩音频（MP3/AAC/...）→ PCM16 同步解码器
+ * - MediaExtractor 取音轨，MediaCodec 同步模式解码
+ * - 只在后台线程调用（解码耗时与片段长度成正比）
+ */
+final class AudioDecoder {
+
+    private static final long TIMEOUT_US = 10_000L;
+
+    private AudioDecoder() {}
+
+    /** 解码本地文件（落盘兜底路径） */
+    static DecodedAudio decode(String path) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+            return decode(extractor);
+        } finally {
+            extractor.release();
+        }
+    }
+
+    /** 解码内存数据（API 23+） */
+    @TargetApi(Build.VERSION_CODES.M)
+    static DecodedAudio decode(MediaDataSource source) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(source);
+            return decode(extractor);
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static DecodedAudio decode(MediaExtractor extractor) throws IOException {
+        MediaFormat format = null;
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat f = extractor.getTrackFormat(i);
+            String mime = f.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                format = f;
+                break;
+            }
+        }
+        if (format == null) throw new IOException("no_audio_track");
+
+        int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+
+        MediaCodec codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+        short[] out = new short[Math.max(4096, sampleRate * channels)];
+        int size = 0;
+        try {
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            boolean outputDone = false;
+            while (!outputDone) {
+                if (!inputDone) {
+                    int inIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inIndex >= 0) {
+                        ByteBuffer in = codec.getInputBuffer(inIndex);
+                        int n = in != null ? extractor.readSampleData(in, 0) : -1;
+                        if (n < 0) {
+                            codec.queueInputBuffer(inIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inIndex, 0, n, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat of = codec.getOutputFormat();
+                    sampleRate = of.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = of.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                } else if (outIndex >= 0) {
+                    ByteBuffer buf = codec.getOutputBuffer(outIndex);
+                    if (buf != null && info.size > 0) {
+                        buf.position(info.offset);
+                        buf.limit(info.offset + info.size);
+                        ShortBuffer sb = buf.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                        int n = sb.remaining();
+                        if (size + n > out.length) {
+                            out = Arrays.copyOf(out, Math.max(out.length * 2, size + n));
+                        }
+                        sb.get(out, size, n);
+                        size += n;
+                    }
+                    codec.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) outputDone = true;
+                }
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException("decode_failed: " + e.getMessage(), e);
+        } finally {
+            try { codec.stop(); } catch (Throwable ignored) {}
+            codec.release();
+        }
+
+        int frames = size / Math.max(1, channels);
+        return new DecodedAudio(Arrays.copyOf(out, frames * channels), sampleRate, channels);
+    }
+}
@@ -1,13 +1,21 @@
 package com.example.shuke_audio_play;
 
 import android.content.Context;
+import android.media.AudioAttributes;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 
-import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import io.dcloud.feature.uniapp.annotation.UniJSMethod;
 import io.dcloud.feature.uniapp.bridge.UniJSCallback;
@@ -15,26 +23,84 @@ import io.dcloud.feature.uniapp.common.UniModule;
 
 /**
  * 🔌 UniApp 插件入口
- * - 支持 init({ startPlayId })
- * - addTask(id, base64)
- * - clear(), release(), setOutputMode(mode)
+ * - 支持 init({ startPlayId, mode, lookAhead, inMemory, maxQueueBytes, overflow, gapTimeoutMs, pcmSampleRate, pcmChannels })
+ *   mode: "mediaPlayer"(默认) | "stream"（AudioTrack 无缝流式播放）
+ *   lookAhead: 预取深度（默认 2），当前片段播放时提前准备后续 N 个任务
+ *   inMemory: 默认 true，片段直接从内存交给播放器；false 时写临时文件（用完即删）
+ *   maxQueueBytes / overflow: 队列内存预算与超限策略（"spill" 换出到磁盘(默认) | "drop" 丢弃最远任务）
+ *   gapTimeoutMs: 缺失 ID 等待超时，超时跳过并发 gapSkipped 事件
+ *   cacheBytes / diskCacheBytes: 解码 PCM 缓存（按内容哈希，所有通道共享；流式模式生效），0 关闭
+ *   jitterBufferMs / jitterMinMs / jitterMaxMs: 自适应抖动缓冲（强制流式模式），起播与播空后先蓄够目标时长的 PCM，
+ *     目标随到达抖动与欠载在 [min, max] 内调整，欠载时发 underrun 事件
+ *   crossfadeMs / fadeMs: 流式模式输出 DSP，相邻 ID 交叉淡化时长；clear/seek 淡出与静默后淡入时长（默认 0 硬切）
+ * - 多通道：init({ channel, usage, volume, mix }) 按通道名初始化，每个通道独立的队列/输出属性/事件
+ *   channel: 通道名（默认 "default"）；事件顶层带 channel 字段
+ *   usage: "media"(默认) | "speech" | "sonification" | "notification" | "game"
+ *   volume: 通道音量 0~1
+ *   mix: true 时该通道强制流式模式，并与其他 mix 通道求和混入同一个 AudioTrack
+ * - setEventOptions({ events, progressIntervalMs, queuedBatchMs, highFrequency })：事件订阅、进度节流与 queued 合并
+ * - getDiskUsage() 查询落盘字节数；getStats() 查询延迟统计（p50/p95/p99）与流式输出电平；getCacheStats() 查询缓存命中
+ * - addTask(id, base64) / addTaskFromFile(id, path)：默认通道；二进制数据请先写成文件再用 addTaskFromFile
+ *   （uni-app 桥只能传 JSON，数字数组比 Base64 更大更慢，故不提供字节数组入口）
+ * - addChannelTask(channel, id, base64) / addChannelTaskFromFile(channel, id, path) / clearChannel(channel) / releaseChannel(channel)
+ * - clear(), release(), setPlaybackRate(rate, pitch)：作用于全部通道；setOutputMode(mode)
+ * - pause() / resume()：作用于全部通道；pauseChannel / resumeChannel(channel)
+ * - setTaskGain(id, gain) / setChannelTaskGain(channel, id, gain)：单个任务增益（0~2），需在该任务开播前设置
+ * - seekTo(positionMs) / seekChannel(channel, positionMs)：在整条有序队列的全局时间轴上定位（progress 事件的 globalPositionMs）
+ *   流式模式可回退 seekHistoryMs（init 选项，默认 30s）内已播内容；MEDIA_PLAYER 模式只能在当前片段内定位
  */
 @SuppressWarnings({ "unused", "RedundantDefaultParameterValue" })
 public class AudioModule extends UniModule {
     private static final String TAG = "AudioModule";
-    private static WeakReference<AudioQueuePlayer> weakRef = new WeakReference<>(null);
+    private static final String DEFAULT_CHANNEL = "default";
+    /**
+     * 通道名 → 播放器；受 AudioModule.class 锁保护。强引用：播放器自带播放线程与入队线程池，
+     * 只能在 release / releaseChannel 中移除并释放，不能交给 GC 回收（否则线程泄漏、init 配置丢失）
+     */
+    private static final Map<String, AudioQueuePlayer> players = new HashMap<>();
+    /** 混音通道共享的输出引擎；最后一个 mix 通道释放时一并释放 */
+    private static StreamingAudioEngine mixer;
+    private static final Set<String> mixedChannels = new HashSet<>();
+    /** 解码缓存：所有通道共享，init 传入 cacheBytes 时创建（配置变化时重建） */
+    private static DecodedAudioCache decodedCache;
+    private static long cacheMemoryBytes;
+    private static long cacheDiskBytes;
+    /** 高频事件：highFrequency=false 时不发送，对应的播放器周期回调也一并关闭 */
+    private static final Set<String> HIGH_FREQUENCY_EVENTS = new HashSet<>(Arrays.asList("progress"));
+    private static final long DEFAULT_PROGRESS_INTERVAL_MS = 300L;
     private volatile UniJSCallback eventCallback;
+    /** 事件投递选项（setEventOptions）：订阅的事件类型（null 为全部）、进度间隔、queued 合并窗口 */
+    private volatile Set<String> subscribed;
+    private volatile boolean highFrequency = true;
+    private volatile long progressIntervalMs = DEFAULT_PROGRESS_INTERVAL_MS;
+    private volatile long queuedBatchMs = 0;
+    /** 播放速度/音调：之后创建的通道沿用 */
+    private volatile float playbackRate = 1f;
+    private volatile float playbackPitch = 1f;
+    /** metrics 事件默认关闭，需 setEventOptions({ metrics: true }) 开启 */
+    private volatile boolean metricsEnabled = false;
+    private final Map<String, QueuedBatch> queuedBatches = new HashMap<>();
     private final Handler main = new Handler(Looper.getMainLooper());
 
     private AudioQueuePlayer getPlayer() {
-        AudioQueuePlayer p = weakRef.get();
+        return getPlayer(DEFAULT_CHANNEL);
+    }
+
+    private AudioQueuePlayer getPlayer(String channel) {
+        synchronized (AudioModule.class) {
+            return getPlayerLocked(channelName(channel));
+        }
+    }
+
+    private AudioQueuePlayer getPlayerLocked(String channel) {
+        AudioQueuePlayer p = players.get(channel);
         if (p == null) {
             Context ctx = mUniSDKInstance != null ? mUniSDKInstance.getContext() : null;
             if (ctx != null) {
                 p = new AudioQueuePlayer(ctx);
-                weakRef = new WeakReference<>(p);
-                attachListener(p);
-                Log.i(TAG, "✅ AudioQueuePlayer 初始化完成");
+                players.put(channel, p);
+                attachListener(channel, p);
+                Log.i(TAG, "✅ AudioQueuePlayer 初始化完成 channel=" + channel);
             } else {
                 Log.e(TAG, "❌ 无法初始化播放器，context为空");
             }
@@ -42,55 +108,322 @@ public class AudioModule extends UniModule {
         return p;
     }
 
-    private void attachListener(AudioQueuePlayer p) {
+    private static String channelName(String channel) {
+        return channel == null || channel.isEmpty() ? DEFAULT_CHANNEL : channel;
+    }
+
+    private static List<AudioQueuePlayer> allPlayers() {
+        List<AudioQueuePlayer> list = new ArrayList<>();
+        synchronized (AudioModule.class) {
+            list.addAll(players.values());
+        }
+        return list;
+    }
+
+    /** 加入/退出共享混音输出；必须持有 AudioModule.class 锁 */
+    private static void setMixedLocked(String channel, AudioQueuePlayer p, boolean mix, AudioAttributes attrs) {
+        if (mix) {
+            if (mixer == null) mixer = new StreamingAudioEngine(attrs);
+            mixedChannels.add(channel);
+            p.setSharedOutput(mixer);
+        } else if (mixedChannels.remove(channel)) {
+            p.setSharedOutput(null);
+            releaseMixerIfUnusedLocked();
+        }
+    }
+
+    /** 取共享解码缓存；memoryBytes <= 0 返回 null（关闭） */
+    private DecodedAudioCache sharedCache(long memoryBytes, long diskBytes) {
+        if (memoryBytes <= 0) return null;
+        synchronized (AudioModule.class) {
+            if (decodedCache == null || cacheMemoryBytes != memoryBytes || cacheDiskBytes != diskBytes) {
+                Context ctx = mUniSDKInstance != null ? mUniSDKInstance.getContext() : null;
+                try {
+                    decodedCache = new DecodedAudioCache(memoryBytes, diskBytes,
+                            ctx != null ? ctx.getCacheDir() : null);
+                } catch (IllegalStateException e) {
+                    Log.w(TAG, "磁盘缓存不可用，仅使用内存缓存: " + e.getMessage());
+                    decodedCache = new DecodedAudioCache(memoryBytes, 0, null);
+                }
+                cacheMemoryBytes = memoryBytes;
+                cacheDiskBytes = diskBytes;
+                for (AudioQueuePlayer other : allPlayers()) other.setDecodedCache(decodedCache);
+            }
+            return decodedCache;
+        }
+    }
+
+    private static void releaseMixerIfUnusedLocked() {
+        if (mixer != null && mixedChannels.isEmpty()) {
+            mixer.release();
+            mixer = null;
+        }
+    }
+
+    private static AudioAttributes attributesFor(String usage) {
+        AudioAttributes.Builder b = new AudioAttributes.Builder();
+        String u = usage != null ? usage.toLowerCase() : "media";
+        switch (u) {
+            case "speech":
+                b.setUsage(AudioAttributes.USAGE_MEDIA).setContentType(AudioAttributes.CONTENT_TYPE_SPEECH);
+                break;
+            case "sonification":
+                b.setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION);
+                break;
+            case "notification":
+                b.setUsage(AudioAttributes.USAGE_NOTIFICATION)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION);
+                break;
+            case "game":
+                b.setUsage(AudioAttributes.USAGE_GAME).setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION);
+                break;
+            default:
+                return AudioQueuePlayer.defaultAttributes();
+        }
+        return b.build();
+    }
+
+    private void attachListener(String channel, AudioQueuePlayer p) {
+        p.setProgressInterval(effectiveProgressInterval());
+        p.setPlaybackRate(playbackRate, playbackPitch);
         p.setListener(new AudioQueuePlayer.Listener() {
-            @Override public void onQueued(String id, int queueSize) {
-                emit("queued", json(o -> { o.put("id", id); o.put("queueSize", queueSize); }));
+            @Override public void onQueued(String id, int queueSize, long queueBytes) {
+                if (queuedBatchMs > 0) {
+                    batchQueued(channel, id, queueSize, queueBytes);
+                    return;
+                }
+                emit(channel, "queued", o -> {
+                    o.put("id", id);
+                    o.put("queueSize", queueSize);
+                    o.put("queueBytes", queueBytes);
+                });
             }
             @Override public void onStart(String id, int queueSize) {
-                emit("start", json(o -> { o.put("id", id); o.put("queueSize", queueSize); }));
+                emit(channel, "start", o -> { o.put("id", id); o.put("queueSize", queueSize); });
             }
-            @Override public void onProgress(String id, long positionMs, long durationMs) {
-                double progress = durationMs > 0 ? (double) positionMs / durationMs : 0;
-                emit("progress", json(o -> {
+            @Override public void onProgress(String id, long positionMs, long durationMs,
+                                             long globalPositionMs, long globalDurationMs) {
+                emit(channel, "progress", o -> {
                     o.put("id", id);
                     o.put("positionMs", positionMs);
                     o.put("durationMs", durationMs);
-                    o.put("progress", progress);
-                }));
+                    o.put("progress", durationMs > 0 ? (double) positionMs / durationMs : 0);
+                    o.put("globalPositionMs", globalPositionMs);
+                    o.put("globalDurationMs", globalDurationMs);
+                });
             }
             @Override public void onComplete(String id, int queueSize) {
-                emit("complete", json(o -> { o.put("id", id); o.put("queueSize", queueSize); }));
+                emit(channel, "complete", o -> { o.put("id", id); o.put("queueSize", queueSize); });
             }
             @Override public void onError(String id, String message) {
-                emit("error", json(o -> { o.put("id", id); o.put("message", message); }));
+                emit(channel, "error", o -> { o.put("id", id); o.put("message", message); });
+            }
+            @Override public void onQueueEmpty() { emit(channel, "queueEmpty", null); }
+            @Override public void onGapSkipped(int fromId, int toId, long waitedMs) {
+                emit(channel, "gapSkipped", o -> {
+                    o.put("fromId", fromId);
+                    o.put("toId", toId);
+                    o.put("waitedMs", waitedMs);
+                });
             }
-            @Override public void onQueueEmpty() { emit("queueEmpty", new JSONObject()); }
             @Override public void onOutputModeChanged(AudioQueuePlayer.OutputMode mode) {
-                emit("modeChanged", json(o -> o.put("mode", mode.name())));
+                emit(channel, "modeChanged", o -> o.put("mode", mode.name()));
+            }
+            @Override public void onUnderrun(int count, long stallMs, long targetMs, long jitterMs) {
+                emit(channel, "underrun", o -> {
+                    o.put("count", count);
+                    o.put("stallMs", stallMs);
+                    o.put("targetMs", targetMs);
+                    o.put("jitterMs", jitterMs);
+                });
+            }
+            @Override public void onTaskMetrics(PlaybackStats.TaskTiming timing) {
+                if (!metricsEnabled) return;
+                emit(channel, "metrics", o -> {
+                    o.put("id", String.valueOf(timing.id));
+                    JSONObject at = new JSONObject();
+                    for (int i = 0; i < PlaybackStats.STAGE_NAMES.length; i++) {
+                        if (timing.at[i] > 0) at.put(PlaybackStats.STAGE_NAMES[i], timing.at[i]);
+                    }
+                    o.put("timestamps", at);
+                    o.put("enqueueToStartMs", timing.between(PlaybackStats.ENQUEUED, PlaybackStats.STARTED));
+                    o.put("gapMs", timing.gapMs);
+                });
             }
         });
     }
 
-    /** 初始化：可设置起始播放 ID */
+    /** queued 合并：窗口内同一通道的入队事件合并为一个 queuedBatch，携带最后一次的队列状态 */
+    private static final class QueuedBatch {
+        final JSONArray ids = new JSONArray();
+        int queueSize;
+        long queueBytes;
+    }
+
+    private void batchQueued(String channel, String id, int queueSize, long queueBytes) {
+        if (!wants("queuedBatch")) return;
+        boolean first;
+        synchronized (queuedBatches) {
+            QueuedBatch b = queuedBatches.get(channel);
+            first = b == null;
+            if (first) {
+                b = new QueuedBatch();
+                queuedBatches.put(channel, b);
+            }
+            b.ids.add(id);
+            b.queueSize = queueSize;
+            b.queueBytes = queueBytes;
+        }
+        if (first) main.postDelayed(() -> flushQueued(channel), queuedBatchMs);
+    }
+
+    private void flushQueued(String channel) {
+        QueuedBatch b;
+        synchronized (queuedBatches) {
+            b = queuedBatches.remove(channel);
+        }
+        if (b == null) return;
+        emit(channel, "queuedBatch", o -> {
+            o.put("ids", b.ids);
+            o.put("count", b.ids.size());
+            o.put("queueSize", b.queueSize);
+            o.put("queueBytes", b.queueBytes);
+        });
+    }
+
+    private long effectiveProgressInterval() {
+        Set<String> s = subscribed;
+        return highFrequency && (s == null || s.contains("progress")) ? progressIntervalMs : 0;
+    }
+
+    /** 页面是否订阅了该事件；queuedBatch 随 queued 订阅，高频事件可整体关闭 */
+    private boolean wants(String type) {
+        if (eventCallback == null) return false;
+        if (!highFrequency && HIGH_FREQUENCY_EVENTS.contains(type)) return false;
+        Set<String> s = subscribed;
+        if (s == null) return true;
+        return s.contains(type) || ("queuedBatch".equals(type) && s.contains("queued"));
+    }
+
+    /** 初始化：可设置通道、起始播放 ID、播放模式、输出属性与原始 PCM 输入格式 */
     @UniJSMethod(uiThread = true)
     public void init(JSONObject options, UniJSCallback callback) {
-        AudioQueuePlayer p = getPlayer();
+        String channel = channelName(options != null ? options.getString("channel") : null);
+        AudioQueuePlayer p = getPlayer(channel);
         if (p == null) {
             if (callback != null) callback.invoke("初始化失败");
             return;
         }
         int startId = options != null ? options.getIntValue("startPlayId") : 0;
+        String mode = options != null ? options.getString("mode") : null;
+        boolean mix = options != null && options.getBooleanValue("mix");
+        boolean jitterBuffer = options != null && options.getLongValue("jitterBufferMs") > 0;
+        AudioAttributes attrs = attributesFor(options != null ? options.getString("usage") : null);
+        p.setAudioAttributes(attrs);
+        p.setVolume(options != null && options.containsKey("volume") ? options.getFloatValue("volume") : 1f);
+        p.setPlaybackMode(mix || jitterBuffer || "stream".equalsIgnoreCase(mode)
+                ? AudioQueuePlayer.PlaybackMode.STREAMING
+                : AudioQueuePlayer.PlaybackMode.MEDIA_PLAYER);
+        synchronized (AudioModule.class) {
+            setMixedLocked(channel, p, mix, attrs);
+        }
+        if (options != null && options.containsKey("pcmSampleRate")) {
+            int channels = options.containsKey("pcmChannels") ? options.getIntValue("pcmChannels") : 1;
+            p.setPcmInput(options.getIntValue("pcmSampleRate"), channels);
+        } else {
+            p.setPcmInput(0, 1);
+        }
+        if (options != null && options.containsKey("lookAhead")) {
+            p.setLookAhead(options.getIntValue("lookAhead"));
+        }
+        if (options != null && options.containsKey("maxQueueBytes")) {
+            String overflow = options.getString("overflow");
+            p.setMemoryBudget(options.getLongValue("maxQueueBytes"), !"drop".equalsIgnoreCase(overflow));
+        }
+        if (options != null && options.containsKey("gapTimeoutMs")) {
+            p.setGapTimeout(options.getLongValue("gapTimeoutMs"));
+        }
+        if (jitterBuffer) {
+            p.setJitterBuffer(true, options.getLongValue("jitterBufferMs"),
+                    options.containsKey("jitterMinMs") ? options.getLongValue("jitterMinMs") : JitterBuffer.DEFAULT_MIN_MS,
+                    options.containsKey("jitterMaxMs") ? options.getLongValue("jitterMaxMs") : JitterBuffer.DEFAULT_MAX_MS);
+        } else {
+            p.setJitterBuffer(false, 0, 0, 0);
+        }
+        p.setCrossfade(options != null ? options.getIntValue("crossfadeMs") : 0,
+                options != null ? options.getIntValue("fadeMs") : 0);
+        if (options != null && options.containsKey("seekHistoryMs")) {
+            p.setSeekHistory(options.getLongValue("seekHistoryMs"));
+        }
+        if (options != null && options.containsKey("cacheBytes")) {
+            p.setDecodedCache(sharedCache(options.getLongValue("cacheBytes"),
+                    options.getLongValue("diskCacheBytes")));
+        }
+        p.setInMemorySource(options == null || !options.containsKey("inMemory")
+                || options.getBooleanValue("inMemory"));
         p.setStartPlayId(startId);
-        if (callback != null) callback.invoke("startPlayId=" + startId);
+        if (callback != null) callback.invoke("channel=" + channel + ", startPlayId=" + startId);
     }
 
     @UniJSMethod(uiThread = true)
     public void onEvent(UniJSCallback cb) {
         this.eventCallback = cb;
-        emit("ready", new JSONObject());
+        emit(null, "ready", null);
     }
 
+    /**
+     * 事件投递选项，只为页面真正订阅的事件付出跨桥开销：
+     * - events: 需要的事件类型数组，如 ["start","complete","error"]；不传为全部
+     * - progressIntervalMs: 进度事件间隔（默认 300），0 关闭进度事件
+     * - queuedBatchMs: > 0 时把该窗口内的 queued 合并为一个 queuedBatch { ids, count, queueSize, queueBytes }
+     * - highFrequency: false 时关闭全部高频事件（progress 等）
+     * - metrics: true 时每个任务完成后发 metrics 事件（各阶段时间点、入队→开播延迟、片段间隔）
+     */
+    @UniJSMethod(uiThread = true)
+    public void setEventOptions(JSONObject options, UniJSCallback callback) {
+        if (options != null) {
+            if (options.containsKey("events")) {
+                JSONArray events = options.getJSONArray("events");
+                Set<String> s = null;
+                if (events != null) {
+                    s = new HashSet<>();
+                    for (int i = 0; i < events.size(); i++) s.add(events.getString(i));
+                }
+                subscribed = s;
+            }
+            if (options.containsKey("progressIntervalMs")) {
+                progressIntervalMs = Math.max(0, options.getLongValue("progressIntervalMs"));
+            }
+            if (options.containsKey("queuedBatchMs")) {
+                queuedBatchMs = Math.max(0, options.getLongValue("queuedBatchMs"));
+            }
+            if (options.containsKey("highFrequency")) {
+                highFrequency = options.getBooleanValue("highFrequency");
+            }
+            if (options.containsKey("metrics")) {
+                metricsEnabled = options.getBooleanValue("metrics");
+            }
+        }
+        // 未订阅进度时播放器不再周期性取位置
+        long interval = effectiveProgressInterval();
+        for (AudioQueuePlayer p : allPlayers()) p.setProgressInterval(interval);
+        if (callback != null) {
+            callback.invoke(json(o -> {
+                o.put("events", subscribed != null ? new JSONArray(new ArrayList<>(subscribed)) : null);
+                o.put("progressIntervalMs", interval);
+                o.put("queuedBatchMs", queuedBatchMs);
+                o.put("highFrequency", highFrequency);
+                o.put("metrics", metricsEnabled);
+            }));
+        }
+    }
+
+    /**
+     * 添加任务：Base64 解码在播放器的工作线程完成，解码成功后才进入有序队列；callback 在入队完成（或被拒绝）后回调。
+     * 与 init / clear 等生命周期方法同在 UI 线程分发，保证与 JS 调用顺序一致
+     * （分在不同线程时，init 之后紧接的 addTask 可能先执行，随后被 init 的清空当作旧任务丢弃）。
+     */
     @UniJSMethod(uiThread = true)
     public void addTask(String id, String base64, UniJSCallback callback) {
         AudioQueuePlayer p = getPlayer();
@@ -98,29 +431,234 @@ public class AudioModule extends UniModule {
             if (callback != null) callback.invoke("初始化失败");
             return;
         }
-        try {
-            p.enqueue(id, base64);
-            if (callback != null) {
-                callback.invoke("任务添加成功：" + id);
-                Log.i(TAG, "✅ AudioQueuePlayer 任务添加成功");
+        p.enqueueAsync(id, base64, enqueueResult(callback));
+    }
 
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "addTask error: " + e.getMessage());
-            if (callback != null) {
-                callback.invoke("❌ 任务添加失败：" + e.getMessage());
+    /**
+     * 向指定通道添加任务；语义同 addTask（uni-app 按方法名分发，无法重载 addTask，故单独命名）。
+     * 通道需先 init({ channel })，否则按默认配置创建。
+     */
+    @UniJSMethod(uiThread = true)
+    public void addChannelTask(String channel, String id, String base64, UniJSCallback callback) {
+        AudioQueuePlayer p = getPlayer(channel);
+        if (p == null) {
+            if (callback != null) callback.invoke("初始化失败");
+            return;
+        }
+        p.enqueueAsync(id, base64, enqueueResult(callback));
+    }
+
+    /**
+     * 添加本地文件任务（如录音插件写出的文件）：不经过 Base64，播放器直接按路径读取。
+     * 事件与 addTask 相同；文件由调用方负责删除。
+     */
+    @UniJSMethod(uiThread = true)
+    public void addTaskFromFile(String id, String path, UniJSCallback callback) {
+        AudioQueuePlayer p = getPlayer();
+        if (p == null) {
+            if (callback != null) callback.invoke("初始化失败");
+            return;
+        }
+        p.enqueueFileAsync(id, path, enqueueResult(callback));
+    }
+
+    /** 向指定通道添加本地文件任务；语义同 addTaskFromFile */
+    @UniJSMethod(uiThread = true)
+    public void addChannelTaskFromFile(String channel, String id, String path, UniJSCallback callback) {
+        AudioQueuePlayer p = getPlayer(channel);
+        if (p == null) {
+            if (callback != null) callback.invoke("初始化失败");
+            return;
+        }
+        p.enqueueFileAsync(id, path, enqueueResult(callback));
+    }
+
+    private static AudioQueuePlayer.EnqueueCallback enqueueResult(UniJSCallback callback) {
+        return (taskId, error) -> {
+            if (error == null) {
+                Log.i(TAG, "✅ AudioQueuePlayer 任务添加成功");
+                if (callback != null) callback.invoke("任务添加成功：" + taskId);
+            } else {
                 Log.i(TAG, "❌ AudioQueuePlayer 任务添加失败");
+                if (callback != null) callback.invoke("❌ 任务添加失败：" + error);
+            }
+        };
+    }
 
+    /**
+     * 延迟统计：按通道返回各指标的滚动分位数（毫秒）
+     * { channels: { default: { completed, enqueueToStart: { count, p50, p95, p99, max }, decode, ready, prepare, startup, gap } } }
+     */
+    @UniJSMethod(uiThread = true)
+    public void getStats(UniJSCallback callback) {
+        if (callback == null) return;
+        JSONObject channels = new JSONObject();
+        synchronized (AudioModule.class) {
+            for (Map.Entry<String, AudioQueuePlayer> e : players.entrySet()) {
+                AudioQueuePlayer p = e.getValue();
+                PlaybackStats stats = p.getStats();
+                JSONObject c = new JSONObject();
+                c.put("completed", stats.completedCount());
+                c.put("underruns", p.getUnderrunCount());
+                c.put("jitterTargetMs", p.getJitterTargetMs());
+                LevelMeter level = p.getOutputLevel();
+                if (level != null) {
+                    c.put("output", json(o -> {
+                        o.put("peakDbfs", Math.round(level.heldPeakDbfs() * 10) / 10f);
+                        o.put("rmsDbfs", Math.round(level.rmsDbfs() * 10) / 10f);
+                        o.put("clips", level.clipCount());
+                    }));
+                }
+                for (Map.Entry<String, long[]> m : stats.summaries().entrySet()) {
+                    long[] v = m.getValue();
+                    c.put(m.getKey(), json(o -> {
+                        o.put("count", v[0]);
+                        o.put("p50", v[1]);
+                        o.put("p95", v[2]);
+                        o.put("p99", v[3]);
+                        o.put("max", v[4]);
+                    }));
+                }
+                channels.put(e.getKey(), c);
             }
         }
+        callback.invoke(json(o -> o.put("channels", channels)));
     }
 
+    /** 解码缓存命中统计；未启用时 enabled=false */
     @UniJSMethod(uiThread = true)
-    public void clear() {
+    public void getCacheStats(UniJSCallback callback) {
+        if (callback == null) return;
+        DecodedAudioCache cache;
+        synchronized (AudioModule.class) {
+            cache = decodedCache;
+        }
+        callback.invoke(json(o -> {
+            o.put("enabled", cache != null);
+            if (cache == null) return;
+            o.put("memoryHits", cache.getMemoryHits());
+            o.put("diskHits", cache.getDiskHits());
+            o.put("misses", cache.getMisses());
+            o.put("entries", cache.getEntryCount());
+            o.put("memoryBytes", cache.getMemoryBytes());
+            o.put("diskBytes", cache.getDiskBytes());
+        }));
+    }
+
+    /** 查询数据源与累计写盘字节数 */
+    @UniJSMethod(uiThread = true)
+    public void getDiskUsage(UniJSCallback callback) {
+        if (callback == null) return;
         AudioQueuePlayer p = getPlayer();
+        if (p == null) {
+            callback.invoke("Player未初始化");
+            return;
+        }
+        callback.invoke(json(o -> {
+            o.put("inMemory", p.isInMemorySource());
+            o.put("diskBytesWritten", p.getDiskBytesWritten());
+        }));
+    }
+
+    /** 清空全部通道 */
+    @UniJSMethod(uiThread = true)
+    public void clear() {
+        for (AudioQueuePlayer p : allPlayers()) p.clear();
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void clearChannel(String channel) {
+        AudioQueuePlayer p = existingPlayer(channelName(channel));
         if (p != null) p.clear();
     }
 
+    @UniJSMethod(uiThread = true)
+    public void pause() {
+        for (AudioQueuePlayer p : allPlayers()) p.pause();
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void resume() {
+        for (AudioQueuePlayer p : allPlayers()) p.resume();
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void pauseChannel(String channel) {
+        AudioQueuePlayer p = existingPlayer(channelName(channel));
+        if (p != null) p.pause();
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void resumeChannel(String channel) {
+        AudioQueuePlayer p = existingPlayer(channelName(channel));
+        if (p != null) p.resume();
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void setTaskGain(int id, float gain) {
+        setChannelTaskGain(DEFAULT_CHANNEL, id, gain);
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void setChannelTaskGain(String channel, int id, float gain) {
+        AudioQueuePlayer p = existingPlayer(channelName(channel));
+        if (p != null) p.setTaskGain(id, gain);
+    }
+
+    /** 默认通道定位；回调 { positionMs, durationMs }，无法定位时 positionMs 为 -1 */
+    @UniJSMethod(uiThread = true)
+    public void seekTo(long positionMs, UniJSCallback callback) {
+        seekChannel(DEFAULT_CHANNEL, positionMs, callback);
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void seekChannel(String channel, long positionMs, UniJSCallback callback) {
+        AudioQueuePlayer p = existingPlayer(channelName(channel));
+        long actual = p != null ? p.seekTo(Math.max(0, positionMs)) : -1;
+        long duration = p != null ? p.getTimelineDurationMs() : 0;
+        if (callback != null) callback.invoke(json(o -> {
+            o.put("positionMs", actual);
+            o.put("durationMs", duration);
+        }));
+    }
+
+    /** 释放单个通道；其余通道不受影响 */
+    @UniJSMethod(uiThread = true)
+    public void releaseChannel(String channel) {
+        String name = channelName(channel);
+        AudioQueuePlayer p;
+        synchronized (AudioModule.class) {
+            p = players.remove(name);
+            if (p != null) p.release();
+            mixedChannels.remove(name);
+            releaseMixerIfUnusedLocked();
+        }
+        emit(name, "released", null);
+    }
+
+    private static AudioQueuePlayer existingPlayer(String channel) {
+        synchronized (AudioModule.class) {
+            return players.get(channel);
+        }
+    }
+
+    /**
+     * 播放速度（0.5~3，如 1.25 / 1.5 / 2）与音调（0.5~2，1 为原调），作用于全部通道。
+     * 流式模式（mode: "stream"）在 PCM 管线里做 WSOLA 变速，整个有序队列一致生效；
+     * MEDIA_PLAYER 模式使用系统 PlaybackParams（Android 6.0+）。
+     */
+    @UniJSMethod(uiThread = true)
+    public void setPlaybackRate(float rate, float pitch, UniJSCallback callback) {
+        float p = pitch > 0 ? pitch : 1f;
+        playbackRate = rate;
+        playbackPitch = p;
+        for (AudioQueuePlayer player : allPlayers()) player.setPlaybackRate(rate, p);
+        if (callback != null) callback.invoke(json(o -> {
+            o.put("rate", Math.max(TimeStretch.MIN_RATE, Math.min(TimeStretch.MAX_RATE, rate)));
+            o.put("pitch", Math.max(TimeStretch.MIN_PITCH, Math.min(TimeStretch.MAX_PITCH, p)));
+        }));
+    }
+
     @UniJSMethod(uiThread = true)
     public void setOutputMode(String mode, UniJSCallback callback) {
         AudioQueuePlayer p = getPlayer();
@@ -130,6 +668,7 @@ public class AudioModule extends UniModule {
         }
 
         String m = (mode != null && !mode.isEmpty()) ? mode.toLowerCase() : "speaker";
+        // 输出路由是全局的（AudioManager），由默认通道切换即可
         switch (m) {
             case "earpiece":
                 p.setOutputMode(AudioQueuePlayer.OutputMode.EARPIECE);
@@ -143,14 +682,16 @@ public class AudioModule extends UniModule {
         if (callback != null) callback.invoke("切换为：" + m);
     }
 
+    /** 释放全部通道与共享混音输出 */
     @UniJSMethod(uiThread = true)
     public void release() {
-        AudioQueuePlayer p = weakRef.get();
-        if (p != null) {
-            p.release();
-            weakRef.clear();
+        synchronized (AudioModule.class) {
+            for (AudioQueuePlayer p : players.values()) p.release();
+            players.clear();
+            mixedChannels.clear();
+            releaseMixerIfUnusedLocked();
         }
-        emit("released", new JSONObject());
+        emit(null, "released", null);
         eventCallback = null;
     }
 
@@ -162,15 +703,28 @@ public class AudioModule extends UniModule {
         return o;
     }
 
-    private void emit(String type, JSONObject data) {
-        if (eventCallback == null) return;
+    /**
+     * 播放器事件在各通道自己的播放线程触发，这里统一转投到主线程再跨桥，播放线程不等待 JS；
+     * 未订阅的事件在构造 JSON 之前就被丢弃；已在主线程时直接回调，不再额外 post 一次
+     */
+    private void emit(String channel, String type, Filler data) {
+        if (!wants(type)) return;
         JSONObject payload = new JSONObject();
         payload.put("type", type);
-        payload.put("data", data == null ? new JSONObject() : data);
-        main.post(() -> {
-            try { eventCallback.invokeAndKeepAlive(payload); } catch (Throwable t) {
-                Log.e(TAG, "事件回调失败: " + t.getMessage());
-            }
-        });
+        if (channel != null) payload.put("channel", channel);
+        payload.put("data", data == null ? new JSONObject() : json(data));
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            deliver(payload);
+        } else {
+            main.post(() -> deliver(payload));
+        }
+    }
+
+    private void deliver(JSONObject payload) {
+        UniJSCallback cb = eventCallback;
+        if (cb == null) return;
+        try { cb.invokeAndKeepAlive(payload); } catch (Throwable t) {
+            Log.e(TAG, "事件回调失败: " + t.getMessage());
+        }
     }
 }
@@ -4,44 +4,91 @@ import android.content.Context;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
 import android.media.MediaPlayer;
+import android.media.PlaybackParams;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
-import android.util.Base64;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 🎧 顺序音频任务播放器：严格按 ID 顺序播放（0,1,2,...）
- * - 缺口等待：只有 expectedNextId 到齐才开始/继续播放
+ * - 缺口等待：只有 expectedNextId 到齐才开始/继续播放；可配置缺口超时后跳过（onGapSkipped）
+ * - 内存预算：队列字节数超限时把远端任务换出到磁盘或丢弃
  * - startPlayId：可配置起始 ID，小于它的任务一律忽略
+ * - 任务来源：Base64（enqueue/enqueueAsync）、原始字节（enqueueBytesAsync，供原生代码调用）、本地文件（enqueueFileAsync）
+ * - PlaybackMode.STREAMING：解码后写入同一个 AudioTrack，相邻片段无缝衔接（见 StreamingAudioEngine）
+ * - 多通道：每个通道一个实例，各自的重排队列/输出属性/事件；setSharedOutput 可让多个通道混入同一个 AudioTrack
+ * - 全局时间轴：已播/已解码片段的时长首尾相接（PlaybackTimeline），进度同时上报片段内与全局位置；
+ *   pause()/resume()/seekTo(ms) 作用于整条有序队列
+ * - 输出 DSP（流式模式，StreamSource + PcmEnvelope）：每任务增益、相邻 ID 交叉淡化、clear/seek 淡出与静默后淡入
+ *
+ * 线程模型：
+ * - 播放线程：每个实例独占一个 THREAD_PRIORITY_AUDIO 的 HandlerThread（handler），
+ *   MediaPlayer 回调、进度 tick、缺口计时、入队/预取完成、流式引擎事件等所有队列推进都在这里执行，
+ *   不占用主线程，UI 卡顿不会推迟下一段的起播，起播慢也不会卡 UI
+ * - 公共方法可在任意线程调用，队列状态由对象锁保护；clear()/release() 同步生效
+ * - 工作线程：TaskIngestor（Base64 解码）、预取/解码线程池、换出线程、追加线程、StreamingAudioEngine 渲染线程，
+ *   它们只把结果投递回播放线程，不直接改动队列
+ * - Listener 回调在播放线程触发；调用方（AudioModule）负责把事件转投到 JS 桥所需的线程，不能在回调里阻塞
  */
 public class AudioQueuePlayer {
 
     public enum OutputMode { SPEAKER, EARPIECE, BLUETOOTH }
 
+    /** MEDIA_PLAYER：每个片段一个 MediaPlayer（兼容旧行为）；STREAMING：AudioTrack 无缝流式播放 */
+    public enum PlaybackMode { MEDIA_PLAYER, STREAMING }
+
     public interface Listener {
-        void onQueued(String id, int queueSize);
+        /** queueBytes：队列中仍在内存里的任务字节数，供生产端限流 */
+        void onQueued(String id, int queueSize, long queueBytes);
         void onStart(String id, int queueSize);
-        void onProgress(String id, long positionMs, long durationMs);
+        /** positionMs/durationMs 为片段内位置；globalPositionMs/globalDurationMs 为整条时间轴上的位置与已知总时长 */
+        void onProgress(String id, long positionMs, long durationMs, long globalPositionMs, long globalDurationMs);
         void onComplete(String id, int queueSize);
         void onError(String id, String message);
         void onQueueEmpty();
+        /** 等待 fromId 超时，跳过 fromId..toId 继续播放 */
+        void onGapSkipped(int fromId, int toId, long waitedMs);
         void onOutputModeChanged(OutputMode mode);
+        /** 任务播放完成后的完整时间线（各阶段时间点与片段间隔） */
+        void onTaskMetrics(PlaybackStats.TaskTiming timing);
+        /** 抖动缓冲：播空后卡顿 stallMs 才续上；count 为累计欠载次数，targetMs 为调整后的蓄水目标 */
+        void onUnderrun(int count, long stallMs, long targetMs, long jitterMs);
     }
 
     private static final String TAG = "AudioQueuePlayer";
-    private static final long PROGRESS_INTERVAL = 300L;
+    private static final long DEFAULT_PROGRESS_INTERVAL = 300L;
+    private static final int DEFAULT_LOOK_AHEAD = 2;
+    private static final int PREFETCH_THREADS = 2;
+    private static final int TASK_BUFFER_CAPACITY = 64;
+    /** 抖动缓冲蓄水期间允许提前取出解码的片段数（平时受 lookAhead 限制） */
+    private static final int JITTER_MAX_AHEAD = 16;
+    private static final long DEFAULT_SEEK_HISTORY_MS = 30_000L;
 
     private final Context ctx;
     private final AudioManager audioManager;
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    /** 播放线程：所有队列推进与播放器回调都在这里执行 */
+    private final HandlerThread playbackThread;
+    private final Handler handler;
 
-    /** 任务池：按 ID 排序存放到达的任务（可能乱序到达） */
-    private final TreeMap<Integer, AudioTask> taskMap = new TreeMap<>();
+    /** 任务池：按 ID 排序存放到达的任务（可能乱序到达）；环形重排缓冲，base 跟随 expectedNextId，远端 ID 进有序溢出区 */
+    private final ReorderBuffer<AudioTask> taskMap = new ReorderBuffer<>(TASK_BUFFER_CAPACITY);
 
     private MediaPlayer player;
     private Listener listener;
@@ -54,19 +101,144 @@ public class AudioQueuePlayer {
     private int startPlayId = 0;
     private int expectedNextId = 0;
 
+    /** 流式模式：追加线程 + 播放引擎；generation 用于丢弃 clear 之前提交的解码/预取结果 */
+    private volatile PlaybackMode playbackMode = PlaybackMode.MEDIA_PLAYER;
+    private StreamingAudioEngine engine;
+    /** 共享混音输出（由外部持有，不随本实例释放）；为 null 时流式模式自建引擎 */
+    private StreamingAudioEngine sharedOutput;
+    private StreamSource source;
+    private ExecutorService appendExecutor;
+    private int pendingDecodes = 0;
+    /** 流式模式：已取出但尚未开播的片段数 */
+    private int streamAhead = 0;
+    private volatile int generation = 0;
+
+    /** 预取深度：提前准备 expectedNextId 之后的 lookAhead 个任务；0 表示关闭 */
+    private int lookAhead = DEFAULT_LOOK_AHEAD;
+    private ExecutorService prefetchExecutor;
+    private TaskIngestor ingestor;
+    private AudioTask currentTask;
+    /** 已通过 setNextMediaPlayer 交给系统接力的任务 */
+    private AudioTask chainedTask;
+
+    /** 数据源：默认内存直读（MediaDataSource），关闭或低版本时写临时文件并在用完后删除 */
+    private final TempAudioStore tempStore;
+    private boolean inMemorySource = true;
+
+    /** 内存预算：maxQueueBytes > 0 时，队列内存超限的任务按 ID 从大到小换出到磁盘（或直接丢弃） */
+    private long maxQueueBytes = 0;
+    private boolean spillToDisk = true;
+    private long queuedBytes = 0;
+    private long spillingBytes = 0;
+    private ExecutorService spillExecutor;
+
+    /** 缺口超时：expectedNextId 迟迟不到且后面已有任务时，超时后跳过缺口；0 表示一直等待 */
+    private long gapTimeoutMs = 0;
+    private boolean gapArmed = false;
+    private int gapArmedFor;
+    private long gapArmedAt;
+    private final Runnable gapTimeout = this::onGapTimeout;
+
+    /**
+     * 自适应抖动缓冲（仅流式模式）：null 表示关闭，有数据就立即起播。
+     * 起播前与每次播空后进入蓄水：片段照常解码追加，但引擎暂不输出，
+     * 直到蓄够 targetMs 的已解码 PCM，或从第一个片段到达起等待超过 targetMs
+     */
+    private JitterBuffer jitter;
+    private boolean jitterHolding = false;
+    private long jitterHeldMs = 0;
+    private long jitterHoldSince = -1;
+    /** 播空时刻；下一个片段开播时结算卡顿时长，-1 表示没有未结算的欠载 */
+    private long drainedAt = -1;
+    private final Runnable jitterTimeout = this::onJitterTimeout;
+
+    /**
+     * 全局时间轴与暂停/定位状态。
+     * 流式模式下时间轴保留已播片段最近 seekHistoryMs 的解码结果，向回 seek 时直接重新追加；
+     * seekEpoch 在 seek 时递增，丢弃 seek 之前渲染线程投递的片段事件；
+     * 重放的片段（开播：id <= replayThroughId；完成：id <= highestCompletedId）不再计入延迟统计
+     */
+    private final PlaybackTimeline timeline = new PlaybackTimeline();
+    private long seekHistoryMs = DEFAULT_SEEK_HISTORY_MS;
+    private volatile int seekEpoch = 0;
+    private int highestStartedId = Integer.MIN_VALUE;
+    private int replayThroughId = Integer.MIN_VALUE;
+    private int highestCompletedId = Integer.MIN_VALUE;
+    private boolean paused = false;
+    /** MEDIA_PLAYER 模式：当前播放器已 start（未 start 前不能 pause/start，否则进入错误状态） */
+    private boolean playerStarted = false;
+    /** MEDIA_PLAYER 模式：暂停期间 prepare 完成，等 resume 再开播 */
+    private boolean startOnResume = false;
+
+    /** 解码缓存（可在多个通道间共享）；null 表示不缓存 */
+    private volatile DecodedAudioCache decodedCache;
+
+    /** 延迟统计：各阶段时间点与滚动分位数 */
+    private final PlaybackStats stats = new PlaybackStats();
+
+    /** 进度上报间隔；0 表示不上报进度 */
+    private volatile long progressIntervalMs = DEFAULT_PROGRESS_INTERVAL;
+
+    /** 输出属性与通道音量 */
+    private AudioAttributes audioAttributes = defaultAttributes();
+    private float volume = 1f;
+    /**
+     * 每任务增益（0~2）：setTaskGain 登记，片段追加到引擎（流式）或开播（MEDIA_PLAYER，最大 1）时取用；
+     * 交叉淡化与淡入淡出只在流式模式生效（MediaPlayer 的 PCM 不经过本进程）
+     */
+    private final Map<Integer, Float> taskGains = new HashMap<>();
+    private float currentGain = 1f;
+    private int crossfadeMs = 0;
+    private int fadeMs = 0;
+    /** 播放速度与音调：流式模式走 TimeStretch（WSOLA），MEDIA_PLAYER 模式走 PlaybackParams（API 23+） */
+    private float playbackSpeed = 1f;
+    private float playbackPitch = 1f;
+
+    /** 原始 PCM 输入：pcmSampleRate > 0 时任务数据按小端 PCM16 处理，不经过 MediaCodec */
+    private volatile int pcmSampleRate = 0;
+    private volatile int pcmChannels = 1;
+
+    private static final int PREFETCH_NONE = 0;
+    private static final int PREFETCH_RUNNING = 1;
+    private static final int PREFETCH_READY = 2;
+    private static final int PREFETCH_FAILED = 3;
+
     /** 单个任务结构 */
     private static class AudioTask {
         final int id;
-        final String base64;
-        AudioTask(int id, String base64) {
+        /** 音频数据：内存字节（Base64 解码后或直接传入）与本地文件路径二选一；超出内存预算时会被换出到磁盘 */
+        volatile byte[] data;
+        volatile String path;
+        boolean spilling;
+        /** 落盘兜底时该任务的临时文件 */
+        File tempFile;
+        /** MEDIA_PLAYER 模式预取：已 prepare 的播放器 */
+        int prefetchState = PREFETCH_NONE;
+        MediaPlayer prepared;
+        boolean startWhenReady;
+        /** 流式模式预取：解码结果 */
+        Future<DecodedAudio> decoded;
+        /** 解码缓存键（内容哈希），入队时在工作线程计算；未启用缓存时为 null */
+        String cacheKey;
+        AudioTask(int id, byte[] data, String path) {
             this.id = id;
-            this.base64 = base64;
+            this.data = data;
+            this.path = path;
+        }
+
+        long memoryBytes() {
+            byte[] d = data;
+            return d != null ? d.length : 0;
         }
     }
 
     public AudioQueuePlayer(Context context) {
         this.ctx = context.getApplicationContext();
         this.audioManager = (AudioManager) ctx.getSystemService(Context.AUDIO_SERVICE);
+        this.tempStore = new TempAudioStore(ctx.getCacheDir());
+        this.playbackThread = new HandlerThread("AudioQueuePlayback", Process.THREAD_PRIORITY_AUDIO);
+        this.playbackThread.start();
+        this.handler = new Handler(playbackThread.getLooper());
         resetPointers(0);
     }
 
@@ -78,13 +250,385 @@ public class AudioQueuePlayer {
         Log.i(TAG, "🎯 startPlayId set to " + id + ", expectedNextId=" + expectedNextId);
     }
 
+    /** 切换播放模式；会停止当前播放并清空队列 */
+    public synchronized void setPlaybackMode(PlaybackMode mode) {
+        if (mode == null || mode == playbackMode) return;
+        clear();
+        if (mode != PlaybackMode.STREAMING) releaseStreaming();
+        playbackMode = mode;
+        Log.i(TAG, "🎛️ playbackMode=" + mode);
+    }
+
+    public synchronized PlaybackMode getPlaybackMode() { return playbackMode; }
+
+    /**
+     * 流式模式改为写入外部持有的共享输出（多通道混音）；null 恢复为自建引擎。
+     * 会先 clear 当前队列；共享输出的释放由调用方负责。
+     */
+    public synchronized void setSharedOutput(StreamingAudioEngine output) {
+        if (output == sharedOutput) return;
+        clear();
+        releaseStreaming();
+        sharedOutput = output;
+    }
+
+    /** 输出属性（usage/contentType），对之后创建的播放器/AudioTrack 生效；混音时以共享输出的属性为准 */
+    public synchronized void setAudioAttributes(AudioAttributes attributes) {
+        if (attributes == null) return;
+        this.audioAttributes = attributes;
+        if (engine != null && engine != sharedOutput) {
+            clear();
+            releaseStreaming();
+        }
+    }
+
+    /** 解码缓存：重复的片段（提示音等）命中后跳过 Base64 之后的解码，流式模式下直接起播；null 关闭 */
+    public void setDecodedCache(DecodedAudioCache cache) {
+        this.decodedCache = cache;
+    }
+
+    /**
+     * 自适应抖动缓冲（仅流式模式生效）：起播前与播空后先蓄够目标时长的已解码 PCM 再输出。
+     * 目标从 initialMs 开始，在 [minMs, maxMs] 内随到达抖动与欠载自动调整；每次欠载回调 onUnderrun。
+     * enabled = false 关闭，已蓄的数据立即放行。
+     */
+    public synchronized void setJitterBuffer(boolean enabled, long initialMs, long minMs, long maxMs) {
+        jitter = enabled ? new JitterBuffer(initialMs, minMs, maxMs) : null;
+        drainedAt = -1;
+        setJitterHold(enabled && !isPlaying);
+    }
+
+    /** 累计欠载次数（未开启抖动缓冲时为 0） */
+    public synchronized int getUnderrunCount() { return jitter != null ? jitter.underruns() : 0; }
+
+    /** 流式输出电平（混音后写入 AudioTrack 的数据，100ms 窗口）；MEDIA_PLAYER 模式或尚未出声时为 null */
+    synchronized LevelMeter getOutputLevel() { return engine != null ? engine.outputLevel() : null; }
+
+    /** 当前蓄水目标（毫秒）；未开启抖动缓冲时为 0 */
+    public synchronized long getJitterTargetMs() { return jitter != null ? jitter.targetMs() : 0; }
+
+    /** 流式模式下可向回 seek 的历史时长（毫秒），超出部分的 PCM 播完即释放；0 表示只能在未播部分内定位 */
+    public synchronized void setSeekHistory(long historyMs) {
+        this.seekHistoryMs = Math.max(0, historyMs);
+    }
+
+    /**
+     * 暂停整条队列：当前片段停在原处，之后到达的任务照常入队/解码但不开播。
+     * 流式模式单路输出时 AudioTrack 直接暂停；混音时约 100ms 已写入的数据仍会播完。
+     */
+    public synchronized void pause() {
+        if (paused) return;
+        paused = true;
+        if (playbackMode == PlaybackMode.STREAMING) {
+            if (engine != null && source != null) engine.setPaused(source, true);
+        } else if (player != null && playerStarted) {
+            try {
+                player.pause();
+            } catch (IllegalStateException ignored) {}
+            stopProgress();
+        }
+        Log.i(TAG, "⏸️ paused");
+    }
+
+    /** 从暂停处继续；暂停期间到齐的任务随后接着播放 */
+    public synchronized void resume() {
+        if (!paused) return;
+        paused = false;
+        Log.i(TAG, "⏯️ resumed");
+        if (playbackMode == PlaybackMode.STREAMING) {
+            if (engine != null && source != null) engine.setPaused(source, false);
+            pumpStreaming();
+            return;
+        }
+        if (startOnResume) {
+            startOnResume = false;
+            startPrepared(currentTask.id);
+        } else if (player != null && playerStarted) {
+            try {
+                player.start();
+                applyPlaybackParams(player, false);
+            } catch (IllegalStateException ignored) {}
+            startProgress();
+        } else if (!isPlaying) {
+            playNextIfReady();
+        }
+    }
+
+    public synchronized boolean isPaused() { return paused; }
+
+    /**
+     * 定位到全局时间轴上的 positionMs，返回实际定位到的位置（-1 表示无法定位）。
+     * 流式模式：时间轴由已解码片段组成，可在 [仍保留 PCM 的最早片段, 已解码末尾] 内任意定位，
+     * 目标片段从对应偏移开始，其后的片段按顺序重新追加，不重新解码；暂停中定位后保持暂停。
+     * MEDIA_PLAYER 模式：已播片段没有解码结果，只能在当前片段内定位（越界时取片段首尾）。
+     */
+    public synchronized long seekTo(long positionMs) {
+        if (playbackMode == PlaybackMode.STREAMING) return seekStreaming(positionMs);
+        if (player == null || currentTask == null || !(playerStarted || startOnResume)) return -1;
+        PlaybackTimeline.Entry cur = timeline.find(currentTask.id);
+        if (cur == null) return -1;
+        long offset = Math.max(0, Math.min(cur.durationMs, positionMs - cur.startMs));
+        try {
+            player.seekTo((int) offset);
+        } catch (IllegalStateException e) {
+            return -1;
+        }
+        Log.i(TAG, "⏩ seek id=" + cur.id + " offset=" + offset + "ms");
+        return cur.startMs + offset;
+    }
+
+    private long seekStreaming(long positionMs) {
+        int index = timeline.indexAt(positionMs, true);
+        if (engine == null || source == null || index < 0) return -1;
+        PlaybackTimeline.Entry target = timeline.get(index);
+        long offset = Math.max(0, Math.min(target.durationMs, positionMs - target.startMs));
+
+        engine.flush(source);
+        seekEpoch++;
+        replayThroughId = Math.max(replayThroughId, highestStartedId);
+        // 目标片段及其后所有已解码片段按顺序重新追加；仍在解码的片段由追加线程随后接上
+        int appended = 0;
+        for (int i = index; i < timeline.size(); i++) {
+            PlaybackTimeline.Entry e = timeline.get(i);
+            engine.append(source, e.id, e.audio, i == index ? offset : 0, e.gain);
+            appended++;
+        }
+        streamAhead = pendingDecodes + appended;
+        isPlaying = true;
+        drainedAt = -1;
+        if (jitterHolding) setJitterHold(false);
+        Log.i(TAG, "⏩ seek id=" + target.id + " offset=" + offset + "ms, 重新追加 " + appended + " 个片段");
+        return target.startMs + offset;
+    }
+
+    private void resetTimeline() {
+        timeline.reset();
+        highestStartedId = Integer.MIN_VALUE;
+        highestCompletedId = Integer.MIN_VALUE;
+        replayThroughId = Integer.MIN_VALUE;
+    }
+
+    /** 全局时间轴已知总时长（毫秒） */
+    public synchronized long getTimelineDurationMs() { return timeline.durationMs(); }
+
+    /** 进度上报间隔（毫秒）；<= 0 关闭进度事件，省去播放期间的周期性主线程回调 */
+    public synchronized void setProgressInterval(long intervalMs) {
+        this.progressIntervalMs = Math.max(0, intervalMs);
+        if (source != null) source.progressIntervalMs = this.progressIntervalMs;
+        if (progressIntervalMs == 0) stopProgress();
+    }
+
+    /**
+     * 播放速度（0.5~3）与音调（0.5~2，1 为原调）。
+     * 流式模式在 PCM 管线里按片段做 WSOLA 变速，对整个有序队列一致生效（从尚未预处理的片段起生效，引擎最多提前处理 2 个片段）；
+     * MEDIA_PLAYER 模式对每个播放器设置 PlaybackParams，需要 API 23+，更低版本忽略。
+     */
+    public synchronized void setPlaybackRate(float speed, float pitch) {
+        this.playbackSpeed = Math.max(TimeStretch.MIN_RATE, Math.min(TimeStretch.MAX_RATE, speed));
+        this.playbackPitch = Math.max(TimeStretch.MIN_PITCH, Math.min(TimeStretch.MAX_PITCH, pitch));
+        if (source != null) {
+            source.speed = playbackSpeed;
+            source.pitch = playbackPitch;
+        }
+        if (player != null && player.isPlaying()) applyPlaybackParams(player, true);
+    }
+
+    /**
+     * 仅在 start() 之后调用：prepared 状态下设置非零速度会直接开始播放。
+     * 新播放器默认即为原速，原速时跳过；force 用于把正在播放的播放器调回原速。
+     */
+    private void applyPlaybackParams(MediaPlayer mp, boolean force) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) return;
+        if (!force && TimeStretch.isIdentity(playbackSpeed, playbackPitch)) return;
+        try {
+            mp.setPlaybackParams(new PlaybackParams().setSpeed(playbackSpeed).setPitch(playbackPitch));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            Log.w(TAG, "设置播放速度失败: " + e.getMessage());
+        }
+    }
+
+    /** 通道音量 0~1：流式模式下立即生效，MEDIA_PLAYER 模式同时作用于当前播放器 */
+    public synchronized void setVolume(float volume) {
+        this.volume = Math.max(0f, Math.min(1f, volume));
+        if (source != null) source.volume = this.volume;
+        if (player != null) applyPlayerVolume(player);
+    }
+
+    /** 单个任务的增益（0~2，默认 1）；需在该任务开播前设置，已开播的任务不受影响 */
+    public synchronized void setTaskGain(int id, float gain) {
+        if (id < expectedNextId) return;
+        taskGains.put(id, Math.max(0f, Math.min(2f, gain)));
+        if (taskGains.size() > TASK_BUFFER_CAPACITY) {
+            // 被跳过的 ID 不会再取用：清掉已落后于播放点的登记
+            Iterator<Integer> it = taskGains.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next() < expectedNextId) it.remove();
+            }
+        }
+    }
+
+    /**
+     * 流式输出的交叉淡化与淡入淡出（毫秒）：crossfadeMs 为相邻 ID 首尾重叠的时长（0 为直接相接）；
+     * fadeMs 为 clear/seek 时的淡出与静默后起播的淡入（0 为硬切，clear 立即清空硬件缓冲）
+     */
+    public synchronized void setCrossfade(int crossfadeMs, int fadeMs) {
+        this.crossfadeMs = Math.max(0, Math.min(StreamSource.MAX_CROSSFADE_MS, crossfadeMs));
+        this.fadeMs = Math.max(0, Math.min(StreamSource.MAX_FADE_MS, fadeMs));
+        if (source != null) {
+            source.crossfadeMs = this.crossfadeMs;
+            source.fadeMs = this.fadeMs;
+        }
+    }
+
+    private float takeTaskGain(int id) {
+        Float g = taskGains.remove(id);
+        return g != null ? g : 1f;
+    }
+
+    private void applyPlayerVolume(MediaPlayer mp) {
+        float v = volume * Math.min(1f, currentGain);
+        try {
+            mp.setVolume(v, v);
+        } catch (IllegalStateException ignored) {}
+    }
+
+    /** 设置原始 PCM16 输入格式（仅流式模式生效）；sampleRate <= 0 表示任务数据是压缩音频（MP3 等） */
+    public synchronized void setPcmInput(int sampleRate, int channels) {
+        this.pcmSampleRate = sampleRate;
+        this.pcmChannels = Math.max(1, channels);
+    }
+
+    /** 设置预取深度（>= 0）；流式模式下至少为 1 以保证无缝衔接 */
+    public synchronized void setLookAhead(int depth) {
+        this.lookAhead = Math.max(0, depth);
+    }
+
+    /**
+     * 队列内存预算（字节）；<= 0 表示不限制。
+     * spill = true 时超出部分换出到临时文件，false 时直接丢弃离播放点最远的任务（发 error: evicted_over_budget）
+     */
+    public synchronized void setMemoryBudget(long maxBytes, boolean spill) {
+        this.maxQueueBytes = maxBytes;
+        this.spillToDisk = spill;
+        enforceBudget();
+    }
+
+    /** 缺口超时（毫秒）；<= 0 表示一直等待缺失的 ID */
+    public synchronized void setGapTimeout(long timeoutMs) {
+        this.gapTimeoutMs = timeoutMs;
+        armGapTimer();
+    }
+
+    /** 队列中仍在内存里的任务字节数 */
+    public synchronized long getQueueBytes() { return queuedBytes; }
+
+    /** 是否优先使用内存数据源；false 时强制走临时文件 */
+    public synchronized void setInMemorySource(boolean enabled) {
+        this.inMemorySource = enabled;
+    }
+
+    public synchronized boolean isInMemorySource() { return useInMemorySource(); }
+
+    /** 累计写入磁盘的字节数（仅落盘兜底路径会增加） */
+    public long getDiskBytesWritten() { return tempStore.getBytesWritten(); }
+
     private void resetPointers(int startId) {
         this.startPlayId = startId;
         this.expectedNextId = startId;
+        resetTimeline();
+        // 已入队的任务按新起点重新放置，小于起点的丢弃
+        final List<AudioTask> kept = new ArrayList<>();
+        taskMap.forEach((id, t) -> {
+            if (id >= startId) {
+                kept.add(t);
+            } else {
+                queuedBytes -= t.memoryBytes();
+                releasePrefetched(t);
+            }
+        });
+        taskMap.reset(startId);
+        for (AudioTask t : kept) taskMap.put(t.id, t);
     }
 
-    /** 入队：只存储，不允许插队播放；等到 expectedNextId 到达才播放 */
+    /** 推进 expectedNextId，并让重排缓冲的 base 跟上（低于它的残留重复任务一并释放） */
+    private void advanceExpected(int next) {
+        // 按已占用的 ID 逐个释放，不按 ID 区间逐个试探（跳到远端 ID 时区间可能很大）
+        while (!taskMap.isEmpty()) {
+            int id = taskMap.firstId();
+            if (id >= next) break;
+            AudioTask stale = takeTask(id);
+            if (stale != null) releasePrefetched(stale);
+        }
+        expectedNextId = next;
+        taskMap.advanceTo(next);
+    }
+
+    /** 入队结果回调（enqueueAsync 完成后在 handler 线程触发）；error 为 null 表示成功 */
+    public interface EnqueueCallback {
+        void onResult(String id, String error);
+    }
+
+    /**
+     * 异步入队：ID 校验、data: 前缀剥离与 Base64 解码在工作线程完成，
+     * 只有解码成功的任务才投递到 handler 线程进入有序队列。
+     */
+    public void enqueueAsync(String idStr, String base64, EnqueueCallback callback) {
+        ingestor().submit(idStr, base64, ingestCallback(idStr, callback));
+    }
+
+    /** 本地文件入队：播放器按路径直接读取，不经过 Base64；文件由调用方负责删除 */
+    public void enqueueFileAsync(String idStr, String path, EnqueueCallback callback) {
+        ingestor().submitFile(idStr, path, ingestCallback(idStr, callback));
+    }
+
+    /** 原始字节入队（已是 MP3/PCM 等音频数据，无需 Base64） */
+    public void enqueueBytesAsync(String idStr, byte[] data, EnqueueCallback callback) {
+        TaskIngestor.Callback cb = ingestCallback(idStr, callback);
+        final int id;
+        try {
+            id = Integer.parseInt(idStr);
+        } catch (Exception e) {
+            cb.onRejected(idStr, "invalid_id");
+            return;
+        }
+        if (data == null || data.length == 0) {
+            cb.onRejected(idStr, "empty_input");
+            return;
+        }
+        cb.onIngested(id, data, null);
+    }
+
+    private TaskIngestor.Callback ingestCallback(String idStr, EnqueueCallback callback) {
+        final int gen = generation;
+        final long submittedAt = SystemClock.elapsedRealtime();
+        return new TaskIngestor.Callback() {
+            @Override public void onIngested(int id, byte[] data, String path) {
+                stats.mark(id, PlaybackStats.ENQUEUED, submittedAt);
+                stats.mark(id, PlaybackStats.DECODED, SystemClock.elapsedRealtime());
+                final AudioTask task = new AudioTask(id, data, path);
+                task.cacheKey = cacheKeyFor(data, path);
+                handler.post(() -> {
+                    // clear() 之前提交的任务直接丢弃
+                    if (gen != currentGeneration()) {
+                        if (callback != null) callback.onResult(idStr, "cleared");
+                        return;
+                    }
+                    enqueue(task);
+                    if (callback != null) callback.onResult(idStr, null);
+                });
+            }
+            @Override public void onRejected(String id, String reason) {
+                handler.post(() -> {
+                    if (listener != null) listener.onError(id, reason);
+                    if (callback != null) callback.onResult(id, reason);
+                });
+            }
+        };
+    }
+
+    /** 同步入队：在调用线程解码 Base64；大数据量请使用 enqueueAsync */
     public synchronized void enqueue(String idStr, String base64) {
+        final long submittedAt = SystemClock.elapsedRealtime();
         if (base64 == null || base64.isEmpty()) {
             if (listener != null) listener.onError(idStr, "empty_input");
             return;
@@ -98,34 +642,77 @@ public class AudioQueuePlayer {
             return;
         }
 
+        final byte[] data;
+        try {
+            data = TaskIngestor.decodePayload(base64);
+        } catch (IllegalArgumentException e) {
+            if (listener != null) listener.onError(idStr, "invalid_base64");
+            return;
+        }
+        stats.mark(id, PlaybackStats.ENQUEUED, submittedAt);
+        stats.mark(id, PlaybackStats.DECODED, SystemClock.elapsedRealtime());
+        AudioTask task = new AudioTask(id, data, null);
+        task.cacheKey = cacheKeyFor(data, null);
+        enqueue(task);
+    }
+
+    /** 入队：只存储，不允许插队播放；等到 expectedNextId 到达才播放 */
+    private synchronized void enqueue(AudioTask task) {
+        final int id = task.id;
+        final String idStr = String.valueOf(id);
         // 忽略比起点小的任务
         if (id < startPlayId) {
             Log.w(TAG, "⚠️ ignore id=" + id + " < startPlayId=" + startPlayId);
             return;
         }
+        // 已播放或已被跳过的 ID 迟到：丢弃，否则会永远滞留在队列里
+        if (id < expectedNextId) {
+            Log.w(TAG, "⚠️ ignore late id=" + id + " < expectedNextId=" + expectedNextId);
+            return;
+        }
+        if (!taskMap.inWindow(id)) {
+            // 离播放点很远的 ID 不拒绝：存进重排缓冲的有序溢出区，播放点追上后迁回环形部分
+            Log.w(TAG, "⚠️ id=" + id + " 远超重排窗口，暂存溢出区，expectedNextId=" + expectedNextId);
+        }
 
-        taskMap.put(id, new AudioTask(id, base64));
-        if (listener != null) listener.onQueued(idStr, taskMap.size());
+        putTask(task);
+        if (jitter != null && playbackMode == PlaybackMode.STREAMING) {
+            jitter.onArrival(SystemClock.elapsedRealtime());
+        }
+        enforceBudget();
+        if (listener != null) listener.onQueued(idStr, taskMap.size(), queuedBytes);
         Log.i(TAG, "✅ enqueued id=" + id + ", queueSize=" + taskMap.size()
                 + ", expectedNextId=" + expectedNextId);
 
-        // 只有当“刚好等到 expectedNextId” 且当前不在播放，才启动
-        if (!isPlaying && taskMap.containsKey(expectedNextId)) {
+        if (playbackMode == PlaybackMode.STREAMING) {
+            pumpStreaming();
+        } else if (!isPlaying && taskMap.contains(expectedNextId)) {
+            // 只有当“刚好等到 expectedNextId” 且当前不在播放，才启动
             playNextIfReady();
+        } else {
+            schedulePrefetch();
+            chainNext();
         }
+        armGapTimer();
     }
 
     /** 仅当 expectedNextId 到齐时才真正开播；否则保持等待 */
     private synchronized void playNextIfReady() {
-        if (!taskMap.containsKey(expectedNextId)) {
+        if (paused) {
+            // 暂停中不开播下一个，resume() 时再继续
+            isPlaying = false;
+            return;
+        }
+        if (!taskMap.contains(expectedNextId)) {
             // 缺口：等待更小的 ID 到齐；不发 queueEmpty
             Log.i(TAG, "⏳ waiting for id=" + expectedNextId + ", currentTop="
-                    + (taskMap.isEmpty() ? "none" : taskMap.firstKey()));
+                    + (taskMap.isEmpty() ? "none" : taskMap.firstId()));
             isPlaying = false;
+            armGapTimer();
             return;
         }
 
-        final AudioTask task = taskMap.remove(expectedNextId);
+        final AudioTask task = takeTask(expectedNextId);
         startPlayTask(task);
     }
 
@@ -134,88 +721,50 @@ public class AudioQueuePlayer {
         isManualClear = false;  // 进入播放序列
         stopInternal();         // 停掉上一个
         isPlaying = true;
+        currentTask = task;
         Log.i(TAG, "❌ 开始进行播放");
 
-        try {
-            player = new MediaPlayer();
-            player.setAudioAttributes(new AudioAttributes.Builder()
-                    .setUsage(AudioAttributes.USAGE_MEDIA)
-                    .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
-                    .build()
-            );
-
-            String b64 = task.base64;
-            if (b64.startsWith("data:")) {
-                int idx = b64.indexOf("base64,");
-                if (idx != -1) b64 = b64.substring(idx + 7);
-            }
+        // 预取中：等后台 prepare 完成后由 onPrefetched 接着起播，避免重复准备
+        if (task.prefetchState == PREFETCH_RUNNING) {
+            task.startWhenReady = true;
+            Log.i(TAG, "⏳ 等待预取完成，ID=" + task.id);
+            return;
+        }
 
-            byte[] data = Base64.decode(b64, Base64.DEFAULT);
-            File tmp = File.createTempFile("audio_", ".mp3", ctx.getCacheDir());
-            try (FileOutputStream fos = new FileOutputStream(tmp)) {
-                fos.write(data);
-            }
-            Log.i(TAG, "🎧 开始播放任务，ID=" + task.id
-                    + " | 临时文件路径=" + tmp.getAbsolutePath()
-                    + " | 数据大小=" + data.length);
+        // 已预取：直接起播，省掉解码与 prepare
+        if (task.prepared != null) {
+            player = task.prepared;
+            task.prepared = null;
+            attachPlaybackListeners(player, task);
+            Log.i(TAG, "⚡ 使用预取播放器，ID=" + task.id);
+            startPrepared(task.id);
+            schedulePrefetch();
+            return;
+        }
 
-            player.setDataSource(tmp.getAbsolutePath());
-            player.setOnPreparedListener(mp -> {
+        try {
+            player = newMediaPlayer();
+            attachSource(player, task);
+            player.setOnPreparedListener(mp -> onPlaybackThread(() -> {
                 Log.i(TAG, "▶️ 已准备好，开始播放，ID=" + task.id);
-                if (listener != null) listener.onStart(String.valueOf(task.id), taskMap.size());
-                mp.start();
-                startProgress();
-            });
-
-            player.setOnCompletionListener(mp -> {
-                stopProgress();
-                Log.i(TAG, "✅ 播放任务完成，ID=" + task.id);
-                if (listener != null) listener.onComplete(String.valueOf(task.id), taskMap.size());
-                // 当前任务完成，推进期望 ID
-                synchronized (AudioQueuePlayer.this) {
-                    expectedNextId++;
-                    // 尝试继续播下一个（如果下一个期望 ID 已经到齐）
-                    if (taskMap.containsKey(expectedNextId)) {
-                        playNextIfReady();
-                    } else {
-                        // 没有下一个期望 ID 的任务，当前不在播放，等待后续入队
-                        isPlaying = false;
-                        // 如果任务池也为空，且没有缺口（此时“缺口”定义：expectedNextId 不存在于 taskMap，且 taskMap 为空）
-                        // 则自然结束发 queueEmpty
-                        if (taskMap.isEmpty() && !isManualClear) {
-                            if (listener != null) listener.onQueueEmpty();
-                            Log.i(TAG, "🎉 queue empty (natural)");
-                        }
-                    }
-                }
-            });
-
-            player.setOnErrorListener((mp, what, extra) -> {
-                stopProgress();
-                if (listener != null) listener.onError(String.valueOf(task.id), "MediaPlayer error: " + what);
+                stats.mark(task.id, PlaybackStats.PREPARED, SystemClock.elapsedRealtime());
                 synchronized (AudioQueuePlayer.this) {
-                    expectedNextId++; // 出错也推进，避免卡住
-                    if (taskMap.containsKey(expectedNextId)) {
-                        playNextIfReady();
-                    } else {
-                        isPlaying = false;
-                        if (taskMap.isEmpty() && !isManualClear) {
-                            if (listener != null) listener.onQueueEmpty();
-                            Log.i(TAG, "🎉 queue empty (after error)");
-                        }
-                    }
+                    // 准备期间被 clear/切换：该播放器已释放
+                    if (player != mp) return;
+                    startPrepared(task.id);
                 }
-                return true;
-            });
-
+            }));
+            attachPlaybackListeners(player, task);
             player.prepareAsync();
+            schedulePrefetch();
 
         } catch (IOException e) {
             Log.e(TAG, "播放失败: " + e.getMessage());
+            releaseTaskFile(task);
             if (listener != null) listener.onError(String.valueOf(task.id), e.getMessage());
             synchronized (AudioQueuePlayer.this) {
-                expectedNextId++;
-                if (taskMap.containsKey(expectedNextId)) {
+                advanceExpected(expectedNextId + 1);
+                if (taskMap.contains(expectedNextId)) {
                     playNextIfReady();
                 } else {
                     isPlaying = false;
@@ -223,25 +772,762 @@ public class AudioQueuePlayer {
                         if (listener != null) listener.onQueueEmpty();
                         Log.i(TAG, "🎉 queue empty (after exception)");
                     }
+                    armGapTimer();
+                }
+            }
+        }
+    }
+
+    /** 当前播放器已 prepare：开播并接力下一个；暂停中则推迟到 resume() */
+    private void startPrepared(int id) {
+        if (paused) {
+            startOnResume = true;
+            return;
+        }
+        currentGain = takeTaskGain(id);
+        if (currentGain != 1f) applyPlayerVolume(player);
+        notifyStart(id, SystemClock.elapsedRealtime());
+        player.start();
+        playerStarted = true;
+        applyPlaybackParams(player, false);
+        startProgress();
+        chainNext();
+    }
+
+    private MediaPlayer newMediaPlayer() {
+        MediaPlayer mp = new MediaPlayer();
+        mp.setAudioAttributes(audioAttributes);
+        if (volume < 1f) mp.setVolume(volume, volume);
+        return mp;
+    }
+
+    static AudioAttributes defaultAttributes() {
+        return new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_MEDIA)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                .build();
+    }
+
+    /** 设置数据源：内存直读，或写入临时文件（文件归属该任务，播完删除） */
+    private void attachSource(MediaPlayer mp, AudioTask task) throws IOException {
+        // 先取 data 快照：换出时先写 path 再清 data，data 为 null 时 path 必然可用
+        byte[] data = task.data;
+        if (data == null) {
+            Log.i(TAG, "🎧 开始播放任务，ID=" + task.id + " | 本地文件=" + task.path);
+            mp.setDataSource(task.path);
+            stats.mark(task.id, PlaybackStats.READY, SystemClock.elapsedRealtime());
+            return;
+        }
+        if (useInMemorySource()) {
+            Log.i(TAG, "🎧 开始播放任务，ID=" + task.id + " | 内存数据源 | 数据大小=" + data.length);
+            mp.setDataSource(new ByteArrayMediaDataSource(data));
+        } else {
+            File tmp = tempStore.write(data);
+            task.tempFile = tmp;
+            Log.i(TAG, "🎧 开始播放任务，ID=" + task.id
+                    + " | 临时文件路径=" + tmp.getAbsolutePath()
+                    + " | 数据大小=" + data.length);
+            mp.setDataSource(tmp.getAbsolutePath());
+        }
+        stats.mark(task.id, PlaybackStats.READY, SystemClock.elapsedRealtime());
+    }
+
+    /** 完成/出错回调；预取的播放器在 setNextMediaPlayer 前也会挂上，保证自动接力后仍能收到完成事件 */
+    private void attachPlaybackListeners(MediaPlayer mp, AudioTask task) {
+        mp.setOnCompletionListener(done -> onPlaybackThread(() -> {
+            synchronized (AudioQueuePlayer.this) {
+                // 回调经过一次投递：期间已被 clear/切换的播放器不再推进队列
+                if (player != done) return;
+            }
+            stopProgress();
+            Log.i(TAG, "✅ 播放任务完成，ID=" + task.id);
+            notifyComplete(task.id, SystemClock.elapsedRealtime());
+            // 当前任务完成，推进期望 ID
+            synchronized (AudioQueuePlayer.this) {
+                advanceExpected(expectedNextId + 1);
+                AudioTask chained = chainedTask;
+                chainedTask = null;
+                if (chained != null && taskMap.get(expectedNextId) == chained) {
+                    // 系统已通过 setNextMediaPlayer 无缝接力，只需接管播放器
+                    takeTask(expectedNextId);
+                    releaseTaskFile(task);
+                    try { done.release(); } catch (Throwable ignored) {}
+                    player = chained.prepared;
+                    chained.prepared = null;
+                    currentTask = chained;
+                    Log.i(TAG, "⚡ 无缝接力，ID=" + chained.id);
+                    playerStarted = true;
+                    float prevGain = currentGain;
+                    currentGain = takeTaskGain(chained.id);
+                    if (currentGain != prevGain) applyPlayerVolume(player);
+                    notifyStart(chained.id, SystemClock.elapsedRealtime());
+                    if (paused) {
+                        // 接力由系统完成，恰好在暂停之后发生时补一次暂停
+                        try { player.pause(); } catch (IllegalStateException ignored) {}
+                        return;
+                    }
+                    applyPlaybackParams(player, false);
+                    startProgress();
+                    schedulePrefetch();
+                    chainNext();
+                    return;
+                }
+                releaseTaskFile(task);
+                // 尝试继续播下一个（如果下一个期望 ID 已经到齐）
+                if (taskMap.contains(expectedNextId)) {
+                    playNextIfReady();
+                } else {
+                    // 没有下一个期望 ID 的任务，当前不在播放，等待后续入队
+                    isPlaying = false;
+                    // 如果任务池也为空，且没有缺口（此时“缺口”定义：expectedNextId 不存在于 taskMap，且 taskMap 为空）
+                    // 则自然结束发 queueEmpty
+                    if (taskMap.isEmpty() && !isManualClear) {
+                        if (listener != null) listener.onQueueEmpty();
+                        Log.i(TAG, "🎉 queue empty (natural)");
+                    }
+                    armGapTimer();
                 }
             }
+        }));
+
+        mp.setOnErrorListener((failed, what, extra) -> {
+            onPlaybackThread(() -> onPlaybackError(failed, task, what));
+            return true;
+        });
+    }
+
+    private synchronized void onPlaybackError(MediaPlayer failed, AudioTask task, int what) {
+        // 回调经过一次投递：期间已被 clear/切换的播放器不再推进队列
+        if (player != failed) return;
+        stopProgress();
+        if (listener != null) listener.onError(String.valueOf(task.id), "MediaPlayer error: " + what);
+        releaseTaskFile(task);
+        // 出错的播放器不会接力；已预取的下一个仍可由 startPlayTask 直接使用
+        chainedTask = null;
+        advanceExpected(expectedNextId + 1); // 出错也推进，避免卡住
+        if (taskMap.contains(expectedNextId)) {
+            playNextIfReady();
+        } else {
+            isPlaying = false;
+            if (taskMap.isEmpty() && !isManualClear) {
+                if (listener != null) listener.onQueueEmpty();
+                Log.i(TAG, "🎉 queue empty (after error)");
+            }
+            armGapTimer();
+        }
+    }
+
+    /**
+     * MediaPlayer 把回调投递到创建线程的 Looper（没有则是主线程）；
+     * 预取线程创建的播放器回调会落到主线程，这里统一转回播放线程。
+     */
+    private void onPlaybackThread(Runnable r) {
+        if (Looper.myLooper() == handler.getLooper()) {
+            r.run();
+        } else {
+            handler.post(r);
+        }
+    }
+
+    // ===== 内存预算 & 缺口超时 =====
+
+    private void putTask(AudioTask task) {
+        AudioTask old = taskMap.put(task.id, task);
+        if (old != null) {
+            queuedBytes -= old.memoryBytes();
+            releasePrefetched(old);
+        }
+        queuedBytes += task.memoryBytes();
+    }
+
+    private AudioTask takeTask(int id) {
+        AudioTask t = taskMap.remove(id);
+        if (t != null) queuedBytes -= t.memoryBytes();
+        return t;
+    }
+
+    /** 超出预算时从离播放点最远（ID 最大）的任务开始换出/丢弃；预取窗口内的任务不动 */
+    private void enforceBudget() {
+        if (maxQueueBytes <= 0 || taskMap.isEmpty()) return;
+        long excess = queuedBytes - spillingBytes - maxQueueBytes;
+        if (excess <= 0) return;
+
+        int windowEnd = expectedNextId + lookAhead;
+        for (int id = taskMap.lastId(); id > windowEnd && excess > 0; id = taskMap.lowerId(id)) {
+            AudioTask t = taskMap.get(id);
+            if (t == null) continue;
+            long bytes = t.memoryBytes();
+            if (bytes == 0 || t.spilling || t.prefetchState != PREFETCH_NONE || t.decoded != null) continue;
+            excess -= bytes;
+            if (spillToDisk) {
+                t.spilling = true;
+                spillingBytes += bytes;
+                final int gen = generation;
+                spillExecutor().execute(() -> spill(t, bytes, gen));
+            } else {
+                takeTask(id);
+                Log.w(TAG, "🗑️ 超出内存预算，丢弃 id=" + t.id);
+                if (listener != null) listener.onError(String.valueOf(t.id), "evicted_over_budget");
+            }
+        }
+    }
+
+    /** 换出线程：写临时文件后把任务切换为文件来源 */
+    private void spill(AudioTask task, long bytes, int gen) {
+        File file = null;
+        try {
+            byte[] data = task.data;
+            if (data != null) file = tempStore.write(data);
+        } catch (IOException e) {
+            Log.w(TAG, "换出失败 id=" + task.id + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            task.spilling = false;
+            if (gen != generation) {
+                tempStore.delete(file);
+                return;
+            }
+            spillingBytes -= bytes;
+            if (file != null && taskMap.get(task.id) == task && task.data != null) {
+                task.tempFile = file;
+                task.path = file.getAbsolutePath();
+                task.data = null;
+                queuedBytes -= bytes;
+                Log.i(TAG, "💾 换出 id=" + task.id + ", bytes=" + bytes + ", queueBytes=" + queuedBytes);
+            } else {
+                tempStore.delete(file);
+            }
+        }
+    }
+
+    private ExecutorService spillExecutor() {
+        if (spillExecutor == null) {
+            spillExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "AudioQueueSpill"));
+        }
+        return spillExecutor;
+    }
+
+    /** 当前不在播放、expectedNextId 缺失且后面已有任务时开始计时；条件不满足则取消 */
+    private void armGapTimer() {
+        boolean waiting = gapTimeoutMs > 0 && !isPlaying
+                && !taskMap.isEmpty() && !taskMap.contains(expectedNextId);
+        if (!waiting) {
+            if (gapArmed) {
+                handler.removeCallbacks(gapTimeout);
+                gapArmed = false;
+            }
+            return;
+        }
+        if (gapArmed && gapArmedFor == expectedNextId) return; // 已在为该 ID 计时
+        handler.removeCallbacks(gapTimeout);
+        gapArmed = true;
+        gapArmedFor = expectedNextId;
+        gapArmedAt = SystemClock.elapsedRealtime();
+        handler.postDelayed(gapTimeout, gapTimeoutMs);
+    }
+
+    private synchronized void onGapTimeout() {
+        gapArmed = false;
+        if (isPlaying || taskMap.isEmpty() || taskMap.contains(expectedNextId)) return;
+
+        int from = expectedNextId;
+        int to = taskMap.firstId();
+        long waited = SystemClock.elapsedRealtime() - gapArmedAt;
+        advanceExpected(to);
+        Log.w(TAG, "⏭️ 缺口超时，跳过 id=" + from + ".." + (to - 1) + ", waited=" + waited + "ms");
+        if (listener != null) listener.onGapSkipped(from, to - 1, waited);
+
+        if (playbackMode == PlaybackMode.STREAMING) {
+            pumpStreaming();
+        } else {
+            playNextIfReady();
+        }
+    }
+
+    // ===== 预取（look-ahead） =====
+
+    /** MEDIA_PLAYER 模式：在后台 prepare expectedNextId+1 .. +lookAhead；流式模式：提前解码窗口内的任务 */
+    private void schedulePrefetch() {
+        if (lookAhead <= 0) return;
+        if (playbackMode == PlaybackMode.STREAMING) {
+            for (int id = expectedNextId; id <= expectedNextId + lookAhead; id++) {
+                AudioTask t = taskMap.get(id);
+                if (t != null && t.decoded == null) submitDecode(t);
+            }
+            return;
+        }
+        for (int id = expectedNextId + 1; id <= expectedNextId + lookAhead; id++) {
+            AudioTask t = taskMap.get(id);
+            if (t == null || t.prefetchState != PREFETCH_NONE) continue;
+            t.prefetchState = PREFETCH_RUNNING;
+            final int gen = generation;
+            prefetchExecutor().execute(() -> prepareAhead(t, gen));
         }
     }
 
+    /** 后台线程：同步 prepare，完成后回到 handler 线程登记 */
+    private void prepareAhead(AudioTask task, int gen) {
+        MediaPlayer mp = null;
+        try {
+            mp = newMediaPlayer();
+            attachSource(mp, task);
+            mp.prepare();
+            stats.mark(task.id, PlaybackStats.PREPARED, SystemClock.elapsedRealtime());
+        } catch (Throwable t) {
+            Log.w(TAG, "预取失败 id=" + task.id + ": " + t.getMessage());
+            if (mp != null) {
+                try { mp.release(); } catch (Throwable ignored) {}
+                mp = null;
+            }
+            synchronized (this) {
+                releaseTaskFile(task);
+            }
+        }
+        final MediaPlayer ready = mp;
+        handler.post(() -> onPrefetched(task, ready, gen));
+    }
+
+    private synchronized void onPrefetched(AudioTask task, MediaPlayer ready, int gen) {
+        task.prefetchState = ready != null ? PREFETCH_READY : PREFETCH_FAILED;
+        boolean owned = task.startWhenReady || taskMap.get(task.id) == task;
+        if (gen != generation || !owned) {
+            // 任务已被 clear：丢弃预取结果
+            if (ready != null) {
+                try { ready.release(); } catch (Throwable ignored) {}
+            }
+            releaseTaskFile(task);
+            return;
+        }
+        task.prepared = ready;
+        if (task.startWhenReady) {
+            task.startWhenReady = false;
+            currentTask = null; // 避免 startPlayTask 内的 stopInternal 释放刚预取好的播放器
+            startPlayTask(task);
+            return;
+        }
+        chainNext();
+    }
+
+    /** 当前播放器在播、下一个 ID 已预取完成时，交给系统无缝接力 */
+    private void chainNext() {
+        if (player == null || currentTask == null || chainedTask != null) return;
+        AudioTask next = taskMap.get(currentTask.id + 1);
+        if (next == null || next.prepared == null) return;
+        try {
+            attachPlaybackListeners(next.prepared, next);
+            player.setNextMediaPlayer(next.prepared);
+            chainedTask = next;
+            Log.i(TAG, "🔗 setNextMediaPlayer: " + currentTask.id + " → " + next.id);
+        } catch (Throwable t) {
+            Log.w(TAG, "setNextMediaPlayer 失败: " + t.getMessage());
+        }
+    }
+
+    /** 释放任务持有的预取结果与临时文件 */
+    private void releasePrefetched(AudioTask task) {
+        if (task.prepared != null) {
+            try { task.prepared.release(); } catch (Throwable ignored) {}
+            task.prepared = null;
+        }
+        if (task.decoded != null) task.decoded.cancel(true);
+        releaseTaskFile(task);
+    }
+
+    private void releaseTaskFile(AudioTask task) {
+        if (task != null && task.tempFile != null) {
+            tempStore.delete(task.tempFile);
+            task.tempFile = null;
+        }
+    }
+
+    private synchronized TaskIngestor ingestor() {
+        if (ingestor == null) ingestor = new TaskIngestor();
+        return ingestor;
+    }
+
+    private ExecutorService prefetchExecutor() {
+        if (prefetchExecutor == null) {
+            prefetchExecutor = Executors.newFixedThreadPool(PREFETCH_THREADS,
+                    r -> new Thread(r, "AudioQueuePrefetch"));
+        }
+        return prefetchExecutor;
+    }
+
+    // ===== 流式模式 =====
+
+    /**
+     * 把已到齐的连续 ID 交给追加线程：解码在预取线程池并行进行，追加线程按提交顺序等待结果写入引擎。
+     * 尚未开播的片段最多 lookAhead 个，限制解码后 PCM 的内存占用。
+     */
+    private void pumpStreaming() {
+        schedulePrefetch();
+        if (!taskMap.contains(expectedNextId)) {
+            Log.i(TAG, "⏳ waiting for id=" + expectedNextId + ", currentTop="
+                    + (taskMap.isEmpty() ? "none" : taskMap.firstId()));
+            return;
+        }
+        isManualClear = false;
+        int ahead = jitterHolding ? Math.max(lookAhead, JITTER_MAX_AHEAD) : Math.max(1, lookAhead);
+        while (streamAhead < ahead && taskMap.contains(expectedNextId)) {
+            final AudioTask task = takeTask(expectedNextId);
+            advanceExpected(expectedNextId + 1);
+            isPlaying = true;
+            pendingDecodes++;
+            streamAhead++;
+            if (task.decoded == null) submitDecode(task);
+            final int gen = generation;
+            appendExecutor().execute(() -> appendDecoded(task, gen));
+        }
+        schedulePrefetch();
+    }
+
+    private void submitDecode(AudioTask task) {
+        task.decoded = prefetchExecutor().submit(() -> {
+            DecodedAudio audio = decodeTask(task);
+            stats.mark(task.id, PlaybackStats.READY, SystemClock.elapsedRealtime());
+            return audio;
+        });
+    }
+
+    /** 追加线程：按顺序等待解码结果并追加到引擎 */
+    private void appendDecoded(AudioTask task, int gen) {
+        DecodedAudio audio = null;
+        String error = null;
+        try {
+            audio = task.decoded.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            error = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+            Log.e(TAG, "解码失败 id=" + task.id + ": " + error);
+        } catch (InterruptedException | CancellationException e) {
+            return;
+        }
+
+        synchronized (this) {
+            if (gen != generation) return;
+            pendingDecodes--;
+            if (audio != null) {
+                float gain = takeTaskGain(task.id);
+                streamingEngine().append(source, task.id, audio, 0, gain);
+                timeline.add(task.id, audio.durationMs(), audio).gain = gain;
+                stats.mark(task.id, PlaybackStats.PREPARED, SystemClock.elapsedRealtime());
+                if (jitterHolding) onJitterBuffered(audio);
+                return;
+            }
+            streamAhead--;
+        }
+
+        final String message = error;
+        handler.post(() -> {
+            if (gen != currentGeneration()) return;
+            if (listener != null) listener.onError(String.valueOf(task.id), message);
+            synchronized (AudioQueuePlayer.this) {
+                pumpStreaming();
+            }
+            onStreamingDrained(gen);
+        });
+    }
+
+    /** 流式解码：先查解码缓存，未命中再解码并写入缓存 */
+    private DecodedAudio decodeTask(AudioTask task) throws IOException {
+        DecodedAudioCache cache = decodedCache;
+        String key = task.cacheKey;
+        if (cache != null && key != null) {
+            DecodedAudio hit = cache.get(key);
+            if (hit != null) {
+                Log.i(TAG, "🗃️ 解码缓存命中 id=" + task.id);
+                return hit;
+            }
+        }
+        DecodedAudio audio = decodeUncached(task);
+        if (cache != null && key != null) cache.put(key, audio);
+        return audio;
+    }
+
+    private DecodedAudio decodeUncached(AudioTask task) throws IOException {
+        byte[] data = task.data;
+        if (pcmSampleRate > 0) {
+            byte[] pcm = data != null ? data : TaskIngestor.readFile(task.path);
+            return DecodedAudio.fromPcm16(pcm, pcmSampleRate, pcmChannels);
+        }
+        if (data == null) {
+            return AudioDecoder.decode(task.path);
+        }
+        if (useInMemorySource()) {
+            return AudioDecoder.decode(new ByteArrayMediaDataSource(data));
+        }
+        File tmp = tempStore.write(data);
+        try {
+            return AudioDecoder.decode(tmp.getAbsolutePath());
+        } finally {
+            tempStore.delete(tmp);
+        }
+    }
+
+    private void notifyStart(int id, long at) {
+        synchronized (this) {
+            if (id <= replayThroughId) {
+                // seek 后的重放：只发事件，不计入统计
+                if (listener != null) listener.onStart(String.valueOf(id), taskMap.size());
+                return;
+            }
+            highestStartedId = id;
+            if (playbackMode == PlaybackMode.MEDIA_PLAYER && player != null) {
+                timeline.add(id, Math.max(0, player.getDuration()), null);
+            }
+        }
+        stats.onStarted(id, at);
+        if (listener != null) listener.onStart(String.valueOf(id), getQueueSize());
+    }
+
+    private void notifyComplete(int id, long at) {
+        synchronized (this) {
+            // 播完的片段只保留最近 seekHistoryMs 的 PCM 供向回 seek
+            PlaybackTimeline.Entry e = timeline.find(id);
+            if (e != null) timeline.dropAudioBefore(e.endMs() - seekHistoryMs);
+            if (id <= highestCompletedId) {
+                if (listener != null) listener.onComplete(String.valueOf(id), taskMap.size());
+                return;
+            }
+            highestCompletedId = id;
+        }
+        PlaybackStats.TaskTiming timing = stats.onCompleted(id, at);
+        if (listener != null) {
+            listener.onComplete(String.valueOf(id), getQueueSize());
+            if (timing != null) listener.onTaskMetrics(timing);
+        }
+    }
+
+    /** 内容键只在启用缓存且为流式模式时计算（MEDIA_PLAYER 模式由播放器内部解码，没有 PCM 可缓存） */
+    private String cacheKeyFor(byte[] data, String path) {
+        if (decodedCache == null || playbackMode != PlaybackMode.STREAMING) return null;
+        int rate = pcmSampleRate;
+        String variant = rate > 0 ? "pcm:" + rate + "x" + pcmChannels : null;
+        return data != null ? DecodedAudioCache.keyFor(data, variant)
+                : DecodedAudioCache.keyFor(new File(path), variant);
+    }
+
+    /** 延迟统计（各阶段滚动分位数） */
+    public PlaybackStats getStats() { return stats; }
+
+    /** 内存数据源需要 API 23+；更低版本或手动关闭时走落盘兜底 */
+    private boolean useInMemorySource() {
+        return inMemorySource && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    /** 引擎播完所有已解码片段：若后续没有待解码/待播任务，自然结束发 queueEmpty */
+    private synchronized void onStreamingDrained(int gen) {
+        if (gen != generation || pendingDecodes > 0) return;
+        if (taskMap.contains(expectedNextId)) return;
+        isPlaying = false;
+        if (taskMap.isEmpty() && !isManualClear) {
+            if (listener != null) listener.onQueueEmpty();
+            Log.i(TAG, "🎉 queue empty (stream drained)");
+        }
+        armGapTimer();
+    }
+
+    /**
+     * 引擎播空：开启抖动缓冲时记为一次（待结算的）欠载，并重新蓄水。
+     * 只有尚未开播的片段都还在解码时才蓄水；已有片段追加进引擎说明播放已续上，不能再拦住
+     */
+    private synchronized void onEngineDrained(int gen) {
+        if (gen != generation) return;
+        if (jitter != null) {
+            if (drainedAt < 0) drainedAt = SystemClock.elapsedRealtime();
+            if (streamAhead == pendingDecodes) setJitterHold(true);
+        }
+        onStreamingDrained(gen);
+    }
+
+    private void setJitterHold(boolean hold) {
+        jitterHolding = hold;
+        jitterHeldMs = 0;
+        jitterHoldSince = -1;
+        handler.removeCallbacks(jitterTimeout);
+        if (engine != null && source != null) engine.setHeld(source, hold);
+    }
+
+    /** 蓄水期间追加了一个片段：够目标时长就放行；第一个片段追加时开始计时，最多等 targetMs */
+    private void onJitterBuffered(DecodedAudio audio) {
+        long target = jitter.targetMs();
+        if (jitterHoldSince < 0) {
+            jitterHoldSince = SystemClock.elapsedRealtime();
+            handler.postDelayed(jitterTimeout, target);
+        }
+        jitterHeldMs += (long) (audio.durationMs() / playbackSpeed);
+        if (jitterHeldMs >= target) {
+            Log.i(TAG, "🪣 蓄水完成 " + jitterHeldMs + "ms / target=" + target + "ms");
+            setJitterHold(false);
+        }
+    }
+
+    private synchronized void onJitterTimeout() {
+        if (!jitterHolding) return;
+        Log.i(TAG, "🪣 蓄水超时，已蓄 " + jitterHeldMs + "ms，直接起播");
+        setJitterHold(false);
+    }
+
+    /** 片段开播：欠载后的第一个片段按卡顿时长增大目标并上报；否则视为一次顺利衔接 */
+    private void onJitterSegmentStart(long at) {
+        if (jitter == null) return;
+        if (drainedAt < 0) {
+            jitter.onSegmentPlayed();
+            return;
+        }
+        long stall = at - drainedAt;
+        drainedAt = -1;
+        // 间隔过长视为两轮输入之间的自然停顿，而不是欠载
+        if (stall > JitterBuffer.STREAM_BREAK_MS) return;
+        jitter.onUnderrun(stall);
+        Log.w(TAG, "🕳️ 欠载 #" + jitter.underruns() + "，卡顿 " + stall + "ms，target=" + jitter.targetMs() + "ms");
+        if (listener != null) listener.onUnderrun(jitter.underruns(), stall, jitter.targetMs(), jitter.jitterMs());
+    }
+
+    private int currentGeneration() { return generation; }
+
+    private ExecutorService appendExecutor() {
+        if (appendExecutor == null) {
+            appendExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "AudioQueueAppender"));
+        }
+        return appendExecutor;
+    }
+
+    private StreamingAudioEngine streamingEngine() {
+        if (engine == null) {
+            engine = sharedOutput != null ? sharedOutput : new StreamingAudioEngine(audioAttributes);
+            source = new StreamSource(new StreamSource.Callback() {
+                @Override public void onSegmentStart(int id) {
+                    final int gen = currentGeneration();
+                    final int epoch = seekEpoch;
+                    final long at = SystemClock.elapsedRealtime();
+                    handler.post(() -> {
+                        if (gen != currentGeneration() || epoch != seekEpoch) return;
+                        Log.i(TAG, "▶️ 流式片段开始，ID=" + id);
+                        synchronized (AudioQueuePlayer.this) {
+                            streamAhead--;
+                            onJitterSegmentStart(at);
+                            pumpStreaming();
+                        }
+                        notifyStart(id, at);
+                    });
+                }
+                @Override public void onSegmentProgress(int id, long positionMs, long durationMs) {
+                    final int epoch = seekEpoch;
+                    handler.post(() -> {
+                        long global;
+                        long total;
+                        synchronized (AudioQueuePlayer.this) {
+                            if (epoch != seekEpoch) return;
+                            global = timeline.positionOf(id, positionMs);
+                            total = timeline.durationMs();
+                        }
+                        if (listener != null) listener.onProgress(String.valueOf(id), positionMs, durationMs, global, total);
+                    });
+                }
+                @Override public void onSegmentComplete(int id) {
+                    final int gen = currentGeneration();
+                    final int epoch = seekEpoch;
+                    final long at = SystemClock.elapsedRealtime();
+                    handler.post(() -> {
+                        if (gen != currentGeneration() || epoch != seekEpoch) return;
+                        Log.i(TAG, "✅ 流式片段完成，ID=" + id);
+                        notifyComplete(id, at);
+                    });
+                }
+                @Override public void onDrained() {
+                    final int gen = currentGeneration();
+                    final int epoch = seekEpoch;
+                    handler.post(() -> {
+                        if (epoch == seekEpoch) onEngineDrained(gen);
+                    });
+                }
+                @Override public void onError(int id, String message) {
+                    handler.post(() -> {
+                        if (listener != null) listener.onError(String.valueOf(id), message);
+                    });
+                }
+            });
+            source.volume = volume;
+            source.progressIntervalMs = progressIntervalMs;
+            source.speed = playbackSpeed;
+            source.pitch = playbackPitch;
+            source.held = jitterHolding;
+            source.paused = paused;
+            source.crossfadeMs = crossfadeMs;
+            source.fadeMs = fadeMs;
+            engine.addSource(source);
+        }
+        return engine;
+    }
+
+    private void releaseStreaming() {
+        if (engine != null) {
+            engine.removeSource(source);
+            if (engine != sharedOutput) engine.release();
+            engine = null;
+            source = null;
+        }
+        if (appendExecutor != null) {
+            appendExecutor.shutdownNow();
+            appendExecutor = null;
+        }
+        pendingDecodes = 0;
+        streamAhead = 0;
+    }
+
     /** 外部 STOP：不触发 queueEmpty（手动语义） */
     public synchronized void clear() {
         isManualClear = true;
         stopInternal();
-        taskMap.clear();
+        generation++;
+        pendingDecodes = 0;
+        streamAhead = 0;
+        if (engine != null) engine.flush(source);
+        drainedAt = -1;
+        setJitterHold(jitter != null);
+        // clear 同时解除暂停：之后入队的任务直接开播
+        paused = false;
+        if (engine != null && source != null) engine.setPaused(source, false);
+        resetTimeline();
+        taskGains.clear();
+        stats.resetTasks();
+        taskMap.forEach((id, t) -> releasePrefetched(t));
+        queuedBytes = 0;
+        spillingBytes = 0;
+        handler.removeCallbacks(gapTimeout);
+        gapArmed = false;
         // 重置为起点等待
         expectedNextId = startPlayId;
+        taskMap.reset(startPlayId);
         isPlaying = false;
         Log.i(TAG, "🧹 cleared. reset expectedNextId=" + expectedNextId);
     }
 
     public synchronized void release() {
         stopInternal();
+        generation++;
+        releaseStreaming();
+        taskMap.forEach((id, t) -> releasePrefetched(t));
         taskMap.clear();
+        queuedBytes = 0;
+        spillingBytes = 0;
+        handler.removeCallbacks(gapTimeout);
+        gapArmed = false;
+        if (spillExecutor != null) {
+            spillExecutor.shutdownNow();
+            spillExecutor = null;
+        }
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+        if (ingestor != null) {
+            ingestor.shutdown();
+            ingestor = null;
+        }
+        handler.removeCallbacksAndMessages(null);
+        playbackThread.quitSafely();
         Log.i(TAG, "🧩 released");
     }
 
@@ -290,23 +1576,34 @@ public class AudioQueuePlayer {
             } catch (Throwable ignored) {}
             player = null;
         }
+        playerStarted = false;
+        startOnResume = false;
+        if (currentTask != null) {
+            releasePrefetched(currentTask);
+            currentTask = null;
+        }
+        chainedTask = null;
     }
 
     // 进度上报
     private final Runnable tick = new Runnable() {
         @Override
         public void run() {
-            if (player != null && player.isPlaying()) {
+            synchronized (AudioQueuePlayer.this) {
+                if (player == null || currentTask == null || !player.isPlaying()) return;
                 long pos = player.getCurrentPosition();
                 long dur = player.getDuration();
-                if (listener != null) listener.onProgress("playing", pos, dur);
-                handler.postDelayed(this, PROGRESS_INTERVAL);
+                long global = timeline.positionOf(currentTask.id, pos);
+                if (listener != null) {
+                    listener.onProgress(String.valueOf(currentTask.id), pos, dur, global, timeline.durationMs());
+                }
             }
+            if (progressIntervalMs > 0) handler.postDelayed(this, progressIntervalMs);
         }
     };
 
     private void startProgress() {
-        handler.post(tick);
+        if (progressIntervalMs > 0) handler.post(tick);
     }
 
     private void stopProgress() {
@@ -0,0 +1,34 @@
+package com.example.shuke_audio_play;
+
+import android.annotation.TargetApi;
+import android.media.MediaDataSource;
+import android.os.Build;
+
+/**
+ * 📦 内存数据源：直接把解码后的字节交给 MediaPlayer / MediaExtractor，不落盘（API 23+）
+ */
+@TargetApi(Build.VERSION_CODES.M)
+final class ByteArrayMediaDataSource extends MediaDataSource {
+
+    private final byte[] data;
+
+    ByteArrayMediaDataSource(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public int readAt(long position, byte[] buffer, int offset, int size) {
+        if (position >= data.length) return -1;
+        int n = (int) Math.min(size, data.length - position);
+        System.arraycopy(data, (int) position, buffer, offset, n);
+        return n;
+    }
+
+    @Override
+    public long getSize() {
+        return data.length;
+    }
+
+    @Override
+    public void close() {}
+}
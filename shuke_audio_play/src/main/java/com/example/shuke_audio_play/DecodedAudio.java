@@ -0,0 +1,72 @@
+package com.example.shuke_audio_play;
+
+/**
+ * 🎼 解码后的 PCM 片段（16bit 交错采样）
+ * - samples：交错排列的 PCM16 采样（声道数 = channels）
+ * - 提供字节 → PCM 转换与简单的采样率/声道转换，供流式播放引擎统一输出格式
+ */
+final class DecodedAudio {
+
+    final short[] samples;
+    final int sampleRate;
+    final int channels;
+
+    DecodedAudio(short[] samples, int sampleRate, int channels) {
+        this.samples = samples;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    /** 帧数（一帧 = 每个声道各一个采样） */
+    int frames() {
+        return channels > 0 ? samples.length / channels : 0;
+    }
+
+    long durationMs() {
+        return sampleRate > 0 ? frames() * 1000L / sampleRate : 0;
+    }
+
+    /** 小端 PCM16 字节 → DecodedAudio（原始 PCM 输入时使用，不经过 MediaCodec） */
+    static DecodedAudio fromPcm16(byte[] data, int sampleRate, int channels) {
+        int count = data.length / 2;
+        short[] out = new short[count - count % Math.max(1, channels)];
+        for (int i = 0, j = 0; i < out.length; i++, j += 2) {
+            out[i] = (short) ((data[j] & 0xFF) | (data[j + 1] << 8));
+        }
+        return new DecodedAudio(out, sampleRate, channels);
+    }
+
+    /** 转换为目标格式；格式一致时直接返回自身 */
+    DecodedAudio convertTo(int dstRate, int dstChannels) {
+        if (dstRate == sampleRate && dstChannels == channels) return this;
+
+        int srcFrames = frames();
+        int dstFrames = (int) ((long) srcFrames * dstRate / sampleRate);
+        short[] out = new short[dstFrames * dstChannels];
+        // 线性插值重采样；声道不一致时按“下混取均值 / 上混复制”处理
+        double step = (double) sampleRate / dstRate;
+        for (int f = 0; f < dstFrames; f++) {
+            double pos = f * step;
+            int i0 = (int) pos;
+            int i1 = Math.min(i0 + 1, srcFrames - 1);
+            double frac = pos - i0;
+            for (int c = 0; c < dstChannels; c++) {
+                double a = sampleAt(i0, c, dstChannels);
+                double b = sampleAt(i1, c, dstChannels);
+                out[f * dstChannels + c] = (short) Math.round(a + (b - a) * frac);
+            }
+        }
+        return new DecodedAudio(out, dstRate, dstChannels);
+    }
+
+    private double sampleAt(int frame, int dstChannel, int dstChannels) {
+        int base = frame * channels;
+        if (channels == dstChannels) return samples[base + dstChannel];
+        if (dstChannels == 1) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) sum += samples[base + c];
+            return (double) sum / channels;
+        }
+        return samples[base + Math.min(dstChannel, channels - 1)];
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.shuke_audio_play;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 🗃️ 解码结果缓存：按内容哈希缓存 PCM，重复播放的提示音无需再次解码
+ * - 内存层：LinkedHashMap 访问顺序 LRU，按 PCM 字节数限额
+ * - 磁盘层（可选）：cacheDir/pcm_cache 下每个条目一个文件，按最后访问时间淘汰
+ * - 缓存的 DecodedAudio 在多个任务间共享，使用方不得原地修改 samples
+ * - 线程安全；磁盘读写在调用线程（解码线程）完成
+ */
+final class DecodedAudioCache {
+
+    private static final String DIR_NAME = "pcm_cache";
+    private static final String SUFFIX = ".pcm";
+
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final File dir;
+
+    private final LinkedHashMap<String, DecodedAudio> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+
+    /** maxDiskBytes <= 0 或 cacheDir 为 null 时不启用磁盘层 */
+    DecodedAudioCache(long maxMemoryBytes, long maxDiskBytes, File cacheDir) {
+        this.maxMemoryBytes = Math.max(0, maxMemoryBytes);
+        this.maxDiskBytes = cacheDir != null ? Math.max(0, maxDiskBytes) : 0;
+        this.dir = this.maxDiskBytes > 0 ? new File(cacheDir, DIR_NAME) : null;
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("cannot create " + dir);
+        }
+    }
+
+    /** 内容键：数据的 SHA-1；variant 区分同一数据的不同解释方式（如原始 PCM 的采样率/声道） */
+    static String keyFor(byte[] data, String variant) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(data);
+            if (variant != null) md.update(variant.getBytes("UTF-8"));
+            byte[] d = md.digest();
+            StringBuilder sb = new StringBuilder(d.length * 2);
+            for (byte b : d) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** 本地文件键：按路径 + 大小 + 修改时间，避免为取键而整读文件 */
+    static String keyFor(File file, String variant) {
+        String id = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        try {
+            return keyFor(id.getBytes("UTF-8"), variant);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    DecodedAudio get(String key) {
+        synchronized (this) {
+            DecodedAudio hit = memory.get(key);
+            if (hit != null) {
+                memoryHits++;
+                return hit;
+            }
+        }
+        DecodedAudio fromDisk = readDisk(key);
+        synchronized (this) {
+            if (fromDisk == null) {
+                misses++;
+                return null;
+            }
+            diskHits++;
+            putMemoryLocked(key, fromDisk);
+            return fromDisk;
+        }
+    }
+
+    void put(String key, DecodedAudio audio) {
+        synchronized (this) {
+            putMemoryLocked(key, audio);
+        }
+        writeDisk(key, audio);
+    }
+
+    synchronized void clearMemory() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    synchronized long getMemoryHits() { return memoryHits; }
+
+    synchronized long getDiskHits() { return diskHits; }
+
+    synchronized long getMisses() { return misses; }
+
+    synchronized long getMemoryBytes() { return memoryBytes; }
+
+    synchronized int getEntryCount() { return memory.size(); }
+
+    long getDiskBytes() {
+        if (dir == null) return 0;
+        long total = 0;
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) total += f.length();
+        return total;
+    }
+
+    private void putMemoryLocked(String key, DecodedAudio audio) {
+        long size = bytesOf(audio);
+        if (size > maxMemoryBytes) return;  // 超过整个预算的条目只进磁盘层
+        DecodedAudio old = memory.put(key, audio);
+        if (old != null) memoryBytes -= bytesOf(old);
+        memoryBytes += size;
+        Iterator<Map.Entry<String, DecodedAudio>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Map.Entry<String, DecodedAudio> eldest = it.next();
+            memoryBytes -= bytesOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long bytesOf(DecodedAudio audio) {
+        return (long) audio.samples.length * 2;
+    }
+
+    // ===== 磁盘层：文件格式 = int 采样率 + int 声道 + int 样本数 + PCM16 样本 =====
+
+    private DecodedAudio readDisk(String key) {
+        if (dir == null) return null;
+        File f = new File(dir, key + SUFFIX);
+        if (!f.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            int rate = in.readInt();
+            int channels = in.readInt();
+            int n = in.readInt();
+            if (rate <= 0 || channels <= 0 || n < 0 || (long) n * 2 + 12 != f.length()) {
+                f.delete();
+                return null;
+            }
+            byte[] raw = new byte[n * 2];
+            in.readFully(raw);
+            short[] samples = new short[n];
+            for (int i = 0; i < n; i++) {
+                samples[i] = (short) ((raw[2 * i] & 0xFF) | (raw[2 * i + 1] << 8));
+            }
+            f.setLastModified(System.currentTimeMillis());
+            return new DecodedAudio(samples, rate, channels);
+        } catch (IOException e) {
+            f.delete();
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, DecodedAudio audio) {
+        if (dir == null) return;
+        long size = bytesOf(audio) + 12;
+        if (size > maxDiskBytes) return;
+        File f = new File(dir, key + SUFFIX);
+        if (f.isFile()) return;
+        File tmp = new File(dir, key + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(audio.sampleRate);
+            out.writeInt(audio.channels);
+            out.writeInt(audio.samples.length);
+            byte[] raw = new byte[audio.samples.length * 2];
+            for (int i = 0; i < audio.samples.length; i++) {
+                short s = audio.samples[i];
+                raw[2 * i] = (byte) s;
+                raw[2 * i + 1] = (byte) (s >> 8);
+            }
+            out.write(raw);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(f)) {
+            tmp.delete();
+            return;
+        }
+        trimDisk(f);
+    }
+
+    /** 磁盘层超限时按最后访问时间从旧到新删除；刚写入的 keep 保留（文件时间精度可能只有秒级） */
+    private synchronized void trimDisk(File keep) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) return;
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= maxDiskBytes) return;
+        long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(modified[a], modified[b]));
+        for (Integer i : order) {
+            if (total <= maxDiskBytes) break;
+            if (files[i].equals(keep)) continue;
+            total -= files[i].length();
+            files[i].delete();
+        }
+    }
+}
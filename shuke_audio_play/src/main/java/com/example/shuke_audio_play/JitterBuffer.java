@@ -0,0 +1,72 @@
+package com.example.shuke_audio_play;
+
+/**
+ * 🪣 自适应抖动缓冲的目标时长估计（纯计算，无线程/Android 依赖）
+ * - 到达抖动：相邻任务到达间隔相对其滑动均值的平均偏差（RFC 3550 式 1/16 平滑）
+ * - 目标 = minMs + JITTER_FACTOR × 抖动 + 欠载补偿，限制在 [minMs, maxMs]
+ * - 欠载补偿：每次欠载按卡顿时长增加；之后每顺利播放一个片段衰减 DECAY，网络变好时目标逐渐回落
+ * - 间隔超过 STREAM_BREAK_MS 视为新一轮输入（两次说话之间），不计入抖动
+ * - 非线程安全，由 AudioQueuePlayer 在对象锁内调用
+ */
+final class JitterBuffer {
+
+    static final long DEFAULT_INITIAL_MS = 300L;
+    static final long DEFAULT_MIN_MS = 60L;
+    static final long DEFAULT_MAX_MS = 2000L;
+    /** 间隔超过该值视为输入中断，不更新抖动 */
+    static final long STREAM_BREAK_MS = 3000L;
+
+    private static final double JITTER_FACTOR = 2.0;
+    private static final double DECAY = 0.9;
+
+    private final long minMs;
+    private final long maxMs;
+
+    private long lastArrival = -1;
+    private double meanInterval = -1;
+    private double jitter;
+    private double boost;
+    private int underruns;
+
+    JitterBuffer(long initialMs, long minMs, long maxMs) {
+        this.minMs = Math.max(0, minMs);
+        this.maxMs = Math.max(this.minMs, maxMs);
+        // 还没有观测数据时用 initialMs 作为起始目标
+        this.boost = Math.max(0, Math.min(this.maxMs, initialMs) - this.minMs);
+    }
+
+    /** 记录一个任务的到达时刻（毫秒，单调时钟） */
+    void onArrival(long now) {
+        long last = lastArrival;
+        lastArrival = now;
+        if (last < 0) return;
+        long interval = now - last;
+        if (interval < 0 || interval > STREAM_BREAK_MS) return;
+        if (meanInterval < 0) {
+            meanInterval = interval;
+            return;
+        }
+        meanInterval += (interval - meanInterval) / 8.0;
+        jitter += (Math.abs(interval - meanInterval) - jitter) / 16.0;
+    }
+
+    /** 发生欠载：卡顿 stallMs 后才续上；目标至少增加 minMs，避免卡顿极短时几乎不增长 */
+    void onUnderrun(long stallMs) {
+        underruns++;
+        boost = Math.min(maxMs, boost + Math.max(stallMs, Math.max(minMs, 20L)));
+    }
+
+    /** 一个片段顺利开播（未经欠载） */
+    void onSegmentPlayed() {
+        boost *= DECAY;
+    }
+
+    long targetMs() {
+        double t = minMs + JITTER_FACTOR * jitter + boost;
+        return Math.max(minMs, Math.min(maxMs, Math.round(t)));
+    }
+
+    long jitterMs() { return Math.round(jitter); }
+
+    int underruns() { return underruns; }
+}
@@ -0,0 +1,42 @@
+package com.example.shuke_audio_play;
+
+/**
+ * 🎛️ 输出 DSP 的增益包络：逐帧增益 = 片段包络 × 外部权重，写入或叠加到输出缓冲
+ * - 片段包络：前 rampLen 帧从 rampFrom 线性过渡到 gain（淡入 / 相邻片段增益变化的短斜坡），之后恒为 gain
+ * - 外部权重：线性 w0 → w0 + wStep × frames，用于交叉淡化与 clear 淡出
+ * - 无状态、不分配内存，只做浮点乘加与饱和截断，可在音频渲染线程逐缓冲调用；增益全为 1 时直接 arraycopy
+ */
+final class PcmEnvelope {
+
+    private PcmEnvelope() {}
+
+    /**
+     * 把 src 从 srcFrame 起的 frames 帧（交错 PCM16）乘以增益后写入 dst 的 dstFrame 处；mix 为 true 时叠加到 dst 原有数据上。
+     * envPos 为第一帧在片段包络中的位置（帧）。
+     */
+    static void apply(short[] src, int srcFrame, short[] dst, int dstFrame, int frames, int channels, boolean mix,
+                      int envPos, int rampLen, float rampFrom, float gain, float w0, float wStep) {
+        if (frames <= 0) return;
+        if (!mix && envPos >= rampLen && gain == 1f && w0 == 1f && wStep == 0f) {
+            System.arraycopy(src, srcFrame * channels, dst, dstFrame * channels, frames * channels);
+            return;
+        }
+        int s = srcFrame * channels;
+        int d = dstFrame * channels;
+        float rampStep = rampLen > 0 ? (gain - rampFrom) / rampLen : 0f;
+        for (int i = 0; i < frames; i++) {
+            int k = envPos + i;
+            float g = k < rampLen ? rampFrom + rampStep * k : gain;
+            g *= w0 + wStep * i;
+            for (int c = 0; c < channels; c++) {
+                int v = Math.round(src[s++] * g);
+                if (mix) v += dst[d];
+                dst[d++] = clamp(v);
+            }
+        }
+    }
+
+    static short clamp(int v) {
+        return (short) (v > Short.MAX_VALUE ? Short.MAX_VALUE : (v < Short.MIN_VALUE ? Short.MIN_VALUE : v));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.shuke_audio_play;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ⏱️ 播放延迟统计：记录每个任务各阶段的时间点，并维护滚动的 p50/p95/p99
+ * - 阶段：入队 → 数据解码完成 → 数据源就绪 → 准备完成 → 首帧开播 → 播放完成
+ * - 片段间隔：上一个 ID 完成到下一个 ID 开播的时间（只统计相邻 ID）
+ * - 时间由调用方传入（elapsedRealtime 毫秒），本类不依赖 Android，线程安全
+ */
+final class PlaybackStats {
+
+    static final int ENQUEUED = 0;
+    static final int DECODED = 1;
+    static final int READY = 2;
+    static final int PREPARED = 3;
+    static final int STARTED = 4;
+    static final int COMPLETED = 5;
+    static final String[] STAGE_NAMES = { "enqueued", "decoded", "ready", "prepared", "started", "completed" };
+
+    /** 最多跟踪的未完成任务数：被丢弃/跳过的任务不会完成，靠淘汰最旧条目防止泄漏 */
+    private static final int MAX_TRACKED = 256;
+    private static final int WINDOW = 256;
+
+    /** 单个任务的阶段时间点；0 表示未到达该阶段 */
+    static final class TaskTiming {
+        final int id;
+        final long[] at = new long[STAGE_NAMES.length];
+        /** 与上一个相邻 ID 之间的静默间隔，-1 表示不适用 */
+        long gapMs = -1;
+
+        TaskTiming(int id) {
+            this.id = id;
+        }
+
+        /** from → to 阶段耗时，任一阶段缺失时返回 -1 */
+        long between(int from, int to) {
+            return at[from] > 0 && at[to] > 0 ? at[to] - at[from] : -1;
+        }
+    }
+
+    /** 定长环形样本窗口，快照时排序取分位数 */
+    static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+        private long total;
+
+        LatencyWindow(int capacity) {
+            samples = new long[capacity];
+        }
+
+        void add(long v) {
+            if (v < 0) return;
+            samples[next] = v;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+            total++;
+        }
+
+        /** { total, p50, p95, p99, max }；窗口为空时分位数为 -1 */
+        long[] summary() {
+            if (count == 0) return new long[] { total, -1, -1, -1, -1 };
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return new long[] { total, percentile(sorted, 50), percentile(sorted, 95),
+                    percentile(sorted, 99), sorted[count - 1] };
+        }
+
+        /** 最近秩法 */
+        static long percentile(long[] sorted, int p) {
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+    }
+
+    private final Map<Integer, TaskTiming> tasks = new LinkedHashMap<Integer, TaskTiming>(16, 0.75f, false) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Integer, TaskTiming> eldest) {
+            return size() > MAX_TRACKED;
+        }
+    };
+    private final LatencyWindow enqueueToStart = new LatencyWindow(WINDOW);
+    private final LatencyWindow decode = new LatencyWindow(WINDOW);
+    private final LatencyWindow ready = new LatencyWindow(WINDOW);
+    private final LatencyWindow prepare = new LatencyWindow(WINDOW);
+    private final LatencyWindow startup = new LatencyWindow(WINDOW);
+    private final LatencyWindow gap = new LatencyWindow(WINDOW);
+    private int lastCompletedId = Integer.MIN_VALUE;
+    private long lastCompletedAt;
+    private long completed;
+
+    /** 记录阶段时间点；同一阶段只记第一次 */
+    synchronized void mark(int id, int stage, long now) {
+        TaskTiming t = tasks.get(id);
+        if (t == null) {
+            t = new TaskTiming(id);
+            tasks.put(id, t);
+        }
+        if (t.at[stage] == 0) t.at[stage] = now;
+    }
+
+    /** 首帧开播：计入入队→开播延迟，以及与上一个相邻 ID 的间隔 */
+    synchronized void onStarted(int id, long now) {
+        mark(id, STARTED, now);
+        TaskTiming t = tasks.get(id);
+        if (lastCompletedId != Integer.MIN_VALUE && id == lastCompletedId + 1) {
+            t.gapMs = Math.max(0, now - lastCompletedAt);
+            gap.add(t.gapMs);
+        }
+        enqueueToStart.add(t.between(ENQUEUED, STARTED));
+        prepare.add(t.between(READY, PREPARED));
+        startup.add(t.between(PREPARED, STARTED));
+    }
+
+    /** 播放完成：返回该任务的完整时间线并停止跟踪；未跟踪的任务返回 null */
+    synchronized TaskTiming onCompleted(int id, long now) {
+        TaskTiming t = tasks.remove(id);
+        lastCompletedId = id;
+        lastCompletedAt = now;
+        completed++;
+        if (t == null) return null;
+        if (t.at[COMPLETED] == 0) t.at[COMPLETED] = now;
+        decode.add(t.between(ENQUEUED, DECODED));
+        ready.add(t.between(DECODED, READY));
+        return t;
+    }
+
+    /** clear：丢弃未完成任务，下一个开播不计入间隔；滚动分位数保留 */
+    synchronized void resetTasks() {
+        tasks.clear();
+        lastCompletedId = Integer.MIN_VALUE;
+    }
+
+    /** 指标名 → { total, p50, p95, p99, max }（毫秒） */
+    synchronized Map<String, long[]> summaries() {
+        Map<String, long[]> out = new LinkedHashMap<>();
+        out.put("enqueueToStart", enqueueToStart.summary());
+        out.put("decode", decode.summary());
+        out.put("ready", ready.summary());
+        out.put("prepare", prepare.summary());
+        out.put("startup", startup.summary());
+        out.put("gap", gap.summary());
+        return out;
+    }
+
+    synchronized long completedCount() { return completed; }
+}
@@ -0,0 +1,115 @@
+package com.example.shuke_audio_play;
+
+import java.util.ArrayList;
+
+/**
+ * 🧭 有序队列的全局时间轴：按播放顺序把各片段时长首尾相接
+ * - 每个条目记录 ID、在时间轴上的起点与时长；位置单位为媒体时间（毫秒，不受变速影响）
+ * - 流式模式同时保留片段的解码结果，seek 时直接重新追加，无需重新解码；
+ *   播放点之前超出历史窗口的 PCM 会被释放，可定位范围 = [最早仍保留 PCM 的片段, 时间轴末尾]
+ * - ID 在一轮播放内单调递增，按 ID 二分查找；条目数超过 MAX_ENTRIES 时丢弃最旧条目（位置仍是绝对值）
+ * - 非线程安全，由 AudioQueuePlayer 在对象锁内调用
+ */
+final class PlaybackTimeline {
+
+    static final class Entry {
+        final int id;
+        final long startMs;
+        final long durationMs;
+        /** 解码结果；MEDIA_PLAYER 模式或已超出历史窗口时为 null */
+        DecodedAudio audio;
+        /** 片段增益，seek 重新追加时沿用 */
+        float gain = 1f;
+
+        Entry(int id, long startMs, long durationMs, DecodedAudio audio) {
+            this.id = id;
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+            this.audio = audio;
+        }
+
+        long endMs() { return startMs + durationMs; }
+    }
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private long endMs;
+
+    /** 在时间轴末尾追加一个片段 */
+    Entry add(int id, long durationMs, DecodedAudio audio) {
+        Entry e = new Entry(id, endMs, Math.max(0, durationMs), audio);
+        entries.add(e);
+        endMs = e.endMs();
+        if (entries.size() > MAX_ENTRIES) entries.subList(0, entries.size() - MAX_ENTRIES).clear();
+        return e;
+    }
+
+    int size() { return entries.size(); }
+
+    Entry get(int index) { return entries.get(index); }
+
+    /** 时间轴总时长（已知片段之和） */
+    long durationMs() { return endMs; }
+
+    Entry find(int id) {
+        int lo = 0;
+        int hi = entries.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int v = entries.get(mid).id;
+            if (v < id) {
+                lo = mid + 1;
+            } else if (v > id) {
+                hi = mid - 1;
+            } else {
+                return entries.get(mid);
+            }
+        }
+        return null;
+    }
+
+    /** 片段内位置 → 全局位置；片段不在时间轴上时返回 -1 */
+    long positionOf(int id, long offsetMs) {
+        Entry e = find(id);
+        if (e == null) return -1;
+        return e.startMs + Math.max(0, Math.min(e.durationMs, offsetMs));
+    }
+
+    /**
+     * 全局位置 → 所在片段下标，超出范围时取首/尾；
+     * withAudio 为 true 时只在仍保留 PCM 的片段中查找（早于它们的位置落到第一个可用片段）。
+     * 没有可用片段时返回 -1
+     */
+    int indexAt(long ms, boolean withAudio) {
+        int first = 0;
+        if (withAudio) {
+            while (first < entries.size() && entries.get(first).audio == null) first++;
+        }
+        if (first >= entries.size()) return -1;
+        int lo = first;
+        int hi = entries.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (entries.get(mid).startMs <= ms) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /** 释放结束时间早于 ms 的片段的 PCM（保留时长信息） */
+    void dropAudioBefore(long ms) {
+        for (Entry e : entries) {
+            if (e.endMs() > ms) break;
+            e.audio = null;
+        }
+    }
+
+    void reset() {
+        entries.clear();
+        endMs = 0;
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.shuke_audio_play;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 🔁 按 ID 重排的环形缓冲：替代 TreeMap&lt;Integer, T&gt;
+ * - ID 稠密且单调递增（0,1,2,...），槽位 = id &amp; mask，存取 O(1)，无装箱、无树节点分配
+ * - base 为当前可存放的最小 ID（播放器里即 expectedNextId），只能前移
+ * - 容量按 2 的幂自动扩展，但环形部分的 ID 跨度不超过 maxSpan，防止异常 ID 撑爆内存
+ * - 超出 [base, base + maxSpan) 的远端 ID 不拒绝，改存进有序的 TreeMap 溢出区（懒创建，正常流程不分配）；
+ *   base 前移后落入窗口的溢出条目迁回环形部分
+ * - 非线程安全，由调用方加锁
+ */
+final class ReorderBuffer<T> {
+
+    interface Visitor<T> {
+        void visit(int id, T value);
+    }
+
+    static final int DEFAULT_MAX_SPAN = 1 << 16;
+
+    private final int maxSpan;
+    private Object[] slots;
+    private int mask;
+    private int base;
+    /** 环形部分已占用的最大 ID；环形部分为空时为 base - 1 */
+    private int maxId;
+    private int ringSize;
+    private int size;
+    /** ID ≥ base + maxSpan 的条目；为空时为 null */
+    private TreeMap<Integer, T> overflow;
+
+    ReorderBuffer(int initialCapacity) {
+        this(initialCapacity, DEFAULT_MAX_SPAN);
+    }
+
+    ReorderBuffer(int initialCapacity, int maxSpan) {
+        int cap = Integer.highestOneBit(Math.max(2, initialCapacity - 1)) << 1;
+        this.maxSpan = maxSpan;
+        this.slots = new Object[cap];
+        this.mask = cap - 1;
+        this.base = 0;
+        this.maxId = -1;
+    }
+
+    /** 清空并把 base 设为指定 ID */
+    void reset(int newBase) {
+        Arrays.fill(slots, null);
+        ringSize = 0;
+        size = 0;
+        overflow = null;
+        base = newBase;
+        maxId = newBase - 1;
+    }
+
+    void clear() {
+        reset(base);
+    }
+
+    int base() { return base; }
+
+    int size() { return size; }
+
+    boolean isEmpty() { return size == 0; }
+
+    /** id 是否可存放（≥ base）；超出环形窗口的进溢出区 */
+    boolean accepts(int id) {
+        return id >= base;
+    }
+
+    /** id 是否落在环形窗口 [base, base + maxSpan) 内 */
+    boolean inWindow(int id) {
+        long offset = (long) id - base;
+        return offset >= 0 && offset < maxSpan;
+    }
+
+    /** 存入并返回同 ID 的旧值；id 小于 base 时抛 IllegalArgumentException */
+    @SuppressWarnings("unchecked")
+    T put(int id, T value) {
+        if (value == null) throw new NullPointerException("value");
+        if (!accepts(id)) {
+            throw new IllegalArgumentException("id " + id + " < base " + base);
+        }
+        if (!inWindow(id)) {
+            if (overflow == null) overflow = new TreeMap<>();
+            T old = overflow.put(id, value);
+            if (old == null) size++;
+            return old;
+        }
+        if (id - base >= slots.length) grow(id - base + 1);
+        int i = id & mask;
+        T old = (T) slots[i];
+        slots[i] = value;
+        if (old == null) {
+            ringSize++;
+            size++;
+        }
+        if (id > maxId) maxId = id;
+        return old;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        long offset = (long) id - base;
+        if (offset < 0) return null;
+        if (offset >= maxSpan) return overflow != null ? overflow.get(id) : null;
+        if (offset >= slots.length) return null;
+        return (T) slots[id & mask];
+    }
+
+    boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    T remove(int id) {
+        long offset = (long) id - base;
+        if (offset < 0) return null;
+        if (offset >= maxSpan) {
+            if (overflow == null) return null;
+            T old = overflow.remove(id);
+            if (old == null) return null;
+            size--;
+            if (overflow.isEmpty()) overflow = null;
+            return old;
+        }
+        if (offset >= slots.length) return null;
+        int i = id & mask;
+        T old = (T) slots[i];
+        if (old == null) return null;
+        slots[i] = null;
+        ringSize--;
+        size--;
+        if (ringSize == 0) {
+            maxId = base - 1;
+        } else if (id == maxId) {
+            while (slots[maxId & mask] == null) maxId--;
+        }
+        return old;
+    }
+
+    /** 最小的已占用 ID；为空时抛 IllegalStateException */
+    int firstId() {
+        if (size == 0) throw new IllegalStateException("empty");
+        if (ringSize == 0) return overflow.firstKey();
+        int id = base;
+        while (slots[id & mask] == null) id++;
+        return id;
+    }
+
+    /** 最大的已占用 ID；为空时抛 IllegalStateException */
+    int lastId() {
+        if (size == 0) throw new IllegalStateException("empty");
+        return overflow != null ? overflow.lastKey() : maxId;
+    }
+
+    /** 小于 id 的最大已占用 ID；没有时返回 base - 1（供从大到小遍历，跳过溢出区之间的空档） */
+    int lowerId(int id) {
+        if (overflow != null) {
+            Integer k = overflow.lowerKey(id);
+            if (k != null) return k;
+        }
+        int i = Math.min(id - 1, maxId);
+        while (i >= base && slots[i & mask] == null) i--;
+        return Math.max(i, base - 1);
+    }
+
+    /** 把 base 前移到 newBase；低于 newBase 的残留条目被丢弃，落入新窗口的溢出条目迁回环形部分 */
+    void advanceTo(int newBase) {
+        if (newBase <= base) return;
+        TreeMap<Integer, T> far = overflow;
+        if (ringSize == 0 || (long) newBase - base >= slots.length) {
+            reset(newBase);
+        } else {
+            for (int id = base; id < newBase; id++) {
+                int i = id & mask;
+                if (slots[i] != null) {
+                    slots[i] = null;
+                    ringSize--;
+                    size--;
+                }
+            }
+            base = newBase;
+            if (ringSize == 0) maxId = newBase - 1;
+        }
+        if (far == null) return;
+        overflow = far;
+        size = ringSize + far.size();
+        // 溢出区按 ID 升序：只处理队头，遇到仍在窗口外的即停
+        while (overflow != null) {
+            Map.Entry<Integer, T> e = overflow.firstEntry();
+            int id = e.getKey();
+            if (!accepts(id)) {
+                overflow.pollFirstEntry();
+                size--;
+            } else if (inWindow(id)) {
+                overflow.pollFirstEntry();
+                size--;
+                put(id, e.getValue());
+            } else {
+                break;
+            }
+            if (overflow.isEmpty()) overflow = null;
+        }
+    }
+
+    /** 按 ID 升序遍历 */
+    @SuppressWarnings("unchecked")
+    void forEach(Visitor<T> visitor) {
+        if (size == 0) return;
+        if (ringSize > 0) {
+            for (int id = base; id <= maxId; id++) {
+                Object v = slots[id & mask];
+                if (v != null) visitor.visit(id, (T) v);
+            }
+        }
+        if (overflow != null) {
+            for (Map.Entry<Integer, T> e : overflow.entrySet()) visitor.visit(e.getKey(), e.getValue());
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int cap = slots.length;
+        while (cap < minCapacity) cap <<= 1;
+        Object[] next = new Object[cap];
+        int nextMask = cap - 1;
+        for (int id = base; id <= maxId && ringSize > 0; id++) {
+            Object v = slots[id & mask];
+            if (v != null) next[id & nextMask] = v;
+        }
+        slots = next;
+        mask = nextMask;
+    }
+}
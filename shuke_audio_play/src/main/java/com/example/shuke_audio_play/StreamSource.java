@@ -0,0 +1,345 @@
+package com.example.shuke_audio_play;
+
+import java.util.ArrayDeque;
+
+/**
+ * 🎚️ 流式输出的一路音源（一个播放通道）：按顺序排列的已解码片段
+ * - 由 StreamingAudioEngine 渲染线程拉取 PCM；多路音源可混入同一个 AudioTrack
+ * - 片段位置以输出时间轴（AudioTrack 帧）记录，按播放头回调 开始/进度/完成
+ * - 进度以媒体时间（变速前）上报；片段可从 startOffsetMs 处开始（seek）
+ * - 片段的格式转换与变速（整段计算、整段分配）由引擎的预处理线程在 prepare() 里完成，
+ *   渲染线程只读已处理好的片段，begin() 不做计算也不分配，片段边界不会拖慢渲染
+ * - pending / prepared / preparing / epoch / unbegun / flushRequested 由引擎锁保护；其余字段只在渲染线程访问
+ */
+final class StreamSource {
+
+    interface Callback {
+        void onSegmentStart(int id);
+        void onSegmentProgress(int id, long positionMs, long durationMs);
+        void onSegmentComplete(int id);
+        /** 已写入的片段全部播放完毕，且没有待写入的片段 */
+        void onDrained();
+        void onError(int id, String message);
+    }
+
+    /** 相邻片段增益不同时的过渡斜坡，避免增益阶跃产生咔哒声 */
+    static final int GAIN_RAMP_MS = 5;
+    static final int MAX_CROSSFADE_MS = 200;
+    static final int MAX_FADE_MS = 500;
+
+    /** 单个片段：在输出时间轴上的位置（帧） */
+    static final class Segment {
+        final int id;
+        DecodedAudio audio;
+        final long startOffsetMs;
+        /** 片段增益（0~2），超出范围的样本饱和截断 */
+        final float gain;
+        long mediaDurationMs;  // 变速/重采样前的时长
+        boolean begun;
+        int offset;          // 已读出的帧数
+        int skipFrames;      // seek 跳过的帧数
+        float rampFrom;      // 起始增益斜坡：前 rampLen 帧从 rampFrom 过渡到 gain
+        int rampLen;
+        long startFrame;
+        long nextFrame;      // 下一帧应在的输出位置；暂停后续读时据此顺延 startFrame
+        long endFrame = -1;  // 全部读出后才确定
+        boolean started;
+
+        Segment(int id, DecodedAudio audio, long startOffsetMs, float gain) {
+            this.id = id;
+            this.audio = audio;
+            this.startOffsetMs = startOffsetMs;
+            this.gain = gain;
+        }
+
+        int remaining() { return audio.frames() - offset; }
+    }
+
+    final Callback callback;
+    /** 通道音量（混音时的增益），0~1 */
+    volatile float volume = 1f;
+    /** 播放速度与音调（TimeStretch），片段预处理时生效（预处理最多领先渲染 StreamingAudioEngine.PREPARE_AHEAD 个片段） */
+    volatile float speed = 1f;
+    volatile float pitch = 1f;
+    /** 进度回调间隔，0 表示不回调 */
+    volatile long progressIntervalMs = 300L;
+    /** 抖动缓冲蓄水中：片段照常排队，但暂不输出（由 StreamingAudioEngine.setHeld 切换） */
+    volatile boolean held;
+    /** 用户暂停：与 held 相同不再输出，另外不上报进度（由 StreamingAudioEngine.setPaused 切换） */
+    volatile boolean paused;
+    /** 相邻片段交叉淡化时长（毫秒）；0 表示首尾直接相接 */
+    volatile int crossfadeMs;
+    /** flush（clear/seek）时的淡出、静默后起播的淡入时长（毫秒）；0 表示硬切 */
+    volatile int fadeMs;
+
+    // ===== 引擎锁保护 =====
+    /** 已追加、等待预处理的片段 */
+    final ArrayDeque<Segment> pending = new ArrayDeque<>();
+    /** 已预处理、等待渲染线程取走的片段 */
+    final ArrayDeque<Segment> prepared = new ArrayDeque<>();
+    /** 正在预处理的片段数（0 或 1） */
+    int preparing;
+    /** flush 计数：预处理期间发生过 flush 的结果直接丢弃 */
+    int epoch;
+    /** 渲染队列中尚未读完开头的片段数，供预处理线程控制领先量 */
+    int unbegun;
+    boolean flushRequested;
+
+    // ===== 渲染线程 =====
+    /** 尚未开始读取的片段 */
+    private final ArrayDeque<Segment> ready = new ArrayDeque<>();
+    /** 正在读取的片段；交叉淡化期间 incoming 同时读取 */
+    private Segment current;
+    private Segment incoming;
+    private int xfadeLen;
+    private int xfadePos;
+    /** 已写入、等待播放头经过的片段 */
+    private final ArrayDeque<Segment> inFlight = new ArrayDeque<>();
+    /** flush 时正在输出的片段：在其后补一段淡出尾巴后丢弃，不再触发事件 */
+    private final ArrayDeque<Segment> fading = new ArrayDeque<>();
+    private int fadeOutLen = -1;
+    private int fadeOutLeft;
+    /** 最近输出的片段增益，下一个片段从它斜坡过渡 */
+    private float lastGain = 1f;
+    private long lastProgressAt;
+    private boolean active;
+
+    StreamSource(Callback callback) {
+        this.callback = callback;
+    }
+
+    /** 渲染线程（持有引擎锁）：处理 flush 请求并把 pending 移入渲染队列 */
+    void syncLocked() {
+        if (flushRequested) {
+            flushRequested = false;
+            fading.clear();
+            fadeOutLen = -1;
+            Segment playing = incoming != null ? incoming : current;
+            if (fadeMs > 0 && playing != null && playing.remaining() > 0) fading.add(playing);
+            current = null;
+            incoming = null;
+            ready.clear();
+            inFlight.clear();
+            active = false;
+        }
+        while (!prepared.isEmpty()) ready.add(prepared.poll());
+        unbegun = ready.size();
+    }
+
+    /** 引擎锁内：已预处理或尚在排队/预处理的片段数（不含渲染队列） */
+    int queuedLocked() {
+        return pending.size() + prepared.size() + preparing;
+    }
+
+    /** 预处理（非渲染线程）：转换为输出格式并按需变速，记录变速前的媒体时长 */
+    static Segment prepare(Segment seg, int rate, int channels, float speed, float pitch) {
+        seg.mediaDurationMs = seg.audio.durationMs();
+        DecodedAudio audio = seg.audio.convertTo(rate, channels);
+        if (!TimeStretch.isIdentity(speed, pitch)) audio = TimeStretch.process(audio, speed, pitch);
+        seg.audio = audio;
+        return seg;
+    }
+
+    boolean hasReady() {
+        return !fading.isEmpty() || (!held && !paused && (current != null || !ready.isEmpty()));
+    }
+
+    boolean hasInFlight() { return !inFlight.isEmpty(); }
+
+    /**
+     * 读取最多 maxFrames 帧到 out（交错 PCM16，覆盖写），返回实际帧数；
+     * outPos 为 out[0] 在输出时间轴上的帧位置，跨片段连续读取。
+     * DSP（片段增益、相邻片段交叉淡化、flush 淡出与静默后淡入）在这里完成，逐缓冲不分配内存；
+     * 片段须已经 prepare 为 rate / channels 格式
+     */
+    int read(short[] out, int maxFrames, long outPos, int rate, int channels) {
+        int produced = fading.isEmpty() ? 0 : readFadeOut(out, maxFrames, rate, channels);
+        if (held || paused) return produced;
+        final int xfade = crossfadeMs * rate / 1000;
+        while (produced < maxFrames) {
+            long pos = outPos + produced;
+            if (current == null) {
+                Segment seg = ready.poll();
+                if (seg == null) break;
+                begin(seg);
+                if (!active) {
+                    // 静默后起播：淡入
+                    seg.rampFrom = fadeMs > 0 ? 0f : seg.gain;
+                    seg.rampLen = fadeMs * rate / 1000;
+                } else {
+                    seg.rampFrom = lastGain;
+                    seg.rampLen = lastGain != seg.gain ? GAIN_RAMP_MS * rate / 1000 : 0;
+                }
+                place(seg, pos);
+                current = seg;
+            } else {
+                follow(current, pos);
+                if (incoming != null) follow(incoming, pos);
+            }
+
+            Segment seg = current;
+            int remaining = seg.remaining();
+            if (incoming == null && xfade > 0 && remaining > 0 && remaining <= xfade && !ready.isEmpty()) {
+                startCrossfade(pos);
+            }
+
+            if (incoming != null) {
+                // 交叉淡化：本段剩余部分线性淡出，下一段同时淡入
+                int m = Math.min(xfadeLen - xfadePos, maxFrames - produced);
+                float w0 = xfadePos / (float) xfadeLen;
+                float step = 1f / xfadeLen;
+                emit(seg, out, produced, m, channels, false, 1f - w0, -step);
+                emit(incoming, out, produced, m, channels, true, w0, step);
+                xfadePos += m;
+                produced += m;
+                seg.nextFrame = outPos + produced;
+                incoming.nextFrame = seg.nextFrame;
+                if (xfadePos >= xfadeLen) {
+                    seg.endFrame = outPos + produced;
+                    lastGain = incoming.gain;
+                    current = incoming;
+                    incoming = null;
+                }
+                continue;
+            }
+
+            // 下一段已就绪时只读到交叉淡化起点，剩下的与下一段重叠输出
+            int limit = xfade > 0 && !ready.isEmpty() && remaining > xfade ? remaining - xfade : remaining;
+            int n = Math.min(limit, maxFrames - produced);
+            emit(seg, out, produced, n, channels, false, 1f, 0f);
+            produced += n;
+            seg.nextFrame = outPos + produced;
+            if (seg.remaining() <= 0) {
+                seg.endFrame = outPos + produced;
+                lastGain = seg.gain;
+                current = null;
+            }
+        }
+        return produced;
+    }
+
+    /** 片段开始读取：按 seek 偏移跳过开头（格式转换/变速已在 prepare 完成，这里不计算不分配） */
+    private void begin(Segment seg) {
+        if (seg.begun) return;
+        seg.begun = true;
+        if (seg.startOffsetMs > 0 && seg.mediaDurationMs > 0) {
+            long frames = seg.audio.frames();
+            seg.offset = (int) Math.min(frames, frames * seg.startOffsetMs / seg.mediaDurationMs);
+            seg.skipFrames = seg.offset;
+        }
+    }
+
+    /** 片段在输出时间轴上落位，开始接受播放头事件 */
+    private void place(Segment seg, long pos) {
+        seg.startFrame = pos;
+        seg.nextFrame = pos;
+        inFlight.add(seg);
+        active = true;
+    }
+
+    /** 混音时暂停期间其他音源继续输出：片段整体后移，进度/完成位置随之顺延 */
+    private static void follow(Segment seg, long pos) {
+        if (pos > seg.nextFrame) seg.startFrame += pos - seg.nextFrame;
+    }
+
+    /** 下一段足够长时开始交叉淡化，重叠长度 = 本段剩余帧数 */
+    private void startCrossfade(long pos) {
+        Segment next = ready.peek();
+        begin(next);
+        int len = current.remaining();
+        if (next.remaining() < len) return;
+        ready.poll();
+        next.rampFrom = next.gain;
+        next.rampLen = 0;
+        place(next, pos);
+        incoming = next;
+        xfadeLen = len;
+        xfadePos = 0;
+    }
+
+    /** flush 前正在输出的片段接着输出 fadeMs，增益线性降到 0，之后丢弃 */
+    private int readFadeOut(short[] out, int maxFrames, int rate, int channels) {
+        if (fadeOutLen < 0) {
+            fadeOutLen = Math.max(1, fadeMs * rate / 1000);
+            fadeOutLeft = fadeOutLen;
+        }
+        int produced = 0;
+        while (produced < maxFrames && fadeOutLeft > 0 && !fading.isEmpty()) {
+            Segment seg = fading.peek();
+            int n = Math.min(Math.min(seg.remaining(), maxFrames - produced), fadeOutLeft);
+            emit(seg, out, produced, n, channels, false, fadeOutLeft / (float) fadeOutLen, -1f / fadeOutLen);
+            produced += n;
+            fadeOutLeft -= n;
+            if (seg.remaining() <= 0) fading.poll();
+        }
+        if (fadeOutLeft <= 0 || fading.isEmpty()) {
+            fading.clear();
+            fadeOutLen = -1;
+            // 淡出之后的新片段从静音淡入
+            lastGain = 0f;
+        }
+        return produced;
+    }
+
+    private static void emit(Segment seg, short[] out, int outFrame, int n, int channels, boolean mix,
+                             float w0, float wStep) {
+        PcmEnvelope.apply(seg.audio.samples, seg.offset, out, outFrame, n, channels, mix,
+                seg.offset - seg.skipFrames, seg.rampLen, seg.rampFrom, seg.gain, w0, wStep);
+        seg.offset += n;
+    }
+
+    /** 输出设备失效：已写入的片段作废并逐个报错；未开始读的片段保留，等新 AudioTrack 继续播放 */
+    void failInFlight(String message) {
+        while (!inFlight.isEmpty()) {
+            Segment seg = inFlight.poll();
+            if (current == seg) current = null;
+            if (incoming == seg) incoming = null;
+            callback.onError(seg.id, message);
+        }
+    }
+
+    /** 输出设备无法创建：渲染侧所有片段逐个报错并丢弃 */
+    void failAll(String message) {
+        failInFlight(message);
+        fading.clear();
+        while (!ready.isEmpty()) callback.onError(ready.poll().id, message);
+        if (active) markDrained();
+    }
+
+    /**
+     * 按播放头位置触发 开始/进度/完成；
+     * 返回 true 表示渲染侧已播空，需由引擎在锁内确认 pending 也为空后调用 markDrained
+     */
+    boolean dispatch(long head, long now, int rate) {
+        while (!inFlight.isEmpty()) {
+            Segment seg = inFlight.peek();
+            if (!seg.started && (head > seg.startFrame || seg.endFrame == seg.startFrame)) {
+                seg.started = true;
+                lastProgressAt = now;
+                callback.onSegmentStart(seg.id);
+            }
+            if (seg.started && seg.endFrame >= 0 && head >= seg.endFrame) {
+                inFlight.poll();
+                callback.onSegmentComplete(seg.id);
+                continue;
+            }
+            long interval = progressIntervalMs;
+            if (seg.started && interval > 0 && !paused && now - lastProgressAt >= interval) {
+                lastProgressAt = now;
+                // 输出帧 → 媒体时间：按变速后帧数与原始时长的比例换算
+                long frames = Math.max(1, seg.audio.frames());
+                long played = Math.max(0, head - seg.startFrame) + seg.skipFrames;
+                long pos = Math.min(frames, played) * seg.mediaDurationMs / frames;
+                callback.onSegmentProgress(seg.id, pos, seg.mediaDurationMs);
+            }
+            break;
+        }
+
+        return active && inFlight.isEmpty() && ready.isEmpty() && current == null;
+    }
+
+    void markDrained() {
+        active = false;
+        callback.onDrained();
+    }
+}
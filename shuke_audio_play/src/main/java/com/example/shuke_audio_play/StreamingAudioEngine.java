@@ -0,0 +1,471 @@
+package com.example.shuke_audio_play;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 🌊 流式无缝播放引擎：所有片段按顺序写入同一个长生命周期的 AudioTrack
+ * - 片段之间不再重建/准备播放器，相邻 ID 首尾相接播放
+ * - 可挂多路 StreamSource：单路时直接输出，多路时按通道音量求和混音后写入同一个 AudioTrack
+ * - 每个片段记录起止帧位置，渲染线程根据 playbackHeadPosition 回调 开始/进度/完成
+ * - 所有 AudioTrack 操作都在内部渲染线程执行；Callback 也在渲染线程触发，调用方自行切线程
+ * - 片段的重采样/声道转换/变速在预处理线程完成，每路最多领先渲染 PREPARE_AHEAD 个片段；
+ *   渲染线程只有约 100ms 的 AudioTrack 缓冲，不能在片段边界做整段计算
+ * - 输出格式由第一个预处理的片段决定，之后所有片段都转换为该格式（AudioTrack 重建也沿用）
+ */
+final class StreamingAudioEngine {
+
+    private static final String TAG = "StreamingAudioEngine";
+    /** 单次 write 的时长：越小 flush/事件越及时，越大系统调用越少 */
+    private static final int WRITE_CHUNK_MS = 20;
+    /** 无数据可写时轮询播放头的间隔 */
+    private static final long IDLE_WAIT_MS = 10L;
+    /** 播放头停滞超过该时长且仍有未播数据时，补一段静音把尾部数据“推”出去 */
+    private static final long STALL_PAD_MS = 50L;
+    /** 输出电平表的统计窗口与峰值保持时长 */
+    private static final int METER_WINDOW_MS = 100;
+    private static final int METER_PEAK_HOLD_MS = 1000;
+    /** 每路音源已预处理但尚未开始读取的片段上限：够交叉淡化衔接，又让变速设置尽快生效、限制转换后副本的内存 */
+    static final int PREPARE_AHEAD = 2;
+
+    private final AudioAttributes attributes;
+    private final Object lock = new Object();
+    private final CopyOnWriteArrayList<StreamSource> sources = new CopyOnWriteArrayList<>();
+    /** 单路模式下 flush 需要连同 AudioTrack 缓冲一起清空；受 lock 保护 */
+    private boolean trackFlushRequested = false;
+    /** 单路暂停中：AudioTrack 已 pause，播放头停滞属正常，不能补静音 */
+    private volatile boolean trackPaused = false;
+    private boolean running = true;
+    /** 输出格式：第一个预处理的片段决定，受 lock 保护 */
+    private int outputRate;
+    private int outputChannels;
+
+    // ===== 以下字段只在渲染线程访问 =====
+    private volatile AudioTrack track;
+    /** 最终输出（混音、增益之后）的电平；随 AudioTrack 重建 */
+    private volatile LevelMeter outputMeter;
+    private int trackRate;
+    private int trackChannels;
+    private int chunkFrames;
+    private short[] readBuf;
+    private short[] mixBuf;
+    private int[] accBuf;
+    private short[] silence;
+    private long framesWritten;
+    private long lastHead = -1;
+    private long lastHeadChangedAt;
+
+    private final Thread renderThread;
+    private final Thread prepareThread;
+
+    StreamingAudioEngine(AudioAttributes attributes) {
+        this.attributes = attributes;
+        this.renderThread = new Thread(this::renderLoop, "StreamingAudioEngine");
+        this.renderThread.start();
+        this.prepareThread = new Thread(this::prepareLoop, "StreamingAudioPrepare");
+        this.prepareThread.start();
+    }
+
+    /** 输出电平表；尚未创建 AudioTrack 时为 null */
+    LevelMeter outputLevel() {
+        return outputMeter;
+    }
+
+    void addSource(StreamSource source) {
+        synchronized (lock) {
+            if (!sources.contains(source)) sources.add(source);
+            lock.notifyAll();
+        }
+    }
+
+    /** 移除音源并丢弃其未播数据；返回剩余音源数 */
+    int removeSource(StreamSource source) {
+        flush(source);
+        synchronized (lock) {
+            sources.remove(source);
+            return sources.size();
+        }
+    }
+
+    /** 追加一个已解码片段，排在该音源所有已追加片段之后 */
+    void append(StreamSource source, int id, DecodedAudio audio) {
+        append(source, id, audio, 0, 1f);
+    }
+
+    /** 追加片段并从 startOffsetMs（媒体时间）处开始播放（用于 seek）；gain 为该片段的增益 */
+    void append(StreamSource source, int id, DecodedAudio audio, long startOffsetMs, float gain) {
+        synchronized (lock) {
+            source.pending.add(new StreamSource.Segment(id, audio, startOffsetMs, gain));
+            lock.notifyAll();
+        }
+    }
+
+    /** 暂停/恢复该音源的输出；暂停期间追加的片段保留，恢复后从第一个片段接着播放 */
+    void setHeld(StreamSource source, boolean held) {
+        synchronized (lock) {
+            source.held = held;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 暂停/恢复该音源。单路时直接暂停 AudioTrack，已写入的缓冲保留、恢复后原样接着播；
+     * 混音时只停止拉取该音源，已写入硬件缓冲的少量数据（约 100ms）仍会播完。
+     */
+    void setPaused(StreamSource source, boolean paused) {
+        boolean single;
+        synchronized (lock) {
+            source.paused = paused;
+            single = sources.size() <= 1;
+            trackPaused = single && paused;
+            lock.notifyAll();
+        }
+        AudioTrack t = track;
+        if (single && t != null) {
+            try {
+                if (paused) {
+                    t.pause();
+                } else {
+                    t.play();
+                }
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    /**
+     * 丢弃该音源所有未播放数据（clear 语义），引擎保持可用。
+     * 单路时连同 AudioTrack 缓冲一起清空；混音时已写入硬件缓冲的少量数据（约 100ms）仍会播完。
+     * 音源设置了 fadeMs 时不清空硬件缓冲（其中的数据无法再做淡出），改为在已写入数据之后补一段淡出尾巴，
+     * 以略长的停止延迟换取没有咔哒声
+     */
+    void flush(StreamSource source) {
+        boolean flushTrack;
+        synchronized (lock) {
+            source.pending.clear();
+            source.prepared.clear();
+            source.epoch++;
+            source.flushRequested = true;
+            flushTrack = sources.size() <= 1 && source.fadeMs <= 0;
+            if (flushTrack) trackFlushRequested = true;
+            lock.notifyAll();
+        }
+        // 解除渲染线程可能的阻塞 write；真正的复位由渲染线程完成
+        AudioTrack t = track;
+        if (flushTrack && t != null) {
+            try {
+                t.pause();
+                t.flush();
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    void release() {
+        synchronized (lock) {
+            running = false;
+            for (StreamSource s : sources) {
+                s.pending.clear();
+                s.prepared.clear();
+            }
+            lock.notifyAll();
+        }
+        AudioTrack t = track;
+        if (t != null) {
+            try {
+                t.pause();
+                t.flush();
+            } catch (Throwable ignored) {}
+        }
+        try {
+            renderThread.join(500);
+            prepareThread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== 预处理线程 =====
+
+    /** 按音源顺序取出待处理片段，在锁外完成格式转换与变速，再交给渲染线程 */
+    private void prepareLoop() {
+        try {
+            while (true) {
+                StreamSource source = null;
+                StreamSource.Segment seg = null;
+                int epoch, rate, channels;
+                float speed, pitch;
+                synchronized (lock) {
+                    if (!running) break;
+                    for (StreamSource s : sources) {
+                        if (!s.pending.isEmpty() && s.unbegun + s.prepared.size() < PREPARE_AHEAD) {
+                            source = s;
+                            break;
+                        }
+                    }
+                    if (source == null) {
+                        lock.wait();
+                        continue;
+                    }
+                    seg = source.pending.poll();
+                    source.preparing++;
+                    if (outputRate == 0) {
+                        outputRate = seg.audio.sampleRate;
+                        outputChannels = Math.min(2, Math.max(1, seg.audio.channels));
+                    }
+                    epoch = source.epoch;
+                    rate = outputRate;
+                    channels = outputChannels;
+                    speed = source.speed;
+                    pitch = source.pitch;
+                }
+                try {
+                    StreamSource.prepare(seg, rate, channels, speed, pitch);
+                } catch (Throwable t) {
+                    Log.e(TAG, "片段预处理失败 id=" + seg.id + ": " + t.getMessage());
+                    source.callback.onError(seg.id, "prepare_failed: " + t.getMessage());
+                    seg = null;
+                }
+                synchronized (lock) {
+                    source.preparing--;
+                    if (seg != null && epoch == source.epoch) source.prepared.add(seg);
+                    lock.notifyAll();
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    // ===== 渲染线程 =====
+
+    private void renderLoop() {
+        android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_AUDIO);
+        try {
+            while (true) {
+                boolean flushTrack;
+                boolean hasData = false;
+                synchronized (lock) {
+                    if (!running) break;
+                    flushTrack = trackFlushRequested;
+                    trackFlushRequested = false;
+                    boolean inFlight = false;
+                    boolean wakePrepare = false;
+                    for (StreamSource s : sources) {
+                        int before = s.unbegun;
+                        s.syncLocked();
+                        wakePrepare |= s.unbegun < before && !s.pending.isEmpty();
+                        hasData |= s.hasReady();
+                        inFlight |= s.hasInFlight();
+                    }
+                    if (wakePrepare) lock.notifyAll();
+                    if (!flushTrack && !hasData && !inFlight) {
+                        // 完全空闲：等待新片段
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                        continue;
+                    }
+                }
+
+                if (flushTrack) {
+                    resetTrack();
+                } else if (hasData) {
+                    writeChunk();
+                    dispatchPositions();
+                } else {
+                    // 全部写完但仍有在播片段：跟踪播放头，必要时补静音
+                    padIfStalled();
+                }
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "渲染线程异常: " + t.getMessage());
+        } finally {
+            releaseTrack();
+        }
+    }
+
+    /** 从各音源拉取一块 PCM（多路时混音）写入 AudioTrack */
+    private void writeChunk() {
+        if (track == null && !ensureTrack()) {
+            for (StreamSource s : sources) s.failAll("audio_track_init_failed");
+            return;
+        }
+
+        int frames = 0;
+        short[] out;
+        if (sources.size() == 1) {
+            StreamSource s = sources.get(0);
+            frames = s.read(readBuf, chunkFrames, framesWritten, trackRate, trackChannels);
+            if (s.volume < 1f) applyGain(readBuf, frames * trackChannels, s.volume);
+            out = readBuf;
+        } else {
+            int[] acc = accBuf;
+            Arrays.fill(acc, 0);
+            for (StreamSource s : sources) {
+                int n = s.read(readBuf, chunkFrames, framesWritten, trackRate, trackChannels);
+                int samples = n * trackChannels;
+                float g = s.volume;
+                for (int i = 0; i < samples; i++) acc[i] += (int) (readBuf[i] * g);
+                if (n > frames) frames = n;
+            }
+            int samples = frames * trackChannels;
+            for (int i = 0; i < samples; i++) {
+                int v = acc[i];
+                mixBuf[i] = (short) (v > Short.MAX_VALUE ? Short.MAX_VALUE : (v < Short.MIN_VALUE ? Short.MIN_VALUE : v));
+            }
+            out = mixBuf;
+        }
+        if (frames == 0) {
+            padIfStalled();
+            return;
+        }
+
+        outputMeter.process(out, 0, frames * trackChannels);
+        int w = track.write(out, 0, frames * trackChannels);
+        if (w < 0) {
+            Log.w(TAG, "write 失败: " + w + "，重建 AudioTrack");
+            releaseTrack();
+            for (StreamSource s : sources) s.failInFlight("audio_track_write_error: " + w);
+            return;
+        }
+        framesWritten += w / trackChannels;
+    }
+
+    private static void applyGain(short[] buf, int samples, float gain) {
+        for (int i = 0; i < samples; i++) buf[i] = (short) (buf[i] * gain);
+    }
+
+    /** 按播放头位置触发各音源的 开始/进度/完成 */
+    private void dispatchPositions() {
+        if (track == null) return;
+        long head = track.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+        long now = SystemClock.elapsedRealtime();
+        if (head != lastHead) {
+            lastHead = head;
+            lastHeadChangedAt = now;
+        }
+        for (StreamSource s : sources) {
+            if (s.dispatch(head, now, trackRate)) {
+                boolean idle;
+                synchronized (lock) {
+                    idle = s.queuedLocked() == 0;
+                }
+                if (idle) s.markDrained();
+            }
+        }
+    }
+
+    /**
+     * AudioTrack 在缓冲区首次填满前不会开始消费（流模式起播阈值），
+     * 队列尾部不足一个缓冲区的数据会卡住；检测到播放头停滞时补静音推动播放。
+     */
+    private void padIfStalled() {
+        dispatchPositions();
+        if (track == null) return;
+        if (lastHead >= framesWritten) return;
+        if (trackPaused) {
+            sleepQuietly(IDLE_WAIT_MS);
+            return;
+        }
+        if (SystemClock.elapsedRealtime() - lastHeadChangedAt < STALL_PAD_MS) {
+            sleepQuietly(IDLE_WAIT_MS);
+            return;
+        }
+        int w = track.write(silence, 0, silence.length);
+        if (w > 0) framesWritten += w / trackChannels;
+        lastHeadChangedAt = SystemClock.elapsedRealtime();
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** 按预处理确定的输出格式创建 AudioTrack（片段都已转换为该格式） */
+    private boolean ensureTrack() {
+        int rate;
+        int channels;
+        synchronized (lock) {
+            rate = outputRate;
+            channels = outputChannels;
+        }
+        if (rate <= 0) return false;
+        int mask = channels == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        int minBuf = AudioTrack.getMinBufferSize(rate, mask, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBuf <= 0) return false;
+        // 至少 100ms 缓冲，兼顾抗抖动与 flush 响应
+        int bufBytes = Math.max(minBuf, rate * channels * 2 / 10);
+
+        try {
+            AudioTrack t = new AudioTrack(
+                    attributes,
+                    new AudioFormat.Builder()
+                            .setSampleRate(rate)
+                            .setChannelMask(mask)
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .build(),
+                    bufBytes,
+                    AudioTrack.MODE_STREAM,
+                    AudioManager.AUDIO_SESSION_ID_GENERATE);
+            if (t.getState() != AudioTrack.STATE_INITIALIZED) {
+                t.release();
+                return false;
+            }
+            t.play();
+            trackRate = rate;
+            trackChannels = channels;
+            chunkFrames = Math.max(1, rate * WRITE_CHUNK_MS / 1000);
+            readBuf = new short[chunkFrames * channels];
+            mixBuf = new short[chunkFrames * channels];
+            accBuf = new int[chunkFrames * channels];
+            silence = new short[bufBytes / 2];
+            outputMeter = new LevelMeter(rate, channels, METER_WINDOW_MS, METER_PEAK_HOLD_MS);
+            framesWritten = 0;
+            lastHead = -1;
+            track = t;
+            Log.i(TAG, "🔊 AudioTrack 创建完成: " + rate + "Hz x" + channels + ", buffer=" + bufBytes);
+            return true;
+        } catch (Throwable e) {
+            Log.e(TAG, "AudioTrack 创建失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 单路 flush 后复位 AudioTrack；音源的渲染队列已在 syncLocked 中按 flushRequested 清空，
+     * 这里不能再清，否则 flush 之后立即追加的片段（seek 重新追加、缓存命中）会被一并丢掉
+     */
+    private void resetTrack() {
+        if (track != null) {
+            try {
+                track.pause();
+                track.flush();
+                track.play();
+            } catch (Throwable ignored) {}
+        }
+        framesWritten = 0;
+        lastHead = -1;
+    }
+
+    private void releaseTrack() {
+        AudioTrack t = track;
+        track = null;
+        if (t != null) {
+            try {
+                t.pause();
+                t.flush();
+                t.release();
+            } catch (Throwable ignored) {}
+        }
+    }
+}
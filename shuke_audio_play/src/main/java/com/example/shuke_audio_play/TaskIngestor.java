@@ -0,0 +1,119 @@
+package com.example.shuke_audio_play;
+
+import android.util.Base64;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 📥 任务入口解析：在工作线程完成 ID 校验、去掉 data: 前缀与 Base64 解码
+ * - 大体积 Base64 字符串只在工作线程上处理，UI 线程只拿到解码后的字节
+ * - 本地文件任务只做存在性校验，不读入内存，由播放器直接按路径读取
+ * - 解析完成后通过 Callback 通知（在工作线程回调，调用方负责切回自己的线程）
+ */
+final class TaskIngestor {
+
+    interface Callback {
+        /** data 与 path 二选一：内存数据或本地文件路径 */
+        void onIngested(int id, byte[] data, String path);
+        void onRejected(String id, String reason);
+    }
+
+    private static final String TAG = "TaskIngestor";
+    private static final int THREADS = 2;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(THREADS,
+            r -> new Thread(r, "AudioTaskIngest"));
+
+    void submit(String idStr, String payload, Callback callback) {
+        pool.execute(() -> {
+            final int id;
+            try {
+                id = Integer.parseInt(idStr);
+            } catch (Exception e) {
+                callback.onRejected(idStr, "invalid_id");
+                return;
+            }
+            if (payload == null || payload.isEmpty()) {
+                callback.onRejected(idStr, "empty_input");
+                return;
+            }
+
+            byte[] data;
+            try {
+                data = decodePayload(payload);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Base64 解析失败 id=" + idStr + ": " + e.getMessage());
+                callback.onRejected(idStr, "invalid_base64");
+                return;
+            }
+            if (data.length == 0) {
+                callback.onRejected(idStr, "empty_input");
+                return;
+            }
+            callback.onIngested(id, data, null);
+        });
+    }
+
+    /** 本地文件任务：支持 file:// 前缀；文件由调用方持有，播放器不会删除 */
+    void submitFile(String idStr, String path, Callback callback) {
+        pool.execute(() -> {
+            final int id;
+            try {
+                id = Integer.parseInt(idStr);
+            } catch (Exception e) {
+                callback.onRejected(idStr, "invalid_id");
+                return;
+            }
+            if (path == null || path.isEmpty()) {
+                callback.onRejected(idStr, "empty_input");
+                return;
+            }
+            String p = path.startsWith("file://") ? path.substring(7) : path;
+            File f = new File(p);
+            if (!f.isFile() || !f.canRead()) {
+                callback.onRejected(idStr, "file_not_found");
+                return;
+            }
+            if (f.length() == 0) {
+                callback.onRejected(idStr, "empty_input");
+                return;
+            }
+            callback.onIngested(id, null, f.getAbsolutePath());
+        });
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** 去掉 data:...;base64, 前缀后 Base64 解码；非法输入抛 IllegalArgumentException */
+    static byte[] decodePayload(String payload) {
+        String b64 = payload;
+        if (b64.startsWith("data:")) {
+            int idx = b64.indexOf("base64,");
+            if (idx != -1) b64 = b64.substring(idx + 7);
+        }
+        return Base64.decode(b64, Base64.DEFAULT);
+    }
+
+    /** 读取整个文件（原始 PCM 文件任务使用） */
+    static byte[] readFile(String path) throws IOException {
+        File f = new File(path);
+        byte[] out = new byte[(int) f.length()];
+        try (FileInputStream in = new FileInputStream(f)) {
+            int off = 0;
+            while (off < out.length) {
+                int n = in.read(out, off, out.length - off);
+                if (n < 0) break;
+                off += n;
+            }
+            return off == out.length ? out : Arrays.copyOf(out, off);
+        }
+    }
+}
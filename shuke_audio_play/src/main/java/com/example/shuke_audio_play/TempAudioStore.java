@@ -0,0 +1,68 @@
+package com.example.shuke_audio_play;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🗂️ 落盘兜底：内存数据源不可用（API < 23）或被关闭时，片段写入 cacheDir/audio_*.mp3
+ * - 每个文件在播放/解码结束后删除
+ * - 每个进程只在创建第一个实例时清理上次进程残留的 audio_*.mp3：各频道的播放器共用 cacheDir，
+ *   之后新建的实例不能再扫，否则会删掉其它频道正在排队/播放的文件
+ * - 统计累计写盘字节数
+ */
+final class TempAudioStore {
+
+    private static final String TAG = "TempAudioStore";
+    private static final String PREFIX = "audio_";
+    private static final String SUFFIX = ".mp3";
+    private static final AtomicBoolean STALE_SWEPT = new AtomicBoolean();
+
+    private final File dir;
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    TempAudioStore(File dir) {
+        this.dir = dir;
+        if (!STALE_SWEPT.compareAndSet(false, true)) return;
+        int removed = cleanupStale();
+        if (removed > 0) Log.i(TAG, "🧹 清理残留临时文件 " + removed + " 个");
+    }
+
+    File write(byte[] data) throws IOException {
+        File tmp = File.createTempFile(PREFIX, SUFFIX, dir);
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(data);
+        } catch (IOException e) {
+            delete(tmp);
+            throw e;
+        }
+        bytesWritten.addAndGet(data.length);
+        return tmp;
+    }
+
+    void delete(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.w(TAG, "删除临时文件失败: " + file.getAbsolutePath());
+        }
+    }
+
+    /** 删除目录下所有 audio_*.mp3，返回删除数量 */
+    int cleanupStale() {
+        File[] files = dir != null ? dir.listFiles() : null;
+        if (files == null) return 0;
+        int removed = 0;
+        for (File f : files) {
+            String name = f.getName();
+            if (name.startsWith(PREFIX) && name.endsWith(SUFFIX) && f.delete()) removed++;
+        }
+        return removed;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten.get();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.shuke_audio_play;
+
+import java.util.Arrays;
+
+/**
+ * ⏩ WSOLA 变速（不变调）+ 可选变调
+ * - 输入按 SEQUENCE_MS 长度的序列切分，每个序列起点在 ±SEEK_MS 范围内按互相关寻找与上一序列尾部最相似的位置，
+ *   再用 OVERLAP_MS 的线性交叉淡化拼接，避免相位断裂；输入步进 = rate × 输出步进
+ * - 互相关先按 COARSE_STEP 粗搜再在邻域细搜，只用整数乘加，低端 ARM 上也能实时运行
+ * - 变调：先按 rate / pitch 变速，再线性重采样 pitch 倍（复用 DecodedAudio.convertTo）
+ * - 无状态、逐片段处理；由 StreamingAudioEngine 的预处理线程（StreamingAudioPrepare）调用，不在渲染线程上运行；
+ *   输出新数组，不修改输入（输入可能来自解码缓存）
+ */
+final class TimeStretch {
+
+    static final float MIN_RATE = 0.5f;
+    static final float MAX_RATE = 3.0f;
+    static final float MIN_PITCH = 0.5f;
+    static final float MAX_PITCH = 2.0f;
+
+    private static final int SEQUENCE_MS = 40;
+    private static final int SEEK_MS = 15;
+    private static final int OVERLAP_MS = 8;
+    private static final int COARSE_STEP = 4;
+
+    private TimeStretch() {}
+
+    static boolean isIdentity(float rate, float pitch) {
+        return Math.abs(rate - 1f) < 1e-3f && Math.abs(pitch - 1f) < 1e-3f;
+    }
+
+    /** 按 rate（速度）与 pitch（音调）处理整段 PCM；两者都为 1 时原样返回 */
+    static DecodedAudio process(DecodedAudio in, float rate, float pitch) {
+        if (isIdentity(rate, pitch) || in.frames() == 0) return in;
+        rate = clamp(rate, MIN_RATE, MAX_RATE);
+        pitch = clamp(pitch, MIN_PITCH, MAX_PITCH);
+
+        float tempo = rate / pitch;
+        DecodedAudio out = Math.abs(tempo - 1f) < 1e-3f ? in : stretch(in, tempo);
+        if (Math.abs(pitch - 1f) >= 1e-3f) {
+            // 以 采样率×pitch 的“假”采样率解释后重采样回原采样率：时长 / pitch，音调 × pitch
+            int fakeRate = Math.round(out.sampleRate * pitch);
+            out = new DecodedAudio(out.samples, fakeRate, out.channels).convertTo(in.sampleRate, in.channels);
+        }
+        return out;
+    }
+
+    /** 纯 WSOLA 变速：输出时长 ≈ 输入 / tempo */
+    static DecodedAudio stretch(DecodedAudio in, float tempo) {
+        final int ch = Math.max(1, in.channels);
+        final short[] src = in.samples;
+        final int frames = in.frames();
+        final int seq = Math.max(8, in.sampleRate * SEQUENCE_MS / 1000);
+        final int overlap = Math.max(4, in.sampleRate * OVERLAP_MS / 1000);
+        final int seek = Math.max(1, in.sampleRate * SEEK_MS / 1000);
+        final int hop = seq - overlap;                 // 每次输出的帧数
+        final double skip = tempo * hop;               // 每次输入前进的帧数
+
+        if (frames < seq + seek + overlap) {
+            // 太短无法做序列拼接：退化为线性重采样（会变调，但只影响极短片段）
+            int fakeRate = Math.round(in.sampleRate * tempo);
+            return new DecodedAudio(src, fakeRate, ch).convertTo(in.sampleRate, ch);
+        }
+
+        short[] out = new short[((int) (frames / tempo) + seq * 2) * ch];
+        int outFrames = 0;
+        // mid：上一个序列的尾部（overlap 帧），下一个序列的起点与它对齐并交叉淡化
+        int[] mid = new int[overlap * ch];
+        int[] midMono = new int[overlap];
+
+        // 第一个序列原样输出
+        System.arraycopy(src, 0, out, 0, hop * ch);
+        outFrames = hop;
+        loadMid(src, hop, overlap, ch, mid, midMono);
+
+        double inPos = skip;
+        while ((int) inPos + seek + seq <= frames) {
+            int base = (int) inPos;
+            int start = base + bestOffset(src, base, seek, overlap, ch, midMono);
+            outFrames = crossfade(mid, src, start, overlap, ch, out, outFrames);
+            int body = hop - overlap;
+            System.arraycopy(src, (start + overlap) * ch, out, outFrames * ch, body * ch);
+            outFrames += body;
+            loadMid(src, start + hop, overlap, ch, mid, midMono);
+            inPos += skip;
+        }
+
+        // 尾部：与剩余输入拼接后原速输出，保证片段结尾不被截掉
+        int start = Math.min((int) inPos, frames - overlap);
+        outFrames = crossfade(mid, src, start, overlap, ch, out, outFrames);
+        int rest = frames - (start + overlap);
+        if (rest > 0) {
+            if ((outFrames + rest) * ch > out.length) {
+                out = Arrays.copyOf(out, (outFrames + rest) * ch);
+            }
+            System.arraycopy(src, (start + overlap) * ch, out, outFrames * ch, rest * ch);
+            outFrames += rest;
+        }
+        return new DecodedAudio(Arrays.copyOf(out, outFrames * ch), in.sampleRate, ch);
+    }
+
+    private static void loadMid(short[] src, int frame, int overlap, int ch, int[] mid, int[] midMono) {
+        for (int i = 0; i < overlap; i++) {
+            int sum = 0;
+            for (int c = 0; c < ch; c++) {
+                int v = src[(frame + i) * ch + c];
+                mid[i * ch + c] = v;
+                sum += v;
+            }
+            midMono[i] = sum;
+        }
+    }
+
+    /** 在 [base, base + seek) 内找与 mid 互相关最大的起点：先粗搜，再在最佳点邻域细搜 */
+    private static int bestOffset(short[] src, int base, int seek, int overlap, int ch, int[] midMono) {
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int off = 0; off < seek; off += COARSE_STEP) {
+            double score = correlation(src, base + off, overlap, ch, midMono);
+            if (score > bestScore) {
+                bestScore = score;
+                best = off;
+            }
+        }
+        int from = Math.max(0, best - COARSE_STEP + 1);
+        int to = Math.min(seek - 1, best + COARSE_STEP - 1);
+        int coarse = best;
+        for (int off = from; off <= to; off++) {
+            if (off == coarse) continue;
+            double score = correlation(src, base + off, overlap, ch, midMono);
+            if (score > bestScore) {
+                bestScore = score;
+                best = off;
+            }
+        }
+        return best;
+    }
+
+    /** 归一化互相关（只对候选段能量归一，mid 对所有候选相同） */
+    private static double correlation(short[] src, int start, int overlap, int ch, int[] midMono) {
+        long corr = 0;
+        long energy = 0;
+        int idx = start * ch;
+        for (int i = 0; i < overlap; i++) {
+            int v = 0;
+            for (int c = 0; c < ch; c++) v += src[idx++];
+            corr += (long) v * midMono[i];
+            energy += (long) v * v;
+        }
+        return corr / Math.sqrt(energy + 1.0);
+    }
+
+    /** mid 淡出 + src[start..start+overlap) 淡入，写到 out；返回新的输出帧数 */
+    private static int crossfade(int[] mid, short[] src, int start, int overlap, int ch, short[] out, int outFrames) {
+        int o = outFrames * ch;
+        int s = start * ch;
+        for (int i = 0; i < overlap; i++) {
+            int fadeIn = i;
+            int fadeOut = overlap - i;
+            for (int c = 0; c < ch; c++) {
+                out[o++] = (short) ((mid[i * ch + c] * fadeOut + src[s++] * fadeIn) / overlap);
+            }
+        }
+        return outFrames + overlap;
+    }
+
+    private static float clamp(float v, float lo, float hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import io.dcloud.feature.uniapp.annotation.UniJSMethod;
+
+import static org.junit.Assert.*;
+
+/**
+ * AudioModule 分发线程测试：生命周期方法与入队方法必须在同一线程分发，
+ * 否则 JS 连续调用 init → addTask 时 addTask 可能先执行，随后被 init 的清空丢弃为 cleared；
+ * 以及通道注册表对播放器持强引用（弱引用会让空闲通道被 GC 回收，播放线程泄漏、init 配置丢失）
+ */
+public class AudioModuleDispatchTest {
+
+    private static final List<String> ORDERED = Arrays.asList(
+            "init", "clear", "clearChannel", "release", "releaseChannel", "setOutputMode", "seekTo", "seekChannel",
+            "addTask", "addChannelTask", "addTaskFromFile", "addChannelTaskFromFile");
+
+    @Test
+    public void initAndAddTaskDispatchOnSameThread() {
+        Boolean uiThread = null;
+        int checked = 0;
+        for (Method m : AudioModule.class.getDeclaredMethods()) {
+            if (!ORDERED.contains(m.getName())) continue;
+            UniJSMethod a = m.getAnnotation(UniJSMethod.class);
+            assertNotNull(m.getName() + " 缺少 @UniJSMethod", a);
+            if (uiThread == null) uiThread = a.uiThread();
+            assertEquals(m.getName() + " 与其它生命周期/入队方法分发线程不一致", uiThread, a.uiThread());
+            checked++;
+        }
+        assertEquals(ORDERED.size(), checked);
+    }
+
+    @Test
+    public void playerRegistryHoldsStrongReferences() throws Exception {
+        Field f = AudioModule.class.getDeclaredField("players");
+        Type t = f.getGenericType();
+        assertTrue(t instanceof ParameterizedType);
+        Type value = ((ParameterizedType) t).getActualTypeArguments()[1];
+        assertEquals(AudioQueuePlayer.class, value);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.shuke_audio_play;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * DecodedAudioCache 本地单元测试：内容键、内存 LRU 淘汰与磁盘层回填
+ */
+public class DecodedAudioCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("pcm_cache_test").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] sub = new File(dir, "pcm_cache").listFiles();
+        if (sub != null) for (File f : sub) f.delete();
+        new File(dir, "pcm_cache").delete();
+        dir.delete();
+    }
+
+    private static DecodedAudio clip(int samples, int value) {
+        short[] s = new short[samples];
+        for (int i = 0; i < samples; i++) s[i] = (short) (value + i);
+        return new DecodedAudio(s, 16000, 1);
+    }
+
+    @Test
+    public void keyDependsOnContentAndVariant() {
+        byte[] a = { 1, 2, 3 };
+        assertEquals(DecodedAudioCache.keyFor(a, null), DecodedAudioCache.keyFor(new byte[] { 1, 2, 3 }, null));
+        assertNotEquals(DecodedAudioCache.keyFor(a, null), DecodedAudioCache.keyFor(new byte[] { 1, 2, 4 }, null));
+        assertNotEquals(DecodedAudioCache.keyFor(a, null), DecodedAudioCache.keyFor(a, "pcm:16000x1"));
+    }
+
+    @Test
+    public void memoryTierEvictsLeastRecentlyUsed() {
+        // 每个条目 100 样本 = 200 字节，预算 2 个
+        DecodedAudioCache cache = new DecodedAudioCache(400, 0, null);
+        cache.put("a", clip(100, 0));
+        cache.put("b", clip(100, 0));
+        assertNotNull(cache.get("a"));   // a 变为最近使用
+        cache.put("c", clip(100, 0));    // 淘汰 b
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(400, cache.getMemoryBytes());
+        assertEquals(3, cache.getMemoryHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void diskTierRefillsMemory() {
+        DecodedAudioCache cache = new DecodedAudioCache(200, 1 << 20, dir);
+        DecodedAudio a = clip(100, -50);
+        cache.put("a", a);
+        cache.put("b", clip(100, 7));    // 内存只放得下一个，a 被淘汰但仍在磁盘
+
+        DecodedAudio back = cache.get("a");
+        assertNotNull(back);
+        assertEquals(1, cache.getDiskHits());
+        assertEquals(a.sampleRate, back.sampleRate);
+        assertEquals(a.channels, back.channels);
+        assertArrayEquals(a.samples, back.samples);
+
+        // 新实例（进程重启）仍可从磁盘命中
+        DecodedAudioCache reopened = new DecodedAudioCache(200, 1 << 20, dir);
+        assertNotNull(reopened.get("b"));
+        assertEquals(1, reopened.getDiskHits());
+    }
+
+    @Test
+    public void diskTierStaysWithinBudget() {
+        // 每个文件 12 + 200 字节，预算只够 2 个
+        DecodedAudioCache cache = new DecodedAudioCache(0, 500, dir);
+        cache.put("a", clip(100, 0));
+        cache.put("b", clip(100, 0));
+        cache.put("c", clip(100, 0));
+        assertTrue(cache.getDiskBytes() <= 500);
+        assertNotNull(cache.get("c"));
+    }
+}
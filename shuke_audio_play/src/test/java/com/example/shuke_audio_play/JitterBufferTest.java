@@ -0,0 +1,74 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JitterBuffer 本地单元测试：初始目标、抖动增长、欠载补偿与回落、上下限
+ */
+public class JitterBufferTest {
+
+    @Test
+    public void startsAtInitialTarget() {
+        assertEquals(300, new JitterBuffer(300, 60, 2000).targetMs());
+        assertEquals(60, new JitterBuffer(10, 60, 2000).targetMs());
+        assertEquals(500, new JitterBuffer(900, 60, 500).targetMs());
+    }
+
+    @Test
+    public void steadyArrivalsShrinkTowardMinimum() {
+        JitterBuffer jb = new JitterBuffer(300, 60, 2000);
+        long t = 0;
+        for (int i = 0; i < 100; i++) {
+            jb.onArrival(t);
+            jb.onSegmentPlayed();
+            t += 200;
+        }
+        assertEquals(0, jb.jitterMs());
+        assertEquals(60, jb.targetMs(), 2);
+    }
+
+    @Test
+    public void irregularArrivalsRaiseTarget() {
+        JitterBuffer steady = new JitterBuffer(60, 60, 2000);
+        JitterBuffer bursty = new JitterBuffer(60, 60, 2000);
+        long a = 0;
+        long b = 0;
+        for (int i = 0; i < 200; i++) {
+            steady.onArrival(a);
+            bursty.onArrival(b);
+            a += 200;
+            b += (i % 2 == 0) ? 20 : 380;  // 同样的平均间隔，忽快忽慢
+        }
+        assertTrue(bursty.jitterMs() > 100);
+        assertTrue(bursty.targetMs() > steady.targetMs() + 200);
+    }
+
+    @Test
+    public void underrunBoostsThenDecays() {
+        JitterBuffer jb = new JitterBuffer(60, 60, 2000);
+        jb.onUnderrun(400);
+        assertEquals(1, jb.underruns());
+        long boosted = jb.targetMs();
+        assertEquals(460, boosted);
+        for (int i = 0; i < 10; i++) jb.onSegmentPlayed();
+        assertTrue(jb.targetMs() < boosted);
+        assertTrue(jb.targetMs() >= 60);
+    }
+
+    @Test
+    public void targetIsCappedAndBreaksAreIgnored() {
+        JitterBuffer jb = new JitterBuffer(300, 60, 1000);
+        for (int i = 0; i < 10; i++) jb.onUnderrun(800);
+        assertEquals(1000, jb.targetMs());
+
+        JitterBuffer gaps = new JitterBuffer(60, 60, 2000);
+        gaps.onArrival(0);
+        gaps.onArrival(200);
+        gaps.onArrival(400);
+        gaps.onArrival(400 + JitterBuffer.STREAM_BREAK_MS + 1);  // 两轮输入之间的停顿
+        gaps.onArrival(600 + JitterBuffer.STREAM_BREAK_MS + 1);
+        assertEquals(0, gaps.jitterMs());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * LevelMeter 本地单元测试：正弦/方波的 RMS 与峰值 dBFS、削波计数、窗口切分跨越缓冲边界、峰值保持与回落、
+ * 交错立体声输出；并校验与 shuke_recorder 中的副本除 package 外一致
+ */
+public class LevelMeterTest {
+
+    private static final int RATE = 16000;
+
+    private static short[] sine(int n, double amp) {
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) Math.round(amp * Math.sin(2 * Math.PI * 1000 * i / RATE));
+        return s;
+    }
+
+    @Test
+    public void sineAndSquareLevels() {
+        LevelMeter m = new LevelMeter(RATE, 1, 0, 0);
+        m.process(sine(RATE, 32767), 0, RATE);
+        assertEquals(-3.01f, m.rmsDbfs(), 0.05f);
+        assertEquals(0f, m.peakDbfs(), 0.01f);
+
+        short[] half = sine(RATE, 16384);
+        m.process(half, 0, half.length);
+        assertEquals(-9.03f, m.rmsDbfs(), 0.05f);
+        assertEquals(-6.02f, m.peakDbfs(), 0.05f);
+
+        short[] square = new short[100];
+        for (int i = 0; i < square.length; i++) square[i] = (short) (i % 2 == 0 ? 8192 : -8192);
+        m.process(square, 0, square.length);
+        assertEquals(-12.04f, m.rmsDbfs(), 0.01f);
+        assertEquals(m.rmsDbfs(), m.peakDbfs(), 0.01f);
+    }
+
+    @Test
+    public void silenceIsFloor() {
+        LevelMeter m = new LevelMeter(RATE, 1, 0, 0);
+        m.process(new short[320], 0, 320);
+        assertEquals(LevelMeter.SILENCE_DBFS, m.rmsDbfs(), 0f);
+        assertEquals(LevelMeter.SILENCE_DBFS, m.peakDbfs(), 0f);
+    }
+
+    @Test
+    public void countsClippedSamples() {
+        LevelMeter m = new LevelMeter(RATE, 1, 0, 0);
+        short[] s = {0, 32767, -32768, 32766, -32767, 100};
+        m.process(s, 0, s.length);
+        assertEquals(3, m.clipCount());
+        m.process(s, 1, 1);
+        assertEquals(4, m.clipCount());
+        assertEquals(32767, m.peak());
+    }
+
+    @Test
+    public void windowsSpanBufferBoundaries() {
+        // 10ms 窗口 = 160 样本；按 100 样本一块送入
+        LevelMeter m = new LevelMeter(RATE, 1, 10, 0);
+        short[] loud = new short[100];
+        java.util.Arrays.fill(loud, (short) 1000);
+        assertEquals(0, m.process(loud, 0, 100));
+        assertEquals(1, m.process(loud, 0, 100));
+        assertEquals(1, m.windowCount());
+        assertEquals(1000f, m.rms(), 0.01f);
+        assertEquals(3, m.process(new short[500], 0, 500));   // 剩余 40 + 160×3
+        assertEquals(4, m.windowCount());
+        assertEquals(0f, m.rms(), 0f);
+    }
+
+    @Test
+    public void stereoWindowCountsAllChannels() {
+        LevelMeter m = new LevelMeter(RATE, 2, 10, 0);
+        assertEquals(1, m.process(new short[320], 0, 320));
+    }
+
+    @Test
+    public void peakHoldThenRelease() {
+        LevelMeter m = new LevelMeter(RATE, 1, 10, 50);   // 50ms 保持 = 5 个窗口
+        short[] w = new short[160];
+        w[3] = 20000;
+        m.process(w, 0, w.length);
+        short[] quiet = new short[160];
+        quiet[0] = 100;
+        for (int i = 0; i < 4; i++) {
+            m.process(quiet, 0, quiet.length);
+            assertEquals(LevelMeter.toDbfs(20000), m.heldPeakDbfs(), 0.01f);
+            assertEquals(LevelMeter.toDbfs(100), m.peakDbfs(), 0.01f);
+        }
+        m.process(quiet, 0, quiet.length);
+        assertEquals(LevelMeter.toDbfs(100), m.heldPeakDbfs(), 0.01f);
+    }
+
+    @Test
+    public void interleavedStereoUsesBothChannels() {
+        // 左声道静音、右声道满幅方波：RMS 按全部样本统计，峰值取两声道最大值
+        LevelMeter m = new LevelMeter(RATE, 2, 0, 0);
+        short[] s = new short[640];
+        for (int i = 1; i < s.length; i += 2) s[i] = (short) ((i / 2) % 2 == 0 ? 16384 : -16384);
+        m.process(s, 0, s.length);
+        assertEquals(LevelMeter.toDbfs(16384) - 3.01f, m.rmsDbfs(), 0.05f);
+        assertEquals(LevelMeter.toDbfs(16384), m.peakDbfs(), 0.01f);
+    }
+
+    @Test
+    public void matchesRecorderCopy() throws Exception {
+        File here = new File("src/main/java/com/example/shuke_audio_play/LevelMeter.java");
+        File other = new File("../shuke_recorder/src/main/java/com/example/shuke_recorder/LevelMeter.java");
+        Assume.assumeTrue(here.isFile() && other.isFile());
+        String a = new String(Files.readAllBytes(here.toPath()), StandardCharsets.UTF_8)
+                .replace("package com.example.shuke_audio_play;", "");
+        String b = new String(Files.readAllBytes(other.toPath()), StandardCharsets.UTF_8)
+                .replace("package com.example.shuke_recorder;", "");
+        assertEquals("两个模块的 LevelMeter 副本不一致，请同步修改", b, a);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * PlaybackStats 本地单元测试：阶段耗时、相邻片段间隔与分位数
+ */
+public class PlaybackStatsTest {
+
+    @Test
+    public void timelineAndGap() {
+        PlaybackStats stats = new PlaybackStats();
+        stats.mark(0, PlaybackStats.ENQUEUED, 1000);
+        stats.mark(0, PlaybackStats.DECODED, 1010);
+        stats.mark(0, PlaybackStats.READY, 1030);
+        stats.mark(0, PlaybackStats.PREPARED, 1080);
+        stats.onStarted(0, 1100);
+        PlaybackStats.TaskTiming t0 = stats.onCompleted(0, 2100);
+        assertNotNull(t0);
+        assertEquals(100, t0.between(PlaybackStats.ENQUEUED, PlaybackStats.STARTED));
+        assertEquals(-1, t0.gapMs);
+
+        stats.mark(1, PlaybackStats.ENQUEUED, 1500);
+        stats.onStarted(1, 2140);
+        PlaybackStats.TaskTiming t1 = stats.onCompleted(1, 3000);
+        assertEquals(40, t1.gapMs);
+        assertEquals(-1, t1.between(PlaybackStats.READY, PlaybackStats.PREPARED));
+
+        Map<String, long[]> s = stats.summaries();
+        assertEquals(1, s.get("gap")[0]);
+        assertEquals(40, s.get("gap")[1]);
+        assertEquals(2, s.get("enqueueToStart")[0]);
+        assertEquals(2, stats.completedCount());
+    }
+
+    @Test
+    public void gapOnlyBetweenAdjacentIdsAndResetByClear() {
+        PlaybackStats stats = new PlaybackStats();
+        stats.onStarted(0, 0);
+        stats.onCompleted(0, 100);
+        stats.onStarted(2, 150);   // 跳过了 1：不计间隔
+        stats.onCompleted(2, 200);
+        stats.resetTasks();
+        stats.onStarted(3, 300);   // clear 之后：不计间隔
+        assertEquals(0, stats.summaries().get("gap")[0]);
+    }
+
+    @Test
+    public void percentilesUseNearestRank() {
+        PlaybackStats.LatencyWindow w = new PlaybackStats.LatencyWindow(100);
+        for (int i = 100; i >= 1; i--) w.add(i);
+        long[] s = w.summary();
+        assertEquals(100, s[0]);
+        assertEquals(50, s[1]);
+        assertEquals(95, s[2]);
+        assertEquals(99, s[3]);
+        assertEquals(100, s[4]);
+
+        // 窗口满后只保留最近的样本
+        for (int i = 0; i < 100; i++) w.add(1000);
+        assertEquals(1000, w.summary()[1]);
+        assertEquals(200, w.summary()[0]);
+    }
+}
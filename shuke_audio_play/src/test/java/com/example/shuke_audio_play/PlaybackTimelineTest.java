@@ -0,0 +1,97 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * PlaybackTimeline 本地单元测试：全局位置换算、定位到片段、历史 PCM 释放，
+ * 以及 StreamSource 按 seek 偏移开始读取
+ */
+public class PlaybackTimelineTest {
+
+    private static DecodedAudio clip(int ms) {
+        return new DecodedAudio(new short[16 * ms], 16000, 1);
+    }
+
+    private static PlaybackTimeline threeSegments() {
+        PlaybackTimeline t = new PlaybackTimeline();
+        t.add(0, 1000, clip(1000));
+        t.add(1, 500, clip(500));
+        t.add(2, 2000, clip(2000));
+        return t;
+    }
+
+    @Test
+    public void positionsAreConcatenated() {
+        PlaybackTimeline t = threeSegments();
+        assertEquals(3500, t.durationMs());
+        assertEquals(250, t.positionOf(0, 250));
+        assertEquals(1200, t.positionOf(1, 200));
+        assertEquals(1500, t.positionOf(2, 0));
+        assertEquals(3500, t.positionOf(2, 9999));   // 片段内位置超出时取片段末尾
+        assertEquals(-1, t.positionOf(7, 0));
+    }
+
+    @Test
+    public void indexAtMapsToSegment() {
+        PlaybackTimeline t = threeSegments();
+        assertEquals(0, t.indexAt(0, false));
+        assertEquals(0, t.indexAt(999, false));
+        assertEquals(1, t.indexAt(1000, false));
+        assertEquals(2, t.indexAt(1600, false));
+        assertEquals(2, t.indexAt(99999, false));
+        assertEquals(0, t.indexAt(-5, false));
+        assertEquals(-1, new PlaybackTimeline().indexAt(0, false));
+    }
+
+    @Test
+    public void droppedHistoryIsNotSeekable() {
+        PlaybackTimeline t = threeSegments();
+        t.dropAudioBefore(1200);                     // 只有结束于 1200 之前的片段 0 被释放
+        assertNull(t.get(0).audio);
+        assertNotNull(t.get(1).audio);
+        assertEquals(1, t.indexAt(100, true));       // 早于可用范围时落到第一个仍有 PCM 的片段
+        assertEquals(0, t.indexAt(100, false));
+        assertEquals(250, t.positionOf(0, 250));     // 时长信息仍保留
+
+        t.dropAudioBefore(10_000);
+        assertEquals(-1, t.indexAt(0, true));
+    }
+
+    @Test
+    public void sourceStartsAtSeekOffset() {
+        StreamSource s = new StreamSource(new NoopCallback());
+        short[] samples = new short[16000];
+        for (int i = 0; i < samples.length; i++) samples[i] = (short) i;
+        s.prepared.add(StreamSource.prepare(
+                new StreamSource.Segment(5, new DecodedAudio(samples, 16000, 1), 250, 1f), 16000, 1, 1f, 1f));
+        s.syncLocked();
+
+        short[] out = new short[100];
+        assertEquals(100, s.read(out, 100, 0, 16000, 1));
+        assertEquals(4000, out[0]);                  // 250ms @16kHz
+        assertEquals(4099, out[99]);
+    }
+
+    @Test
+    public void pausedSourceOutputsNothing() {
+        StreamSource s = new StreamSource(new NoopCallback());
+        s.prepared.add(StreamSource.prepare(new StreamSource.Segment(0, clip(100), 0, 1f), 16000, 1, 1f, 1f));
+        s.syncLocked();
+        s.paused = true;
+        assertFalse(s.hasReady());
+        assertEquals(0, s.read(new short[160], 160, 0, 16000, 1));
+        s.paused = false;
+        assertTrue(s.hasReady());
+        assertEquals(160, s.read(new short[160], 160, 0, 16000, 1));
+    }
+
+    private static final class NoopCallback implements StreamSource.Callback {
+        @Override public void onSegmentStart(int id) {}
+        @Override public void onSegmentProgress(int id, long positionMs, long durationMs) {}
+        @Override public void onSegmentComplete(int id) {}
+        @Override public void onDrained() {}
+        @Override public void onError(int id, String message) {}
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.shuke_audio_play;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * 重排缓冲微基准：ReorderBuffer vs TreeMap&lt;Integer, T&gt;（旧实现）
+ * - 模拟 CHUNKS 个片段在小窗口内乱序到达，到齐即按序取出（与 AudioQueuePlayer 的入队/完成路径一致）
+ * - 手动运行 main()，输出 ns/chunk（取多轮最好成绩），只看两者的相对差距；不参与单元测试，
+ *   两种实现出队顺序一致由 ReorderBufferTest.drainsInSameOrderAsTreeMap 校验
+ */
+public class ReorderBufferBenchmark {
+
+    private static final int CHUNKS = 20_000;
+    private static final int JITTER_WINDOW = 8;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    private static final Object TASK = new Object();
+
+    public static void main(String[] args) {
+        int[] arrivals = arrivals(CHUNKS, JITTER_WINDOW, 42L);
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runTreeMap(arrivals);
+            runReorderBuffer(arrivals);
+        }
+        long tree = Long.MAX_VALUE;
+        long ring = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            runTreeMap(arrivals);
+            long t1 = System.nanoTime();
+            runReorderBuffer(arrivals);
+            long t2 = System.nanoTime();
+            tree = Math.min(tree, t1 - t0);
+            ring = Math.min(ring, t2 - t1);
+        }
+        System.out.printf("ReorderBufferBenchmark chunks=%d window=%d%n", CHUNKS, JITTER_WINDOW);
+        System.out.printf("  TreeMap<Integer,T> : %.1f ns/chunk%n", (double) tree / CHUNKS);
+        System.out.printf("  ReorderBuffer<T>   : %.1f ns/chunk%n", (double) ring / CHUNKS);
+    }
+
+    /** 返回按序取出的 ID 校验和 */
+    static long runTreeMap(int[] arrivals) {
+        TreeMap<Integer, Object> map = new TreeMap<>();
+        int expected = 0;
+        long checksum = 0;
+        for (int id : arrivals) {
+            map.put(id, TASK);
+            while (map.containsKey(expected)) {
+                map.remove(expected);
+                checksum = checksum * 31 + expected;
+                expected++;
+            }
+        }
+        return checksum;
+    }
+
+    static long runReorderBuffer(int[] arrivals) {
+        ReorderBuffer<Object> buf = new ReorderBuffer<>(64);
+        int expected = 0;
+        long checksum = 0;
+        for (int id : arrivals) {
+            buf.put(id, TASK);
+            while (buf.contains(expected)) {
+                buf.remove(expected);
+                checksum = checksum * 31 + expected;
+                expected++;
+                buf.advanceTo(expected);
+            }
+        }
+        return checksum;
+    }
+
+    /** 0..n-1 在每个 window 大小的块内打乱，模拟网络乱序 */
+    static int[] arrivals(int n, int window, long seed) {
+        Random rnd = new Random(seed);
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) ids[i] = i;
+        for (int start = 0; start < n; start += window) {
+            int end = Math.min(n, start + window);
+            for (int i = end - 1; i > start; i--) {
+                int j = start + rnd.nextInt(i - start + 1);
+                int tmp = ids[i];
+                ids[i] = ids[j];
+                ids[j] = tmp;
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ReorderBuffer 本地单元测试：乱序入队、按 ID 取出、扩容与窗口边界、远端 ID 的溢出区与迁回
+ */
+public class ReorderBufferTest {
+
+    @Test
+    public void putGetRemove() {
+        ReorderBuffer<String> buf = new ReorderBuffer<>(4);
+        assertTrue(buf.isEmpty());
+        assertNull(buf.put(0, "a"));
+        assertNull(buf.put(2, "c"));
+        assertEquals("c", buf.get(2));
+        assertTrue(buf.contains(0));
+        assertFalse(buf.contains(1));
+        assertEquals(2, buf.size());
+
+        assertEquals("c", buf.put(2, "c2"));
+        assertEquals(2, buf.size());
+
+        assertEquals("a", buf.remove(0));
+        assertNull(buf.remove(0));
+        assertEquals(1, buf.size());
+        assertEquals(2, buf.firstId());
+        assertEquals(2, buf.lastId());
+    }
+
+    @Test
+    public void outOfOrderArrivalDrainsInOrder() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(2);
+        int[] arrivals = {3, 1, 0, 5, 2, 4, 7, 6};
+        List<Integer> played = new ArrayList<>();
+        int expected = 0;
+        for (int id : arrivals) {
+            buf.put(id, id);
+            while (buf.contains(expected)) {
+                played.add(buf.remove(expected));
+                expected++;
+                buf.advanceTo(expected);
+            }
+        }
+        assertTrue(buf.isEmpty());
+        assertEquals(8, played.size());
+        for (int i = 0; i < played.size(); i++) assertEquals(i, (int) played.get(i));
+    }
+
+    @Test
+    public void growsAndKeepsEntries() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(4);
+        for (int id = 0; id < 100; id += 3) buf.put(id, id);
+        for (int id = 0; id < 100; id++) {
+            if (id % 3 == 0) assertEquals(id, (int) buf.get(id));
+            else assertNull(buf.get(id));
+        }
+        assertEquals(0, buf.firstId());
+        assertEquals(99, buf.lastId());
+    }
+
+    @Test
+    public void wrapsAroundAfterAdvancing() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(8);
+        for (int base = 0; base < 1000; base++) {
+            buf.put(base + 7, base + 7);
+            assertEquals(base + 7, buf.lastId());
+            buf.remove(base + 7);
+            buf.advanceTo(base + 1);
+        }
+        assertTrue(buf.isEmpty());
+        assertEquals(1000, buf.base());
+    }
+
+    @Test
+    public void lastIdFollowsRemovals() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(16);
+        buf.put(1, 1);
+        buf.put(4, 4);
+        buf.put(9, 9);
+        buf.remove(9);
+        assertEquals(4, buf.lastId());
+        buf.remove(4);
+        assertEquals(1, buf.lastId());
+    }
+
+    @Test
+    public void advanceDropsStaleEntries() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(8);
+        buf.put(0, 0);
+        buf.put(1, 1);
+        buf.put(5, 5);
+        buf.advanceTo(2);
+        assertEquals(1, buf.size());
+        assertNull(buf.get(0));
+        assertFalse(buf.accepts(1));
+        assertEquals(5, buf.firstId());
+    }
+
+    @Test
+    public void resetMovesBase() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(8);
+        buf.put(3, 3);
+        buf.reset(10);
+        assertTrue(buf.isEmpty());
+        assertEquals(10, buf.base());
+        assertFalse(buf.accepts(9));
+        buf.put(10, 10);
+        assertEquals(10, buf.firstId());
+    }
+
+    @Test
+    public void rejectsIdsBelowBase() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(8, 32);
+        buf.reset(5);
+        assertFalse(buf.accepts(4));
+        assertTrue(buf.accepts(5));
+        try {
+            buf.put(4, 4);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void farIdsGoToOverflowAndMigrateBack() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(8, 32);
+        assertTrue(buf.inWindow(31));
+        assertFalse(buf.inWindow(32));
+        assertTrue(buf.accepts(1_000_000));
+        buf.put(1, 1);
+        buf.put(40, 40);
+        buf.put(1_000_000, 1_000_000);
+        assertEquals(3, buf.size());
+        assertEquals(40, (int) buf.get(40));
+        assertEquals(1_000_000, buf.lastId());
+        assertEquals(40, buf.lowerId(1_000_000));
+        assertEquals(1, buf.lowerId(40));
+        assertEquals(-1, buf.lowerId(1));
+
+        // 前移后 40 落入窗口，迁回环形部分；低于 base 的 1 被丢弃
+        buf.advanceTo(20);
+        assertEquals(2, buf.size());
+        assertNull(buf.get(1));
+        assertEquals(40, buf.firstId());
+        assertEquals(40, (int) buf.remove(40));
+        assertEquals(1_000_000, buf.firstId());
+
+        // 直接跳到远端 ID（缺口超时）：溢出条目成为队头
+        buf.advanceTo(1_000_000);
+        assertEquals(1, buf.size());
+        assertEquals(1_000_000, buf.firstId());
+        assertEquals(1_000_000, (int) buf.remove(1_000_000));
+        assertTrue(buf.isEmpty());
+    }
+
+    @Test
+    public void overflowDroppedWhenBaseJumpsPast() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(8, 32);
+        buf.put(100, 100);
+        buf.put(200, 200);
+        buf.advanceTo(150);
+        assertEquals(1, buf.size());
+        assertNull(buf.get(100));
+        assertEquals(200, buf.firstId());
+        List<Integer> ids = new ArrayList<>();
+        buf.forEach((id, v) -> ids.add(id));
+        assertEquals(1, ids.size());
+        buf.clear();
+        assertTrue(buf.isEmpty());
+        assertNull(buf.get(200));
+    }
+
+    @Test
+    public void forEachVisitsAscending() {
+        ReorderBuffer<Integer> buf = new ReorderBuffer<>(8);
+        buf.put(6, 6);
+        buf.put(2, 2);
+        buf.put(4, 4);
+        buf.put(70_000, 70_000);
+        List<Integer> ids = new ArrayList<>();
+        buf.forEach((id, v) -> ids.add(id));
+        assertEquals(4, ids.size());
+        assertEquals(2, (int) ids.get(0));
+        assertEquals(4, (int) ids.get(1));
+        assertEquals(6, (int) ids.get(2));
+        assertEquals(70_000, (int) ids.get(3));
+    }
+
+    @Test
+    public void drainsInSameOrderAsTreeMap() {
+        int[] arrivals = ReorderBufferBenchmark.arrivals(2_000, 8, 42L);
+        assertEquals(ReorderBufferBenchmark.runTreeMap(arrivals), ReorderBufferBenchmark.runReorderBuffer(arrivals));
+    }
+}
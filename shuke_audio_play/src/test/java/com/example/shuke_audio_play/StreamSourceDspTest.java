@@ -0,0 +1,237 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * StreamSource 输出 DSP 本地单元测试：在合成 PCM 上验证交叉淡化、每任务增益、flush 淡出/淡入没有突变，
+ * 以及稳态逐缓冲读取不分配内存
+ */
+public class StreamSourceDspTest {
+
+    private static final int RATE = 16000;
+    private static final int CHUNK = RATE / 50;  // 与引擎一致的 20ms 写入块
+
+    private static DecodedAudio dc(int ms, int value) {
+        short[] s = new short[RATE * ms / 1000];
+        Arrays.fill(s, (short) value);
+        return new DecodedAudio(s, RATE, 1);
+    }
+
+    private static StreamSource source(int crossfadeMs, int fadeMs) {
+        StreamSource s = new StreamSource(new NoopCallback());
+        s.crossfadeMs = crossfadeMs;
+        s.fadeMs = fadeMs;
+        return s;
+    }
+
+    private static void append(StreamSource s, int id, DecodedAudio audio, float gain) {
+        s.prepared.add(StreamSource.prepare(new StreamSource.Segment(id, audio, 0, gain), RATE, 1, 1f, 1f));
+        s.syncLocked();
+    }
+
+    /** 按 20ms 块读空，返回拼接后的输出 */
+    private static short[] drain(StreamSource s, int maxFrames) {
+        short[] all = new short[maxFrames];
+        short[] buf = new short[CHUNK];
+        int total = 0;
+        int n;
+        while (total < maxFrames && (n = s.read(buf, Math.min(CHUNK, maxFrames - total), total, RATE, 1)) > 0) {
+            System.arraycopy(buf, 0, all, total, n);
+            total += n;
+        }
+        return Arrays.copyOf(all, total);
+    }
+
+    private static int maxStep(short[] pcm) {
+        int max = 0;
+        for (int i = 1; i < pcm.length; i++) max = Math.max(max, Math.abs(pcm[i] - pcm[i - 1]));
+        return max;
+    }
+
+    @Test
+    public void hardCutWithoutDsp() {
+        // 对照：不开 DSP 时相邻片段直接相接，边界处是完整的阶跃
+        StreamSource s = source(0, 0);
+        append(s, 0, dc(200, 10000), 1f);
+        append(s, 1, dc(200, -10000), 1f);
+        short[] out = drain(s, RATE);
+        assertEquals(RATE * 400 / 1000, out.length);
+        assertEquals(20000, maxStep(out));
+    }
+
+    @Test
+    public void crossfadeRemovesStepBetweenIds() {
+        StreamSource s = source(10, 0);
+        append(s, 0, dc(200, 10000), 1f);
+        append(s, 1, dc(200, -10000), 1f);
+        short[] out = drain(s, RATE);
+        int xfade = RATE * 10 / 1000;
+        // 重叠 10ms：总长缩短 xfade 帧，每帧变化不超过 20000 / xfade
+        assertEquals(RATE * 400 / 1000 - xfade, out.length);
+        assertTrue("step " + maxStep(out), maxStep(out) <= 20000 / xfade + 2);
+        assertEquals(10000, out[0]);
+        assertEquals(-10000, out[out.length - 1]);
+    }
+
+    @Test
+    public void crossfadeOfSinesStaysSmooth() {
+        // 两段相位相反的正弦：硬切会跳变约 2 倍振幅
+        int n = RATE / 5;
+        short[] a = new short[n];
+        short[] b = new short[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (short) (8000 * Math.sin(2 * Math.PI * 220 * i / RATE));
+            b[i] = (short) (8000 * Math.sin(2 * Math.PI * 220 * (i + n) / RATE + Math.PI / 2));
+        }
+        StreamSource s = source(8, 0);
+        append(s, 0, new DecodedAudio(a, RATE, 1), 1f);
+        append(s, 1, new DecodedAudio(b, RATE, 1), 1f);
+        double slope = 8000 * 2 * Math.PI * 220 / RATE;
+        assertTrue(maxStep(drain(s, RATE)) < slope * 2);
+    }
+
+    @Test
+    public void perTaskGainRampsAtBoundary() {
+        StreamSource s = source(0, 0);
+        append(s, 0, dc(100, 10000), 1f);
+        append(s, 1, dc(100, 10000), 0.5f);
+        short[] out = drain(s, RATE);
+        int ramp = RATE * StreamSource.GAIN_RAMP_MS / 1000;
+        assertEquals(10000, out[0]);
+        assertEquals(5000, out[out.length - 1]);
+        assertTrue("step " + maxStep(out), maxStep(out) <= 5000 / ramp + 2);
+    }
+
+    @Test
+    public void gainAboveOneSaturates() {
+        StreamSource s = source(0, 0);
+        append(s, 0, dc(50, 30000), 2f);
+        short[] out = drain(s, RATE);
+        assertEquals(Short.MAX_VALUE, out[out.length - 1]);
+    }
+
+    @Test
+    public void fadeInAfterSilence() {
+        StreamSource s = source(0, 20);
+        append(s, 0, dc(100, 12000), 1f);
+        short[] out = drain(s, RATE);
+        assertEquals(0, out[0]);
+        assertEquals(12000, out[out.length - 1]);
+        assertTrue(maxStep(out) <= 12000 / (RATE * 20 / 1000) + 2);
+    }
+
+    @Test
+    public void flushFadesOutThenNextFadesIn() {
+        StreamSource s = source(0, 20);
+        append(s, 0, dc(1000, 10000), 1f);
+        short[] head = drain(s, RATE / 10);           // 播了 100ms
+        assertEquals(10000, head[head.length - 1]);
+
+        // clear / seek：旧片段补 20ms 淡出尾巴，新片段从静音淡入
+        s.flushRequested = true;
+        append(s, 1, dc(200, -10000), 1f);
+        short[] tail = drain(s, RATE);
+        int fade = RATE * 20 / 1000;
+        short[] joined = new short[head.length + tail.length];
+        System.arraycopy(head, 0, joined, 0, head.length);
+        System.arraycopy(tail, 0, joined, head.length, tail.length);
+        assertTrue("step " + maxStep(joined), maxStep(joined) <= 10000 / fade + 2);
+        assertEquals(fade + RATE * 200 / 1000, tail.length);
+        assertEquals(-10000, tail[tail.length - 1]);
+    }
+
+    @Test
+    public void flushWithoutFadeCutsImmediately() {
+        StreamSource s = source(0, 0);
+        append(s, 0, dc(1000, 10000), 1f);
+        drain(s, RATE / 10);
+        s.flushRequested = true;
+        append(s, 1, dc(200, -10000), 1f);
+        short[] tail = drain(s, RATE);
+        assertEquals(RATE * 200 / 1000, tail.length);
+        assertEquals(-10000, tail[0]);
+    }
+
+    @Test
+    public void steadyStateReadsDoNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mx.isThreadAllocatedMemorySupported());
+
+        StreamSource s = source(10, 20);
+        for (int i = 0; i < 40; i++) append(s, i, dc(100, (i % 2 == 0 ? 9000 : -9000)), i % 3 == 0 ? 0.5f : 1f);
+        short[] buf = new short[CHUNK];
+        long pos = 0;
+        // 预热：让 JIT 编译读取路径；同时按播放头出队，与引擎渲染循环一致
+        for (int i = 0; i < 50; i++) {
+            pos += s.read(buf, CHUNK, pos, RATE, 1);
+            s.dispatch(pos, 0, RATE);
+        }
+
+        long tid = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 100; i++) {
+            pos += s.read(buf, CHUNK, pos, RATE, 1);
+            s.dispatch(pos, 0, RATE);
+        }
+        long allocated = mx.getThreadAllocatedBytes(tid) - before;
+        assertEquals(0, allocated);
+    }
+
+    @Test
+    public void segmentBoundariesDoNotConvertOrAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mx.isThreadAllocatedMemorySupported());
+
+        // 8kHz 立体声、1.5 倍速的片段：重采样与变速都在 prepare（预处理线程）完成
+        StreamSource s = source(0, 0);
+        StreamSource.Segment[] segs = new StreamSource.Segment[30];
+        for (int i = 0; i < segs.length; i++) {
+            short[] pcm = new short[8000 / 10 * 2];
+            for (int j = 0; j < pcm.length; j++) pcm[j] = (short) (j % 2 == 0 ? 4000 : -4000);
+            segs[i] = StreamSource.prepare(new StreamSource.Segment(i, new DecodedAudio(pcm, 8000, 2), 0, 1f),
+                    RATE, 1, 1.5f, 1f);
+            assertEquals(RATE, segs[i].audio.sampleRate);
+            assertEquals(1, segs[i].audio.channels);
+            assertEquals(100, segs[i].mediaDurationMs);
+            s.prepared.add(segs[i]);
+        }
+        s.syncLocked();
+        short[] buf = new short[CHUNK];
+        long pos = 0;
+        for (int i = 0; i < 20; i++) {
+            pos += s.read(buf, CHUNK, pos, RATE, 1);
+            s.dispatch(pos, 0, RATE);
+        }
+
+        long tid = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        DecodedAudio last = segs[29].audio;
+        // 约 10 个片段边界
+        for (int i = 0; i < 40; i++) {
+            pos += s.read(buf, CHUNK, pos, RATE, 1);
+            s.dispatch(pos, 0, RATE);
+        }
+        long allocated = mx.getThreadAllocatedBytes(tid) - before;
+        assertEquals(0, allocated);
+        assertSame(last, segs[29].audio);
+    }
+
+    private static final class NoopCallback implements StreamSource.Callback {
+        @Override public void onSegmentStart(int id) {}
+        @Override public void onSegmentProgress(int id, long positionMs, long durationMs) {}
+        @Override public void onSegmentComplete(int id) {}
+        @Override public void onDrained() {}
+        @Override public void onError(int id, String message) {}
+    }
+}
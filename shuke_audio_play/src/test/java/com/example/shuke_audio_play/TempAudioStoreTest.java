@@ -0,0 +1,37 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * TempAudioStore 本地单元测试：多个频道共用 cacheDir 时，后建的实例不能清掉先建实例的在用文件
+ */
+public class TempAudioStoreTest {
+
+    @Test
+    public void secondStoreKeepsFirstStoresLiveFiles() throws Exception {
+        File dir = Files.createTempDirectory("temp_store_test").toFile();
+        try {
+            TempAudioStore first = new TempAudioStore(dir);
+            File live = first.write(new byte[]{1, 2, 3});
+            assertTrue(live.exists());
+
+            TempAudioStore second = new TempAudioStore(dir);
+            File other = second.write(new byte[]{4});
+            assertTrue("第二个频道的 store 删掉了第一个频道的文件", live.exists());
+
+            first.delete(live);
+            second.delete(other);
+            assertFalse(live.exists());
+            assertEquals(3, first.getBytesWritten());
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) for (File f : files) f.delete();
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.shuke_audio_play;
+
+import java.util.Random;
+
+/**
+ * WSOLA 变速微基准：每秒音频的处理耗时（ms CPU / s audio）
+ * - 合成类语音信号（带谐波的变频基音 + 噪声 + 音节包络），覆盖 16kHz 单声道（TTS 常见）与 48kHz 立体声
+ * - 手动运行 main() 查看耗时；JVM 上的数字，ARM 真机可按经验放大数倍估算。不参与单元测试，
+ *   各倍速下的输出时长与格式由 TimeStretchTest.speedUpShortensOutputAtCommonRates 校验
+ */
+public class TimeStretchBenchmark {
+
+    private static final int SECONDS = 10;
+    private static final float[] RATES = { 1.25f, 1.5f, 2.0f };
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        run(16000, 1);
+        run(48000, 2);
+    }
+
+    private static void run(int sampleRate, int channels) {
+        DecodedAudio in = speechLike(sampleRate, channels, SECONDS, 7L);
+        System.out.printf("TimeStretchBenchmark %dHz x%d, %ds input%n", sampleRate, channels, SECONDS);
+        for (float rate : RATES) {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) TimeStretch.process(in, rate, 1f);
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                long t0 = System.nanoTime();
+                TimeStretch.process(in, rate, 1f);
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            double msPerSecond = best / 1e6 / SECONDS;
+            System.out.printf("  rate=%.2f : %.2f ms CPU per 1s audio (%.0fx realtime)%n",
+                    rate, msPerSecond, 1000.0 / msPerSecond);
+        }
+    }
+
+    /** 合成类语音：120~220Hz 漂移的基音 + 3 个谐波，4Hz 音节包络，叠加少量噪声 */
+    static DecodedAudio speechLike(int sampleRate, int channels, int seconds, long seed) {
+        Random rnd = new Random(seed);
+        int frames = sampleRate * seconds;
+        short[] s = new short[frames * channels];
+        double phase = 0;
+        for (int i = 0; i < frames; i++) {
+            double t = (double) i / sampleRate;
+            double f0 = 170 + 50 * Math.sin(2 * Math.PI * 0.7 * t);
+            phase += 2 * Math.PI * f0 / sampleRate;
+            double env = 0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t);
+            double v = Math.sin(phase) + 0.5 * Math.sin(2 * phase) + 0.25 * Math.sin(3 * phase)
+                    + 0.05 * rnd.nextGaussian();
+            short sample = (short) Math.max(-32768, Math.min(32767, v * env * 9000));
+            for (int c = 0; c < channels; c++) s[i * channels + c] = sample;
+        }
+        return new DecodedAudio(s, sampleRate, channels);
+    }
+}
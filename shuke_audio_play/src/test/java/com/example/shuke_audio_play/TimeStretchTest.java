@@ -0,0 +1,74 @@
+package com.example.shuke_audio_play;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * TimeStretch 本地单元测试：原速直通、时长比例（含常用倍速下的 16kHz 单声道 / 48kHz 立体声）、变调时长与短片段
+ */
+public class TimeStretchTest {
+
+    @Test
+    public void identityReturnsInput() {
+        DecodedAudio in = TimeStretchBenchmark.speechLike(16000, 1, 1, 1L);
+        assertSame(in, TimeStretch.process(in, 1f, 1f));
+    }
+
+    @Test
+    public void slowDownLengthensOutput() {
+        DecodedAudio in = TimeStretchBenchmark.speechLike(16000, 1, 2, 2L);
+        DecodedAudio out = TimeStretch.process(in, 0.75f, 1f);
+        assertEquals(in.frames() / 0.75, out.frames(), in.frames() * 0.02);
+    }
+
+    @Test
+    public void speedUpShortensOutputAtCommonRates() {
+        int[][] formats = {{16000, 1}, {48000, 2}};
+        for (int[] f : formats) {
+            DecodedAudio in = TimeStretchBenchmark.speechLike(f[0], f[1], 2, 7L);
+            for (float rate : new float[]{1.25f, 1.5f, 2.0f}) {
+                DecodedAudio out = TimeStretch.process(in, rate, 1f);
+                double expected = in.frames() / rate;
+                assertEquals(expected, out.frames(), expected * 0.02);
+                assertEquals(f[0], out.sampleRate);
+                assertEquals(f[1], out.channels);
+            }
+        }
+    }
+
+    @Test
+    public void pitchOnlyKeepsDuration() {
+        DecodedAudio in = TimeStretchBenchmark.speechLike(16000, 1, 2, 3L);
+        DecodedAudio out = TimeStretch.process(in, 1f, 1.5f);
+        assertEquals(in.frames(), out.frames(), in.frames() * 0.02);
+    }
+
+    @Test
+    public void inputIsNotModified() {
+        DecodedAudio in = TimeStretchBenchmark.speechLike(16000, 2, 1, 4L);
+        short[] copy = in.samples.clone();
+        TimeStretch.process(in, 1.5f, 1f);
+        assertArrayEquals(copy, in.samples);
+    }
+
+    @Test
+    public void veryShortClipFallsBackToResample() {
+        DecodedAudio in = new DecodedAudio(new short[100], 16000, 1);
+        DecodedAudio out = TimeStretch.process(in, 2f, 1f);
+        assertEquals(50, out.frames(), 1);
+    }
+
+    @Test
+    public void noHardDiscontinuitiesOnSine() {
+        // 纯正弦变速后相邻采样差不应超过原信号最大斜率的若干倍
+        int rate = 16000;
+        short[] s = new short[rate];
+        for (int i = 0; i < s.length; i++) s[i] = (short) (10000 * Math.sin(2 * Math.PI * 200 * i / rate));
+        DecodedAudio out = TimeStretch.process(new DecodedAudio(s, rate, 1), 1.5f, 1f);
+        double maxStep = 10000 * 2 * Math.PI * 200 / rate;
+        for (int i = 1; i < out.samples.length; i++) {
+            assertTrue("jump at " + i, Math.abs(out.samples[i] - out.samples[i - 1]) < maxStep * 3);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.shuke_recorder;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 🔌 采集总线订阅者 → JS 事件：每块发出 {event:"audio", name, position, samples, sampleRate, format, pcm}
+ * - 在该订阅者自己的线程上回调，PcmTransport 只在这一个线程上使用
+ * - pcm 只支持 base64 / int16（json 逐样本一个键、ring 需要主线程拉取，都不适合总线），其它取值按 base64
+ */
+final class BusAudioEmitter implements CaptureBus.Subscriber {
+
+    /** 事件出口（JS 回调），由订阅者线程调用 */
+    interface Sink {
+        void emit(JSONObject ev);
+    }
+
+    private final String name;
+    private final PcmTransport transport;
+    private final Sink sink;
+
+    BusAudioEmitter(String name, String transport, Sink sink) {
+        this.name = name;
+        this.transport = new PcmTransport(normalize(transport), null);
+        this.sink = sink;
+    }
+
+    static String normalize(String transport) {
+        return PcmTransport.INT16.equals(transport) ? PcmTransport.INT16 : PcmTransport.BASE64;
+    }
+
+    @Override
+    public void onAudio(short[] pcm, int length, long position, int sampleRate) {
+        JSONObject ev = new JSONObject();
+        ev.put("event", "audio");
+        ev.put("name", name);
+        ev.put("position", position);
+        ev.put("samples", length);
+        ev.put("sampleRate", sampleRate);
+        transport.put(ev, pcm, length);
+        sink.emit(ev);
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.shuke_recorder;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 🚌 采集总线：一路采集数据分发给多个订阅者（UI 电平、文件写入、网络上传、唤醒词检测……），各自按自己的节奏消费
+ * - 采集线程 publish() 只把 PCM 拷进无锁环形缓冲就返回，永远不等任何订阅者；分发线程满时丢弃并计入 overrunSamples
+ * - 分发线程按 CHUNK_SAMPLES 切块，拷贝进每个订阅者自己的有界队列（块预分配、循环复用），订阅者在各自线程上回调
+ * - 队列满时按订阅者的策略处理：drop-oldest 丢最旧块、drop-newest 丢当前块、block 让分发线程等待
+ *   （只会拖住分发线程与其它订阅者，环形缓冲写满后同样按溢出丢弃，不会阻塞采集线程）
+ * - 每个订阅者单独统计：排队块数、已送达 / 丢弃块数、滞后样本数（总线已发布位置 − 该订阅者已消费位置）、阻塞时长
+ * - 位置（position）是总线上的样本序号，跨多次录音连续递增；采样率变化时切块不会跨越变化点
+ */
+public final class CaptureBus {
+
+    public static final String DROP_OLDEST = "drop-oldest";
+    public static final String DROP_NEWEST = "drop-newest";
+    public static final String BLOCK = "block";
+
+    /** 订阅者回调（在该订阅者自己的线程上）；pcm 只在回调期间有效，需要保留请自行拷贝 */
+    public interface Subscriber {
+        void onAudio(short[] pcm, int length, long position, int sampleRate);
+    }
+
+    /** 环形缓冲容量：48kHz 下约 2 秒 */
+    static final int RING_SAMPLES = 96_000;
+    /** 分发块上限：48kHz 下 20ms */
+    static final int CHUNK_SAMPLES = 960;
+    static final int DEFAULT_QUEUE_CHUNKS = 32;
+    private static final long IDLE_NS = 5_000_000L;
+    private static final long BLOCK_POLL_MS = 50L;
+
+    private final SpscShortRing ring;
+    private final List<Subscription> subs = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+    private final short[] work = new short[CHUNK_SAMPLES];
+    private Thread dispatcher;
+
+    // 生产者（采集线程）
+    private long written;
+    private int producerRate;
+    private volatile long published;
+    private volatile long overruns;
+    /** 采样率变化点 {位置, 采样率}，只在变化时分配 */
+    private final ConcurrentLinkedQueue<long[]> rateChanges = new ConcurrentLinkedQueue<>();
+
+    // 分发线程
+    private long position;
+    private int rate;
+
+    public CaptureBus() {
+        this(RING_SAMPLES);
+    }
+
+    CaptureBus(int ringSamples) {
+        this.ring = new SpscShortRing(ringSamples);
+    }
+
+    /**
+     * 订阅：queueChunks 为队列容量（块数，≤0 取默认 32），policy 为 drop-oldest / drop-newest / block（其它值按 drop-oldest）
+     */
+    public Subscription subscribe(String name, int queueChunks, String policy, Subscriber subscriber) {
+        Subscription s = new Subscription(this, name, queueChunks > 0 ? queueChunks : DEFAULT_QUEUE_CHUNKS,
+                normalizePolicy(policy), subscriber);
+        synchronized (lock) {
+            subs.add(s);
+            s.start();
+            if (dispatcher == null) {
+                dispatcher = new Thread(this::dispatchLoop, "RecorderBus");
+                dispatcher.start();
+            }
+        }
+        return s;
+    }
+
+    /** 取消订阅：队列中未消费的块直接丢弃，回调线程在当前回调结束后退出 */
+    public void unsubscribe(Subscription s) {
+        if (s == null) return;
+        synchronized (lock) {
+            subs.remove(s);
+        }
+        s.stop();
+        Thread d = dispatcher;
+        if (d != null) LockSupport.unpark(d);
+    }
+
+    public List<Subscription> subscriptions() {
+        return subs;
+    }
+
+    public boolean hasSubscribers() {
+        return !subs.isEmpty();
+    }
+
+    static String normalizePolicy(String policy) {
+        if (DROP_NEWEST.equals(policy) || BLOCK.equals(policy)) return policy;
+        return DROP_OLDEST;
+    }
+
+    /** 采集线程调用（单生产者）：不阻塞，除采样率变化外不分配；没有订阅者时直接返回 */
+    void publish(short[] pcm, int offset, int length, int sampleRate) {
+        if (length <= 0 || subs.isEmpty()) return;
+        if (sampleRate != producerRate) {
+            producerRate = sampleRate;
+            rateChanges.offer(new long[]{written, sampleRate});
+        }
+        int w = ring.write(pcm, offset, length);
+        if (w < length) overruns += length - w;
+        written += w;
+        published = written;
+        Thread d = dispatcher;
+        if (d != null) LockSupport.unpark(d);
+    }
+
+    /** 总线环形缓冲写满（分发跟不上）而丢弃的样本数 */
+    public long overrunSamples() {
+        return overruns;
+    }
+
+    /** 已进入总线的样本总数 */
+    public long publishedSamples() {
+        return published;
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            if (subs.isEmpty()) {
+                synchronized (lock) {
+                    if (subs.isEmpty()) {
+                        position += ring.skip(Integer.MAX_VALUE);
+                        dispatcher = null;
+                        return;
+                    }
+                }
+            }
+            long[] change = rateChanges.peek();
+            while (change != null && change[0] <= position) {
+                rate = (int) change[1];
+                rateChanges.poll();
+                change = rateChanges.peek();
+            }
+            int max = change != null ? (int) Math.min(CHUNK_SAMPLES, change[0] - position) : CHUNK_SAMPLES;
+            int n = ring.read(work, 0, max);
+            if (n <= 0) {
+                LockSupport.parkNanos(IDLE_NS);
+                continue;
+            }
+            for (Subscription s : subs) s.offer(work, n, position, rate);
+            position += n;
+        }
+    }
+
+    private static final class Chunk {
+        final short[] data = new short[CHUNK_SAMPLES];
+        int length;
+        long position;
+        int sampleRate;
+    }
+
+    /** 一个订阅者：自己的有界队列、回调线程与统计 */
+    public static final class Subscription {
+        private final CaptureBus bus;
+        private final String name;
+        private final String policy;
+        private final int capacity;
+        private final Subscriber subscriber;
+        private final ArrayBlockingQueue<Chunk> queue;
+        private final ArrayBlockingQueue<Chunk> free;
+        private final Thread worker;
+        private volatile boolean active = true;
+
+        private volatile long delivered;
+        private volatile long dropped;
+        private volatile long errors;
+        private volatile long blockedNs;
+        private volatile int maxQueued;
+        private volatile long consumedEnd;
+        private volatile long maxLag;
+        private volatile int lastRate;
+
+        Subscription(CaptureBus bus, String name, int capacity, String policy, Subscriber subscriber) {
+            this.bus = bus;
+            this.name = name != null ? name : "subscriber";
+            this.policy = policy;
+            this.capacity = capacity;
+            this.subscriber = subscriber;
+            // 块总数 = 排队上限 + 回调中占用的一块；回调线程还没取走时也可能全部在队列里，队列按总数开容量
+            this.queue = new ArrayBlockingQueue<>(capacity + 1);
+            this.free = new ArrayBlockingQueue<>(capacity + 1);
+            for (int i = 0; i < capacity + 1; i++) free.offer(new Chunk());
+            this.consumedEnd = bus.published;
+            this.worker = new Thread(this::loop, "RecorderBus-" + this.name);
+        }
+
+        void start() {
+            worker.start();
+        }
+
+        void stop() {
+            active = false;
+            worker.interrupt();
+        }
+
+        /** 分发线程调用 */
+        void offer(short[] pcm, int length, long position, int sampleRate) {
+            if (!active) return;
+            Chunk c = free.poll();
+            if (c == null) {
+                if (DROP_NEWEST.equals(policy)) {
+                    dropped++;
+                    return;
+                }
+                if (DROP_OLDEST.equals(policy)) {
+                    c = queue.poll();
+                    if (c == null) c = free.poll();
+                    dropped++;
+                    if (c == null) return;
+                } else {
+                    long t0 = System.nanoTime();
+                    try {
+                        while (active && c == null) c = free.poll(BLOCK_POLL_MS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    blockedNs += System.nanoTime() - t0;
+                    if (c == null) {
+                        dropped++;
+                        return;
+                    }
+                }
+            }
+            System.arraycopy(pcm, 0, c.data, 0, length);
+            c.length = length;
+            c.position = position;
+            c.sampleRate = sampleRate;
+            lastRate = sampleRate;
+            queue.offer(c);
+            int q = queue.size();
+            if (q > maxQueued) maxQueued = q;
+            long lag = position + length - consumedEnd;
+            if (lag > maxLag) maxLag = lag;
+        }
+
+        private void loop() {
+            while (active) {
+                Chunk c;
+                try {
+                    c = queue.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                try {
+                    subscriber.onAudio(c.data, c.length, c.position, c.sampleRate);
+                } catch (Throwable t) {
+                    errors++;
+                }
+                consumedEnd = c.position + c.length;
+                delivered++;
+                free.offer(c);
+            }
+            queue.clear();
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String policy() {
+            return policy;
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        /** 当前排队块数 */
+        public int queued() {
+            return queue.size();
+        }
+
+        public int maxQueued() {
+            return maxQueued;
+        }
+
+        public long delivered() {
+            return delivered;
+        }
+
+        public long dropped() {
+            return dropped;
+        }
+
+        /** 回调抛出异常的次数（异常被吞掉，不影响后续块） */
+        public long errors() {
+            return errors;
+        }
+
+        /** block 策略下分发线程为该订阅者等待的累计时长 */
+        public long blockedMs() {
+            return blockedNs / 1_000_000L;
+        }
+
+        /** 滞后：总线已发布的位置减去该订阅者已消费完的位置（样本数） */
+        public long lagSamples() {
+            return Math.max(0, bus.published - consumedEnd);
+        }
+
+        public long maxLagSamples() {
+            return Math.max(maxLag, lagSamples());
+        }
+
+        public long lagMs() {
+            int r = lastRate;
+            return r > 0 ? lagSamples() * 1000 / r : 0;
+        }
+
+        public long maxLagMs() {
+            int r = lastRate;
+            return r > 0 ? maxLagSamples() * 1000 / r : 0;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.shuke_recorder;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 🧵 录音编码阶段：采集线程把 PCM 拷进无锁环形缓冲，独立工作线程取出后交给 PcmEncoder
+ * - submit() 不阻塞、不分配；编码跟不上时丢弃新数据并计入 droppedSamples
+ * - 每块编码结果带累计字节数与时间戳交给 Callback：分块模式附带数据拷贝，
+ *   文件模式只在音频时间每前进 FILE_PROGRESS_US 时报告一次进度
+ * - finish() 等待工作线程把缓冲中的数据编完并结束编码器，然后返回 EncodeResult
+ */
+final class EncoderStage implements PcmEncoder.ChunkSink {
+
+    interface Callback {
+        void onChunk(RecorderManager.EncodedChunk chunk);
+    }
+
+    /** 编码器以本阶段为输出创建 */
+    interface Factory {
+        PcmEncoder create(PcmEncoder.ChunkSink sink);
+    }
+
+    /** 环形缓冲可容纳的音频时长 */
+    static final int QUEUE_MS = 2000;
+    static final long FILE_PROGRESS_US = 1_000_000L;
+    private static final long IDLE_NS = 10_000_000L;
+
+    private final PcmEncoder encoder;
+    private final int sampleRate;
+    private final String path;
+    private final boolean deliverData;
+    private final Callback callback;
+    private final SpscShortRing ring;
+    private final short[] work;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile long droppedSamples;
+    private volatile String error;
+    private long totalBytes;
+    private long encodedSamples;
+    private long lastReportUs = -1;
+
+    /** path 为输出文件路径，null 表示分块模式（每块附带数据） */
+    EncoderStage(Factory factory, int sampleRate, String path, Callback callback) {
+        this.encoder = factory.create(this);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.path = path;
+        this.deliverData = path == null;
+        this.callback = callback;
+        this.ring = new SpscShortRing(Math.max(1, sampleRate * QUEUE_MS / 1000));
+        this.work = new short[Math.max(1, sampleRate / 50)];
+        this.worker = new Thread(this::loop, "RecorderEncoder");
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    /** 采集线程调用（单生产者） */
+    void submit(short[] pcm, int length) {
+        int written = ring.write(pcm, 0, length);
+        if (written < length) droppedSamples += length - written;
+        LockSupport.unpark(worker);
+    }
+
+    /** 停止接收并等待编码完成 */
+    RecorderManager.EncodeResult finish() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        RecorderManager.EncodeResult r = new RecorderManager.EncodeResult();
+        r.format = encoder.format();
+        r.totalBytes = totalBytes;
+        r.durationMs = encodedSamples * 1000 / sampleRate;
+        r.droppedSamples = droppedSamples;
+        r.error = error;
+        r.path = error == null ? path : null;
+        if (encoder instanceof WavEncoder) {
+            WavEncoder wav = (WavEncoder) encoder;
+            r.wavHeader = wav.finalHeader();
+        }
+        return r;
+    }
+
+    private void loop() {
+        try {
+            encoder.start();
+            while (true) {
+                boolean more = running;
+                int n = ring.read(work, 0, work.length);
+                if (n > 0) {
+                    encoder.encode(work, n);
+                    encodedSamples += n;
+                } else if (!more) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(IDLE_NS);
+                }
+            }
+            encoder.finish();
+        } catch (Throwable t) {
+            error = String.valueOf(t.getMessage());
+            encoder.abort();
+            // 出错后继续读空缓冲，避免采集端统计成丢弃
+            while (running) {
+                ring.skip(Integer.MAX_VALUE);
+                LockSupport.parkNanos(IDLE_NS);
+            }
+        }
+    }
+
+    @Override
+    public void onChunk(byte[] data, int offset, int length, long ptsUs, boolean config) {
+        totalBytes += length;
+        if (callback == null) return;
+        if (!deliverData && !config) {
+            if (lastReportUs >= 0 && ptsUs - lastReportUs < FILE_PROGRESS_US) return;
+            lastReportUs = ptsUs;
+        }
+        RecorderManager.EncodedChunk c = new RecorderManager.EncodedChunk();
+        c.format = encoder.format();
+        c.size = length;
+        c.totalBytes = totalBytes;
+        c.ptsUs = ptsUs;
+        c.config = config;
+        if (deliverData) {
+            c.data = new byte[length];
+            System.arraycopy(data, offset, c.data, 0, length);
+        }
+        callback.onChunk(c);
+    }
+
+    long droppedSamples() {
+        return droppedSamples;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.shuke_recorder;
+
+/**
+ * ✂️ 固定帧长分帧：把 AudioRecord 每次读到的不定长数据重新切成 frameSamples 个样本的等长帧
+ * - 读取线程 offer() 写入 SpscShortRing；分帧线程 drain() 每凑满一帧就从帧池取帧、读满后交给 Emitter
+ * - 帧池耗尽时跳过这一帧的样本（计入帧池 dropped），环形缓冲写满时读取线程丢弃新数据（计入 overruns）
+ * - 帧的时间戳按已输出样本数计算，与设备缓冲大小、线程调度无关
+ * - 停止时不足一帧的尾巴被丢弃
+ */
+final class FrameChunker {
+
+    /** 在分帧线程上收到一帧（接管其引用，负责最终 release）；startSample 为帧首样本在本次录音中的序号 */
+    interface Emitter {
+        void emit(PcmFrame frame, long startSample);
+    }
+
+    /** 环形缓冲至少容纳的帧数，给主线程调度抖动留余量 */
+    static final int RING_FRAMES = 16;
+
+    private final SpscShortRing ring;
+    private final PcmFramePool pool;
+    private final int frameSamples;
+    private final Emitter emitter;
+    private long emittedSamples;
+    private volatile long overruns;
+
+    FrameChunker(int frameSamples, int deviceBufferSamples, PcmFramePool pool, Emitter emitter) {
+        this.frameSamples = Math.max(1, frameSamples);
+        this.pool = pool;
+        this.emitter = emitter;
+        this.ring = new SpscShortRing(Math.max(this.frameSamples * RING_FRAMES, deviceBufferSamples * 4));
+    }
+
+    int frameSamples() {
+        return frameSamples;
+    }
+
+    /** 读取线程：写入设备数据，返回未能写入（被丢弃）的样本数 */
+    int offer(short[] src, int offset, int len) {
+        int lost = len - ring.write(src, offset, len);
+        if (lost > 0) overruns += lost;
+        return lost;
+    }
+
+    /** 分帧线程：输出所有已凑满的帧，返回输出帧数 */
+    int drain() {
+        int count = 0;
+        while (ring.available() >= frameSamples) {
+            PcmFrame frame = pool.acquire();
+            if (frame == null) {
+                ring.skip(frameSamples);
+            } else {
+                ring.read(frame.array(), 0, frameSamples);
+                frame.setLength(frameSamples);
+                emitter.emit(frame, emittedSamples);
+                count++;
+            }
+            emittedSamples += frameSamples;
+        }
+        return count;
+    }
+
+    /** 等待分帧的样本数 */
+    int pending() {
+        return ring.available();
+    }
+
+    long overruns() {
+        return overruns;
+    }
+}
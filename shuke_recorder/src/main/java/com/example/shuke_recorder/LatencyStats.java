@@ -0,0 +1,52 @@
+package com.example.shuke_recorder;
+
+/**
+ * ⏱️ 启动延迟统计：次数、最近一次、平均、最小、最大（毫秒）
+ * - 在采集线程记录，在主线程读取，方法均同步；数据量极小，不需要无锁
+ */
+final class LatencyStats {
+
+    private long count;
+    private long lastMs;
+    private long totalMs;
+    private long minMs;
+    private long maxMs;
+
+    synchronized void record(long ms) {
+        long v = Math.max(0, ms);
+        if (count == 0 || v < minMs) minMs = v;
+        if (v > maxMs) maxMs = v;
+        lastMs = v;
+        totalMs += v;
+        count++;
+    }
+
+    synchronized long count() {
+        return count;
+    }
+
+    synchronized long lastMs() {
+        return lastMs;
+    }
+
+    /** 尚无记录时为 0 */
+    synchronized long meanMs() {
+        return count > 0 ? totalMs / count : 0;
+    }
+
+    synchronized long minMs() {
+        return minMs;
+    }
+
+    synchronized long maxMs() {
+        return maxMs;
+    }
+
+    synchronized void reset() {
+        count = 0;
+        lastMs = 0;
+        totalMs = 0;
+        minMs = 0;
+        maxMs = 0;
+    }
+}
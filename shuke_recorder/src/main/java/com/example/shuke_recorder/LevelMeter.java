@@ -0,0 +1,141 @@
+package com.example.shuke_recorder;
+
+/**
+ * 📈 电平表：峰值、RMS、dBFS 与削波计数（PCM16，交错多声道按全部样本统计）
+ * - 内层循环只有整型乘加、取绝对值与比较，无除法、无浮点、无数据相关分支，便于 JIT 展开/向量化；不分配内存
+ * - 按窗口汇总：每累计 windowMs 的样本发布一次读数（peak / rms / clips）；windowMs=0 时每次 process 自成一个窗口
+ * - 峰值保持：新窗口峰值更低时，保持值维持 peakHoldMs 后才回落到当前窗口峰值
+ * - process 只允许单线程调用；读数为 volatile，可在其它线程读取
+ * - shuke_recorder 与 shuke_audio_play 是分别打包的独立插件，各自保留一份同样的实现（仅 package 不同）；
+ *   修改时两份一起改，shuke_audio_play 的 LevelMeterTest 会比对两份源码
+ */
+final class LevelMeter {
+
+    /** 全零输入的 dBFS 下限（16bit 动态范围） */
+    static final float SILENCE_DBFS = -96f;
+    /** |样本| 达到该值计为一次削波 */
+    static final int CLIP_LEVEL = 32767;
+
+    private final long windowSamples;
+    private final long holdSamples;
+
+    // 当前窗口累计（仅 process 线程）
+    private long accSquares;
+    private int accPeak;
+    private long accCount;
+    private long sinceHold;
+
+    // 已发布读数
+    private volatile int peak;
+    private volatile int heldPeak;
+    private volatile float rms;
+    private volatile long clips;
+    private volatile long windows;
+
+    LevelMeter(int sampleRate, int channels, int windowMs, int peakHoldMs) {
+        long perSecond = (long) Math.max(1, sampleRate) * Math.max(1, channels);
+        this.windowSamples = perSecond * Math.max(0, windowMs) / 1000;
+        this.holdSamples = perSecond * Math.max(0, peakHoldMs) / 1000;
+    }
+
+    /** 累计 samples 个样本；返回本次调用发布的窗口数 */
+    int process(short[] pcm, int offset, int samples) {
+        int published = 0;
+        int pos = offset;
+        int end = offset + samples;
+        while (pos < end) {
+            int n = end - pos;
+            if (windowSamples > 0) n = (int) Math.min(n, windowSamples - accCount);
+            accumulate(pcm, pos, pos + n);
+            pos += n;
+            if (windowSamples == 0 ? pos == end : accCount >= windowSamples) {
+                publish();
+                published++;
+            }
+        }
+        return published;
+    }
+
+    /** 热点循环：平方和、峰值、削波数 */
+    private void accumulate(short[] pcm, int from, int to) {
+        long squares = 0;
+        int max = accPeak;
+        int clipped = 0;
+        for (int i = from; i < to; i++) {
+            int v = pcm[i];
+            squares += v * v;
+            int a = Math.abs(v);
+            max = Math.max(max, a);
+            clipped += a >= CLIP_LEVEL ? 1 : 0;
+        }
+        accSquares += squares;
+        accPeak = max;
+        accCount += to - from;
+        if (clipped != 0) clips += clipped;
+    }
+
+    private void publish() {
+        if (accCount == 0) return;
+        rms = (float) Math.sqrt((double) accSquares / accCount);
+        peak = accPeak;
+        sinceHold += accCount;
+        if (accPeak >= heldPeak || sinceHold >= holdSamples) {
+            heldPeak = accPeak;
+            sinceHold = 0;
+        }
+        windows++;
+        accSquares = 0;
+        accPeak = 0;
+        accCount = 0;
+    }
+
+    /** 最近一个窗口的峰值（0~32768） */
+    int peak() {
+        return peak;
+    }
+
+    float peakDbfs() {
+        return toDbfs(peak);
+    }
+
+    /** 带保持的峰值 dBFS，适合 UI 显示 */
+    float heldPeakDbfs() {
+        return toDbfs(heldPeak);
+    }
+
+    /** 最近一个窗口的 RMS（线性，0~32768） */
+    float rms() {
+        return rms;
+    }
+
+    /** 最近一个窗口的 RMS dBFS（满幅方波为 0，满幅正弦约 -3） */
+    float rmsDbfs() {
+        return toDbfs(rms);
+    }
+
+    /** 累计削波样本数 */
+    long clipCount() {
+        return clips;
+    }
+
+    long windowCount() {
+        return windows;
+    }
+
+    void reset() {
+        accSquares = 0;
+        accPeak = 0;
+        accCount = 0;
+        sinceHold = 0;
+        peak = 0;
+        heldPeak = 0;
+        rms = 0;
+        clips = 0;
+        windows = 0;
+    }
+
+    static float toDbfs(double amplitude) {
+        if (amplitude <= 0) return SILENCE_DBFS;
+        return (float) Math.max(SILENCE_DBFS, 20 * Math.log10(amplitude / 32768.0));
+    }
+}
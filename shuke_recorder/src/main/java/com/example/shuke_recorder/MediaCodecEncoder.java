@@ -0,0 +1,209 @@
+package com.example.shuke_recorder;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 🎚️ 基于 MediaCodec 的 AAC-LC / Opus 流式编码（同步模式，在 EncoderStage 工作线程上运行）
+ * - 文件模式：AAC 经 MediaMuxer 写 .m4a；Opus 写 .ogg（MUXER_OUTPUT_OGG，API 29+）
+ * - 分块模式：AAC 每个访问单元前加 7 字节 ADTS 头，可直接拼接成 .aac 流；Opus 每块为一个原始包，
+ *   首块（config）为编码器给出的 Opus 头
+ * - Opus 编码器 API 29+ 才有，且采样率需为 8/12/16/24/48 kHz
+ */
+final class MediaCodecEncoder implements PcmEncoder {
+
+    static final String AAC = "aac";
+    static final String OPUS = "opus";
+
+    private static final long DEQUEUE_TIMEOUT_US = 10_000L;
+    private static final long EOS_TIMEOUT_US = 500_000L;
+    private static final int ADTS_HEADER_BYTES = 7;
+
+    private final String format;
+    private final File file;
+    private final int sampleRate;
+    private final int channels;
+    private final int bitrate;
+    private final PcmEncoder.ChunkSink sink;
+
+    private MediaCodec codec;
+    private MediaMuxer muxer;
+    private int track = -1;
+    private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+    private long queuedSamples;
+    private byte[] out = new byte[0];
+
+    /** file 为 null 时为分块模式 */
+    MediaCodecEncoder(String format, File file, int sampleRate, int channels, int bitrate, PcmEncoder.ChunkSink sink) {
+        this.format = OPUS.equals(format) ? OPUS : AAC;
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.channels = Math.max(1, channels);
+        this.bitrate = bitrate > 0 ? bitrate : defaultBitrate(this.format, sampleRate);
+        this.sink = sink;
+    }
+
+    static int defaultBitrate(String format, int sampleRate) {
+        if (OPUS.equals(format)) return 24_000;
+        return sampleRate >= 32000 ? 64_000 : 32_000;
+    }
+
+    static String extension(String format) {
+        return OPUS.equals(format) ? "ogg" : "m4a";
+    }
+
+    @Override
+    public String format() {
+        return format;
+    }
+
+    @Override
+    public void start() throws IOException {
+        String mime;
+        if (OPUS.equals(format)) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                throw new IOException("Opus 编码需要 Android 10+");
+            }
+            mime = MediaFormat.MIMETYPE_AUDIO_OPUS;
+        } else {
+            mime = MediaFormat.MIMETYPE_AUDIO_AAC;
+        }
+        MediaFormat mf = MediaFormat.createAudioFormat(mime, sampleRate, channels);
+        mf.setInteger(MediaFormat.KEY_BIT_RATE, bitrate);
+        mf.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, sampleRate / 5 * channels * 2);
+        if (AAC.equals(format)) {
+            mf.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        }
+        codec = MediaCodec.createEncoderByType(mime);
+        codec.configure(mf, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        codec.start();
+        if (file != null) {
+            int container = OPUS.equals(format)
+                    ? MediaMuxer.OutputFormat.MUXER_OUTPUT_OGG
+                    : MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4;
+            muxer = new MediaMuxer(file.getAbsolutePath(), container);
+        }
+        queuedSamples = 0;
+    }
+
+    @Override
+    public void encode(short[] pcm, int length) throws IOException {
+        int off = 0;
+        while (off < length) {
+            int index = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+            if (index < 0) {
+                drain(false);
+                continue;
+            }
+            ByteBuffer in = codec.getInputBuffer(index);
+            in.clear();
+            int n = Math.min(length - off, in.remaining() / 2);
+            in.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(pcm, off, n);
+            codec.queueInputBuffer(index, 0, n * 2, ptsUs(queuedSamples), 0);
+            queuedSamples += n / channels;
+            off += n;
+            drain(false);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        int index = codec.dequeueInputBuffer(EOS_TIMEOUT_US);
+        if (index >= 0) {
+            codec.queueInputBuffer(index, 0, 0, ptsUs(queuedSamples), MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            drain(true);
+        }
+        release(true);
+    }
+
+    @Override
+    public void abort() {
+        release(false);
+    }
+
+    private long ptsUs(long samples) {
+        return samples * 1_000_000L / sampleRate;
+    }
+
+    /** 取出已编码数据；untilEos 为 true 时一直等到输出结束标记（最多 EOS_TIMEOUT_US 无输出） */
+    private void drain(boolean untilEos) {
+        while (true) {
+            int index = codec.dequeueOutputBuffer(info, untilEos ? EOS_TIMEOUT_US : 0);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                return;
+            } else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                if (muxer != null && track < 0) {
+                    track = muxer.addTrack(codec.getOutputFormat());
+                    muxer.start();
+                }
+            } else if (index >= 0) {
+                ByteBuffer buf = codec.getOutputBuffer(index);
+                boolean config = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+                if (buf != null && info.size > 0) {
+                    buf.position(info.offset).limit(info.offset + info.size);
+                    if (muxer != null && track >= 0 && !config) {
+                        muxer.writeSampleData(track, buf, info);
+                        buf.position(info.offset);
+                    }
+                    emit(buf, info.size, info.presentationTimeUs, config);
+                }
+                codec.releaseOutputBuffer(index, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) return;
+            }
+        }
+    }
+
+    private void emit(ByteBuffer buf, int size, long ptsUs, boolean config) {
+        boolean adts = AAC.equals(format) && !config;
+        int head = adts ? ADTS_HEADER_BYTES : 0;
+        if (out.length < size + head) out = new byte[size + head];
+        if (adts) writeAdtsHeader(out, size + head);
+        buf.get(out, head, size);
+        sink.onChunk(out, 0, size + head, ptsUs, config);
+    }
+
+    /** AAC-LC ADTS 头（无 CRC） */
+    private void writeAdtsHeader(byte[] dst, int frameLength) {
+        int profile = 2; // AAC LC
+        int freqIdx = samplingFrequencyIndex(sampleRate);
+        dst[0] = (byte) 0xFF;
+        dst[1] = (byte) 0xF1;
+        dst[2] = (byte) (((profile - 1) << 6) | (freqIdx << 2) | (channels >> 2));
+        dst[3] = (byte) (((channels & 3) << 6) | (frameLength >> 11));
+        dst[4] = (byte) ((frameLength >> 3) & 0xFF);
+        dst[5] = (byte) (((frameLength & 7) << 5) | 0x1F);
+        dst[6] = (byte) 0xFC;
+    }
+
+    static int samplingFrequencyIndex(int rate) {
+        int[] rates = {96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350};
+        for (int i = 0; i < rates.length; i++) {
+            if (rates[i] == rate) return i;
+        }
+        return 8; // 16 kHz
+    }
+
+    private void release(boolean stopMuxer) {
+        if (codec != null) {
+            try { codec.stop(); } catch (Throwable ignored) {}
+            try { codec.release(); } catch (Throwable ignored) {}
+            codec = null;
+        }
+        if (muxer != null) {
+            try {
+                if (stopMuxer && track >= 0) muxer.stop();
+            } catch (Throwable ignored) {}
+            try { muxer.release(); } catch (Throwable ignored) {}
+            muxer = null;
+        }
+        track = -1;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.shuke_recorder;
+
+import java.io.IOException;
+
+/**
+ * 🗜️ 录音编码器：在 EncoderStage 的工作线程上按顺序调用 start → encode* → finish
+ * - 编码结果通过 ChunkSink 逐块交出（文件模式下同时已写入文件）
+ * - 出错时调用方会执行 abort() 释放资源，之后不再调用其它方法
+ */
+interface PcmEncoder {
+
+    interface ChunkSink {
+        /**
+         * 一块编码数据；data 仅在回调期间有效。
+         * config 为 true 表示解码配置（WAV 头、AAC AudioSpecificConfig、Opus 头），不占时长
+         */
+        void onChunk(byte[] data, int offset, int length, long ptsUs, boolean config);
+    }
+
+    /** 格式名：wav / aac / opus */
+    String format();
+
+    void start() throws IOException;
+
+    /** 编码 length 个 PCM16 样本（交错） */
+    void encode(short[] pcm, int length) throws IOException;
+
+    /** 输入结束：冲出剩余数据，完成文件（补写 WAV 头 / 结束 muxer） */
+    void finish() throws IOException;
+
+    void abort();
+}
@@ -0,0 +1,146 @@
+package com.example.shuke_recorder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🎞️ 一帧采集 PCM（16bit 单声道），来自 PcmFramePool，循环复用
+ * - 录音线程直接把 AudioRecord 数据读进 array()，不再逐样本拷贝
+ * - 消费方只读：array() / samples() / bytes() 都指向池内同一块内存，仅在回调期间有效
+ * - 需要跨回调持有时先 retain()，用完 release()；引用归零后帧回到池里被下一次读取覆盖
+ */
+public final class PcmFrame implements Runnable {
+
+    private final PcmFramePool pool;
+    private final short[] data;
+    private final byte[] byteData;
+    private final ShortBuffer shortView;
+    private final ByteBuffer byteView;
+    private final AtomicInteger refs = new AtomicInteger();
+
+    private int length;
+    private boolean bytesReady;
+
+    /** 本帧的音量（0~100）、距开始录音的时长与采样率，由录音线程在投递前写入 */
+    int volume;
+    long durationMs;
+    int sampleRate;
+    /** VAD 判定为有声；未启用 VAD 时恒为 true */
+    boolean voiced = true;
+    /** 本帧电平（LevelMeter）：峰值与 RMS 的 dBFS，以及本次录音累计削波样本数 */
+    float peakDbfs;
+    float rmsDbfs;
+    long clipCount;
+
+    PcmFrame(PcmFramePool pool, int capacity) {
+        this.pool = pool;
+        this.data = new short[capacity];
+        this.byteData = new byte[capacity * 2];
+        this.shortView = ShortBuffer.wrap(data).asReadOnlyBuffer();
+        this.byteView = ByteBuffer.wrap(byteData).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** 有效样本数 */
+    public int length() {
+        return length;
+    }
+
+    /** VAD 判定本帧为有声（未启用 VAD 时恒为 true） */
+    public boolean isVoiced() {
+        return voiced;
+    }
+
+    public float peakDbfs() {
+        return peakDbfs;
+    }
+
+    public float rmsDbfs() {
+        return rmsDbfs;
+    }
+
+    /** 本次录音到这一帧为止的累计削波样本数 */
+    public long clipCount() {
+        return clipCount;
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    public short get(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index=" + index + ", length=" + length);
+        return data[index];
+    }
+
+    /** 底层数组（前 length() 个样本有效）；只读，不要修改，也不要在 release 之后继续使用 */
+    public short[] array() {
+        return data;
+    }
+
+    public void copyTo(short[] dst, int offset) {
+        System.arraycopy(data, 0, dst, offset, length);
+    }
+
+    /** 只读 ShortBuffer 视图，position=0、limit=length() */
+    public ShortBuffer samples() {
+        shortView.limit(length).position(0);
+        return shortView;
+    }
+
+    /** 只读 ByteBuffer 视图（PCM16 小端），首次调用时按需编码一次，limit=length()×2 */
+    public ByteBuffer bytes() {
+        if (!bytesReady) {
+            for (int i = 0, j = 0; i < length; i++) {
+                short s = data[i];
+                byteData[j++] = (byte) s;
+                byteData[j++] = (byte) (s >> 8);
+            }
+            bytesReady = true;
+        }
+        byteView.limit(length * 2).position(0);
+        return byteView;
+    }
+
+    public PcmFrame retain() {
+        refs.incrementAndGet();
+        return this;
+    }
+
+    public void release() {
+        int left = refs.decrementAndGet();
+        if (left == 0) {
+            pool.recycle(this);
+        } else if (left < 0) {
+            refs.incrementAndGet();
+            throw new IllegalStateException("PcmFrame 重复释放");
+        }
+    }
+
+    /** 主线程投递：交给池的消费方，回调返回后释放本次引用 */
+    @Override
+    public void run() {
+        try {
+            pool.deliver(this);
+        } finally {
+            release();
+        }
+    }
+
+    /** 由池在出借前调用：写入数据长度并持有一次引用 */
+    void reset(int length) {
+        setLength(length);
+        refs.set(1);
+    }
+
+    /** 录音线程读入数据后写入有效长度 */
+    void setLength(int length) {
+        this.length = Math.max(0, Math.min(length, data.length));
+        this.bytesReady = false;
+    }
+
+    int refCount() {
+        return refs.get();
+    }
+}
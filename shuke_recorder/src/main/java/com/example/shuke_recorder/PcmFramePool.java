@@ -0,0 +1,63 @@
+package com.example.shuke_recorder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * ♻️ 采集帧池：固定数量的 PcmFrame 在录音线程与消费方之间循环
+ * - acquire() 由录音线程调用，取出空闲帧后直接让 AudioRecord 读进去；release 归零后帧回到空闲队列
+ * - 空闲队列为数组实现的 ArrayBlockingQueue，稳态读取不分配内存
+ * - 消费方太慢导致帧全部在途时 acquire() 返回 null，由调用方丢弃这一帧并计入 dropped()，录音线程不会被阻塞
+ */
+final class PcmFramePool {
+
+    /** 消费方：在投递线程上收到帧，返回后本次引用自动释放 */
+    interface Sink {
+        void deliver(PcmFrame frame);
+    }
+
+    static final int DEFAULT_FRAMES = 8;
+
+    private final ArrayBlockingQueue<PcmFrame> free;
+    private final int frameCapacity;
+    private final Sink sink;
+    private volatile long dropped;
+
+    PcmFramePool(int frameCount, int frameCapacity, Sink sink) {
+        int n = Math.max(1, frameCount);
+        this.frameCapacity = Math.max(1, frameCapacity);
+        this.sink = sink;
+        this.free = new ArrayBlockingQueue<>(n);
+        for (int i = 0; i < n; i++) free.offer(new PcmFrame(this, this.frameCapacity));
+    }
+
+    int frameCapacity() {
+        return frameCapacity;
+    }
+
+    /** 取一个空闲帧（尚未写入数据）；池已耗尽时返回 null 并计一次丢帧 */
+    PcmFrame acquire() {
+        PcmFrame f = free.poll();
+        if (f == null) {
+            dropped++;
+            return null;
+        }
+        f.reset(0);
+        return f;
+    }
+
+    int available() {
+        return free.size();
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    void deliver(PcmFrame frame) {
+        if (sink != null) sink.deliver(frame);
+    }
+
+    void recycle(PcmFrame frame) {
+        free.offer(frame);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.shuke_recorder;
+
+/**
+ * 🔁 供 JS 轮询的 PCM 环形缓冲（ring 传输格式）
+ * - 游标 cursor 为累计写入的样本数，单调递增；JS 记住上次读到的游标，下次从那里继续读
+ * - 容量固定，JS 读得太慢时最旧的样本被覆盖，read 会跳到仍可读的最早位置并报告丢失数
+ * - 所有方法加对象锁：写入在主线程 onProcess，读取在 JS 调用线程
+ */
+final class PcmRing {
+
+    private final short[] buf;
+    private long written;
+
+    PcmRing(int capacitySamples) {
+        buf = new short[Math.max(1, capacitySamples)];
+    }
+
+    int capacity() {
+        return buf.length;
+    }
+
+    synchronized long cursor() {
+        return written;
+    }
+
+    synchronized void write(short[] src, int offset, int length) {
+        if (length > buf.length) {
+            // 单次写入超过容量时只保留最后 capacity 个样本
+            offset += length - buf.length;
+            written += length - buf.length;
+            length = buf.length;
+        }
+        int pos = (int) (written % buf.length);
+        int first = Math.min(length, buf.length - pos);
+        System.arraycopy(src, offset, buf, pos, first);
+        if (first < length) System.arraycopy(src, offset + first, buf, 0, length - first);
+        written += length;
+    }
+
+    /** 可从 since 读到的最早游标（since 早于环中最旧数据时被截到最旧数据） */
+    synchronized long clampStart(long since) {
+        long oldest = Math.max(0, written - buf.length);
+        return Math.max(oldest, Math.min(since, written));
+    }
+
+    /**
+     * 从游标 from（应先经 clampStart）起最多读 max 个样本到 dst，返回实际读取数
+     */
+    synchronized int read(long from, short[] dst, int max) {
+        long start = clampStart(from);
+        int n = (int) Math.min(max, written - start);
+        int pos = (int) (start % buf.length);
+        int first = Math.min(n, buf.length - pos);
+        System.arraycopy(buf, pos, dst, 0, first);
+        if (first < n) System.arraycopy(buf, 0, dst, first, n - first);
+        return n;
+    }
+
+    synchronized void reset() {
+        written = 0;
+    }
+}
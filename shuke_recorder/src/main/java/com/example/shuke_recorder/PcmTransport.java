@@ -0,0 +1,110 @@
+package com.example.shuke_recorder;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * 📦 process 事件的 PCM 传输格式
+ * - json：旧格式，buffers[0] 为 {"0":s0,"1":s1,...}，每个样本一个字符串键，仅为兼容保留
+ * - base64：pcm 字段为 PCM16 小端的 Base64 字符串，直接从 short[] 编码，不经过中间 byte[]
+ * - int16：pcm 字段为样本数组 [s0,s1,...]
+ * - ring：事件只带 ring 游标，样本写入 PcmRing，由 JS 调用 readRecordRing 按游标批量拉取
+ * 非线程安全，在主线程（onProcess 回调）使用
+ */
+final class PcmTransport {
+
+    static final String JSON = "json";
+    static final String BASE64 = "base64";
+    static final String INT16 = "int16";
+    static final String RING = "ring";
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    final String mode;
+    private final PcmRing ring;
+    private char[] chars = new char[0];
+
+    PcmTransport(String mode, PcmRing ring) {
+        this.mode = normalize(mode);
+        this.ring = RING.equals(this.mode) ? ring : null;
+    }
+
+    /** 未知取值回退为 json，保持旧版 JS 不受影响 */
+    static String normalize(String mode) {
+        if (BASE64.equals(mode) || INT16.equals(mode) || RING.equals(mode)) return mode;
+        return JSON;
+    }
+
+    /** 把一帧样本按当前格式写进事件 */
+    void put(JSONObject ev, short[] pcm, int length) {
+        if (length <= 0) return;
+        switch (mode) {
+            case BASE64:
+                ev.put("format", "pcm16le");
+                ev.put("pcm", encode(pcm, 0, length));
+                break;
+            case INT16:
+                ev.put("format", "int16");
+                ev.put("pcm", Arrays.copyOf(pcm, length));
+                break;
+            case RING: {
+                ring.write(pcm, 0, length);
+                JSONObject r = new JSONObject();
+                r.put("cursor", ring.cursor());
+                r.put("samples", length);
+                ev.put("ring", r);
+                break;
+            }
+            default:
+                ev.put("buffers", legacy(pcm, length));
+                break;
+        }
+    }
+
+    static JSONArray legacy(short[] pcm, int length) {
+        JSONObject b0 = new JSONObject();
+        for (int i = 0; i < length; i++) {
+            b0.put(String.valueOf(i), (int) pcm[i]);
+        }
+        JSONArray arr = new JSONArray();
+        arr.add(b0);
+        return arr;
+    }
+
+    /** PCM16 小端 Base64（标准字母表，带填充）；字符缓冲复用，每帧只分配结果 String */
+    String encode(short[] pcm, int offset, int samples) {
+        int bytes = samples * 2;
+        int outLen = (bytes + 2) / 3 * 4;
+        if (chars.length < outLen) chars = new char[outLen];
+        char[] out = chars;
+        int o = 0;
+        int b = 0;
+        int full = bytes - bytes % 3;
+        for (; b < full; b += 3) {
+            int v = (byteAt(pcm, offset, b) << 16) | (byteAt(pcm, offset, b + 1) << 8) | byteAt(pcm, offset, b + 2);
+            out[o++] = ALPHABET[(v >>> 18) & 63];
+            out[o++] = ALPHABET[(v >>> 12) & 63];
+            out[o++] = ALPHABET[(v >>> 6) & 63];
+            out[o++] = ALPHABET[v & 63];
+        }
+        int rest = bytes - full;
+        if (rest > 0) {
+            int v = byteAt(pcm, offset, b) << 16;
+            if (rest == 2) v |= byteAt(pcm, offset, b + 1) << 8;
+            out[o++] = ALPHABET[(v >>> 18) & 63];
+            out[o++] = ALPHABET[(v >>> 12) & 63];
+            out[o++] = rest == 2 ? ALPHABET[(v >>> 6) & 63] : '=';
+            out[o++] = '=';
+        }
+        return new String(out, 0, o);
+    }
+
+    /** 第 i 个字节（小端：偶数为低字节） */
+    private static int byteAt(short[] pcm, int offset, int i) {
+        short s = pcm[offset + (i >> 1)];
+        return ((i & 1) == 0 ? s : (s >> 8)) & 0xFF;
+    }
+}
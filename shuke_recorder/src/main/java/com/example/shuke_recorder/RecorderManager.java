@@ -20,24 +20,98 @@ import android.util.Log;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 🎧 高级录音管理器（支持 AEC/NS/AGC + 平滑音量计算）
  * 新增：
  *  - RouteInfo 数据结构
  *  - Listener#onRoute(RouteInfo info) 回调：在“开始录音成功”与“路由变更”时回调当前录音通道信息
+ *  - 采集帧走 PcmFramePool 循环复用：AudioRecord 直接读进池内帧，投递与回收都不再逐帧分配
+ *  - 可选固定帧长（setFrameDuration）：经 SpscShortRing + FrameChunker 重新切成等长帧，回调节奏跨机型一致
+ *  - 可选边录边编码（setEncoder）与语音端点检测（setVad，可丢弃静音帧）
+ *  - 预热模式（warmUp / coolDown）：AudioRecord 常驻采集并保留最近 N ms 预录音频，start 时先送出预录部分；
+ *    onStart 报告 start → 第一帧的启动延迟
+ *  - 会话模式（setSession）：stop 只暂停采集，AudioRecord 与 AEC/NS/AGC 跨多次 start/stop 复用，空闲超时后释放；
+ *    按启动方式统计启动延迟（getStartLatency）
+ *  - 采集总线（subscribe）：多个消费者各自有界队列与丢弃策略，慢消费者不会拖住 AudioRecord.read
+ *  - 所有 AudioRecord 读取都在单一采集线程（captureLoop）上，每次 start → stop 对应一个 Run 处理链
  */
 public class RecorderManager {
     private static final String TAG = "RecorderManager";
 
     private final Context context;
     private AudioRecord recorder;
-    private boolean isRecording = false;
-    private Thread recordThread;
     private Listener listener;
 
+    /** 采集线程与录音状态，受 captureLock 保护（current 另由采集线程读写） */
+    private final Object captureLock = new Object();
+    /** 采集线程；它释放完自己的 AudioRecord 并确认无需重开后才置空，非空时主线程不得另开 AudioRecord */
+    private Thread captureThread;
+    /** 非 0：请采集线程释放当前 AudioRecord 后按该采样率重开（换采样率或线程正在退出时的冷启动） */
+    private int reopenRate;
+    private volatile boolean capturing;
+    private int recorderRate;
+    private int recorderBufferSize;
+    private volatile Run pending;
+    private volatile Run current;
+    private volatile Run lastRun;
+    /** 最近交给收尾线程的录音；下一次录音的回调要等它的 onStop 发出后才开始 */
+    private volatile Run finishingRun;
+    /** 收尾线程：等分帧线程送完、编码器排空并写 EOS，按录音顺序串行执行，不占用采集线程 */
+    private ExecutorService finisher;
+
+    /** 预热：stop 后保持采集，只把最近 preRoll 时长的音频留在环形缓冲里 */
+    private boolean warm;
+    private volatile PcmRing preRoll;
+    private int preRollMs;
+    static final int MAX_PRE_ROLL_MS = 3000;
+    static final String MODE_COLD = "cold";
+    static final String MODE_WARM = "warm";
+    static final String MODE_SESSION = "session";
+    /** 非预热、非会话：上一次录音的采集线程还没退出，直接接到它后面 */
+    static final String MODE_REUSE = "reuse";
+
+    /** 会话：stop 后不释放 AudioRecord 与音效，只暂停采集；空闲 sessionIdleMs 后才释放 */
+    private boolean session;
+    private int sessionIdleMs = DEFAULT_SESSION_IDLE_MS;
+    /** 采集线程已调用 AudioRecord.stop()，等待下一次 start */
+    private boolean paused;
+    private long idleSince;
+    static final int DEFAULT_SESSION_IDLE_MS = 30_000;
+    static final int MAX_SESSION_IDLE_MS = 600_000;
+    /** 各启动方式（cold / warm / session / reuse）的 start → 第一帧延迟 */
+    private final LatencyStats coldStarts = new LatencyStats();
+    private final LatencyStats warmStarts = new LatencyStats();
+    private final LatencyStats sessionStarts = new LatencyStats();
+    private final LatencyStats reuseStarts = new LatencyStats();
+
+    /** 多订阅者采集总线：与 Listener 并行，订阅者各自线程、各自队列，跨多次录音保持订阅 */
+    private final CaptureBus bus = new CaptureBus();
+
+    /** 固定帧长（毫秒），0 表示沿用设备缓冲大小 */
+    private int frameMs = 0;
+    static final int MIN_FRAME_MS = 10;
+    static final int MAX_FRAME_MS = 200;
+    /** 分帧线程的兜底唤醒间隔；正常由读取线程 unpark */
+    private static final long CHUNKER_IDLE_NS = 5_000_000L;
+    /** 上一次录音收尾期间暂存回调数据的上限：编码积压上限再留 1 秒余量 */
+    private static final int HOLD_MS = EncoderStage.QUEUE_MS + 1000;
+
+    /** 编码设置：format 为 null 表示不编码；encodeFile 为 null 表示分块输出 */
+    private String encodeFormat;
+    private java.io.File encodeFile;
+    private int encodeBitrate;
+
+    /** VAD 设置：vadEnabled 为 false 时不做端点检测 */
+    private boolean vadEnabled;
+    private float vadThresholdDb = VoiceActivityDetector.DEFAULT_THRESHOLD_DB;
+    private int vadMinSpeechMs = VoiceActivityDetector.DEFAULT_MIN_SPEECH_MS;
+    private int vadHangoverMs = VoiceActivityDetector.DEFAULT_HANGOVER_MS;
+    private boolean vadDropSilence;
+
     private boolean enableAEC = false;
     private boolean enableNS = false;
     private boolean enableAGC = false;
@@ -72,6 +146,27 @@ public class RecorderManager {
         }
     }
 
+    /** 一块编码输出（onEncoded 回调） */
+    public static class EncodedChunk {
+        public String format;          // wav / aac / opus
+        public byte[] data;            // 分块模式下的编码数据；文件模式为 null（仅报告进度）
+        public int size;               // 本块字节数
+        public long totalBytes;        // 累计输出字节数
+        public long ptsUs;             // 本块对应的音频时间戳（微秒）
+        public boolean config;         // 解码配置块（WAV 头 / AAC ASC / Opus 头）
+    }
+
+    /** 编码结束汇总（onEncodeEnd 回调） */
+    public static class EncodeResult {
+        public String format;
+        public String path;            // 文件模式的输出路径；分块模式为 null
+        public long totalBytes;
+        public long durationMs;        // 已编码的音频时长
+        public long droppedSamples;    // 编码跟不上而丢弃的样本数
+        public byte[] wavHeader;       // WAV 的最终 44 字节头（分块模式用它覆盖流式头）
+        public String error;           // 编码失败原因；成功为 null
+    }
+
     // 监听路由变化（API 24+）
     private final AudioRecord.OnRoutingChangedListener routingListener =
             (audioRouting) -> {
@@ -79,14 +174,38 @@ public class RecorderManager {
                 emitRouteInfo("🔄 录音路由变更");
             };
 
+    /** 开始录音信息（onStart 回调）：从调用 start 到第一帧数据可用的耗时 */
+    public static class StartInfo {
+        public long latencyMs;         // start() 调用 → 第一帧数据交给处理链
+        public long preRollMs;         // 开头送出的预录音频时长（仅 warm 模式）
+        public String mode;            // cold：新建 AudioRecord；warm：复用预热中的 AudioRecord；session：复用会话中的 AudioRecord；reuse：复用上一次录音尚未退出的采集线程
+    }
+
     public interface Listener {
-        void onStart();
-        void onProcess(List<int[]> buffers, int volume, long durationMs, int sampleRate);
+        /** 第一帧数据可用时回调（主线程），先于第一次 onProcess */
+        void onStart(StartInfo info);
+        /**
+         * 一帧采集数据（主线程）。frame 来自帧池，只读且仅在本次回调内有效；
+         * 需要异步处理时先 frame.retain()，处理完 frame.release()
+         */
+        void onProcess(PcmFrame frame, int volume, long durationMs, int sampleRate);
         void onStop();
         void onError(String message);
 
         /** 🆕 新增：当前录音通道信息（开始成功与后续路由变化都会回调一次） */
         void onRoute(RouteInfo info);
+
+        /** 编码阶段输出一块数据（主线程；未启用编码时不会回调） */
+        void onEncoded(EncodedChunk chunk);
+
+        /** 编码结束（主线程，先于 onStop） */
+        void onEncodeEnd(EncodeResult result);
+
+        /** VAD：确认语音开始（主线程）；startMs 为起音位置，距开始录音的毫秒数（按样本计） */
+        void onSpeechStart(long startMs);
+
+        /** VAD：确认语音结束（主线程）；endMs 为拖尾静音开始处，speechMs 为本段语音时长 */
+        void onSpeechEnd(long endMs, long speechMs);
     }
 
     public RecorderManager(Context context) {
@@ -98,14 +217,49 @@ public class RecorderManager {
     }
 
     public void setEffectOptions(boolean aec, boolean ns, boolean agc) {
-        this.enableAEC = aec;
-        this.enableNS = ns;
-        this.enableAGC = agc;
+        synchronized (captureLock) {
+            this.enableAEC = aec;
+            this.enableNS = ns;
+            this.enableAGC = agc;
+        }
+    }
+
+    /**
+     * 设置固定帧长（如 20 / 40 ms），下次 start 生效；0 表示每次回调一个设备缓冲（旧行为）。
+     * 取值限制在 [MIN_FRAME_MS, MAX_FRAME_MS]
+     */
+    public void setFrameDuration(int ms) {
+        this.frameMs = ms <= 0 ? 0 : Math.max(MIN_FRAME_MS, Math.min(MAX_FRAME_MS, ms));
+    }
+
+    /**
+     * 设置边录边编码，下次 start 生效：format 为 wav / aac / opus（null 关闭）；
+     * file 非 null 时写入该文件，否则通过 onEncoded 分块输出；bitrate ≤ 0 用默认码率（WAV 忽略）
+     */
+    public void setEncoder(String format, java.io.File file, int bitrate) {
+        this.encodeFormat = format;
+        this.encodeFile = file;
+        this.encodeBitrate = bitrate;
+    }
+
+    /**
+     * 语音端点检测（能量 + 过零率），下次 start 生效：检测到语音开始/结束时回调 onSpeechStart / onSpeechEnd；
+     * dropSilence 为 true 时静音帧不再回调 onProcess（编码阶段仍收到完整音频）。
+     * thresholdDb / minSpeechMs / hangoverMs ≤ 0 时使用默认值
+     */
+    public void setVad(boolean enabled, float thresholdDb, int minSpeechMs, int hangoverMs, boolean dropSilence) {
+        this.vadEnabled = enabled;
+        this.vadThresholdDb = thresholdDb > 0 ? thresholdDb : VoiceActivityDetector.DEFAULT_THRESHOLD_DB;
+        this.vadMinSpeechMs = minSpeechMs > 0 ? minSpeechMs : VoiceActivityDetector.DEFAULT_MIN_SPEECH_MS;
+        this.vadHangoverMs = hangoverMs > 0 ? hangoverMs : VoiceActivityDetector.DEFAULT_HANGOVER_MS;
+        this.vadDropSilence = enabled && dropSilence;
     }
 
     public void toggleAEC(boolean enable) {
-        if (aec != null) aec.setEnabled(enable);
-        enableAEC = enable;
+        synchronized (captureLock) {
+            if (aec != null) aec.setEnabled(enable);
+            enableAEC = enable;
+        }
     }
 
     public boolean hasPermission() {
@@ -118,20 +272,162 @@ public class RecorderManager {
     }
 
     public void start(String type, int sampleRate) {
-        stop();
+        long requestedAt = SystemClock.elapsedRealtime();
 
         if (!hasPermission()) {
             if (listener != null) listener.onError("未获得录音权限");
             return;
         }
 
-        int bufferSize = AudioRecord.getMinBufferSize(
+        Run run = null;
+        synchronized (captureLock) {
+            // 采集线程仍在运行（预热中、会话中或上一次录音尚未结束）且采样率一致：直接接到它后面
+            if (capturing && recorderRate == sampleRate) {
+                run = new Run(sampleRate, recorderBufferSize, requestedAt, reuseMode(warm, session));
+                queue(run);
+                applyEffects(recorder);
+            }
+        }
+        if (run == null) {
+            synchronized (captureLock) {
+                // 采集线程还在（换采样率，或正在退出）：交给它释放旧 AudioRecord 后按新采样率重开，
+                // 主线程不等它，也不会在旧 AudioRecord 释放前创建第二个（单路麦克风设备上会失败）
+                if (captureThread != null) {
+                    queue(new Run(sampleRate, minBufferSize(sampleRate), requestedAt, MODE_COLD));
+                    requestReopen(sampleRate);
+                    return;
+                }
+            }
+            if (!openRecorder(sampleRate)) return;
+            synchronized (captureLock) {
+                // 预录缓冲里可能是旧采样率的数据，冷启动一律清空
+                if (preRoll != null) preRoll = new PcmRing(sampleRate * preRollMs / 1000);
+                run = new Run(sampleRate, recorderBufferSize, requestedAt, MODE_COLD);
+                queue(run);
+                startCaptureThread();
+            }
+        }
+
+        // ✅ 【新增】开始录音成功后，立刻回调一次当前录音通道信息
+        emitRouteInfo("▶️ 开始录音");
+    }
+
+    /** 复用仍在运行的采集线程时的启动方式：预热优先，其次会话，都不是则为 reuse */
+    static String reuseMode(boolean warm, boolean session) {
+        if (warm) return MODE_WARM;
+        if (session) return MODE_SESSION;
+        return MODE_REUSE;
+    }
+
+    /** 排入下一次录音，取代尚未开始的那次并结束正在进行的那次；需持有 captureLock */
+    private void queue(Run run) {
+        Run old = pending;
+        if (old != null) old.cancel();
+        Run cur = current;
+        if (cur != null) cur.stopRequested = true;
+        pending = run;
+        captureLock.notifyAll();
+    }
+
+    /**
+     * 预热：提前打开 AudioRecord 持续采集，只保留最近 preRollMs 的音频在环形缓冲里，不回调任何数据。
+     * 之后以相同采样率 start 时直接复用，并先把预录音频作为开头几帧送出，避免丢掉开口的第一个音节；
+     * stop 后回到预热状态，直到 coolDown
+     */
+    public boolean warmUp(int sampleRate, int preRollMs) {
+        if (!hasPermission()) {
+            if (listener != null) listener.onError("未获得录音权限");
+            return false;
+        }
+        int ms = Math.max(0, Math.min(MAX_PRE_ROLL_MS, preRollMs));
+        synchronized (captureLock) {
+            warm = true;
+            preRollMs = ms;
+            preRoll = ms > 0 ? new PcmRing(sampleRate * ms / 1000) : null;
+            if (capturing && recorderRate == sampleRate) {
+                captureLock.notifyAll();
+                return true;
+            }
+            // 采集线程还在：由它换采样率重开，失败时回调 onError
+            if (captureThread != null) {
+                requestReopen(sampleRate);
+                return true;
+            }
+        }
+        if (!openRecorder(sampleRate)) {
+            synchronized (captureLock) {
+                warm = false;
+            }
+            return false;
+        }
+        synchronized (captureLock) {
+            startCaptureThread();
+        }
+        return true;
+    }
+
+    /** 结束预热：没有进行中的录音时立即释放 AudioRecord（会话中则转为暂停），否则在本次录音 stop 后处理 */
+    public void coolDown() {
+        synchronized (captureLock) {
+            warm = false;
+            preRoll = null;
+            if (current == null && pending == null && !session) capturing = false;
+            captureLock.notifyAll();
+        }
+    }
+
+    /**
+     * 会话模式：开启后 stop 不再释放 AudioRecord 与音效模块，只调用 AudioRecord.stop() 暂停采集，
+     * 下次以相同采样率 start 时直接 startRecording；连续空闲 idleTimeoutMs（≤0 取默认 30s）后自动释放。
+     * 适合一分钟几十次的按住说话
+     */
+    public void setSession(boolean enabled, int idleTimeoutMs) {
+        synchronized (captureLock) {
+            session = enabled;
+            sessionIdleMs = idleTimeoutMs > 0 ? Math.min(MAX_SESSION_IDLE_MS, idleTimeoutMs) : DEFAULT_SESSION_IDLE_MS;
+            captureLock.notifyAll();
+        }
+    }
+
+    /** 结束会话：空闲（未录音、未预热）时立即释放 AudioRecord */
+    public void endSession() {
+        setSession(false, 0);
+    }
+
+    public boolean isSessionActive() {
+        synchronized (captureLock) {
+            return session && capturing;
+        }
+    }
+
+    /** 某种启动方式（cold / warm / session / reuse）的启动延迟统计；未知方式返回 null */
+    LatencyStats getStartLatency(String mode) {
+        if (MODE_COLD.equals(mode)) return coldStarts;
+        if (MODE_WARM.equals(mode)) return warmStarts;
+        if (MODE_SESSION.equals(mode)) return sessionStarts;
+        if (MODE_REUSE.equals(mode)) return reuseStarts;
+        return null;
+    }
+
+    public boolean isWarm() {
+        synchronized (captureLock) {
+            return warm && capturing;
+        }
+    }
+
+    static int minBufferSize(int sampleRate) {
+        return AudioRecord.getMinBufferSize(
                 sampleRate,
                 AudioFormat.CHANNEL_IN_MONO,
                 AudioFormat.ENCODING_PCM_16BIT
         );
+    }
 
-        recorder = new AudioRecord(
+    /** 创建并启动 AudioRecord 与音效模块（主线程，或重开时的采集线程）；失败时在主线程回调 onError */
+    private boolean openRecorder(int sampleRate) {
+        int bufferSize = minBufferSize(sampleRate);
+
+        AudioRecord rec = new AudioRecord(
                 MediaRecorder.AudioSource.VOICE_COMMUNICATION, // ✅ 支持边录边播
                 sampleRate,
                 AudioFormat.CHANNEL_IN_MONO,
@@ -139,104 +435,548 @@ public class RecorderManager {
                 bufferSize
         );
 
-        if (recorder.getState() != AudioRecord.STATE_INITIALIZED) {
-            if (listener != null) listener.onError("AudioRecord 初始化失败");
-            return;
-        }
-
-        // ✅ 初始化音效模块
-        int sessionId = recorder.getAudioSessionId();
-        if (enableAEC && AcousticEchoCanceler.isAvailable()) {
-            aec = AcousticEchoCanceler.create(sessionId);
-            if (aec != null) aec.setEnabled(true);
-        }
-        if (enableNS && NoiseSuppressor.isAvailable()) {
-            ns = NoiseSuppressor.create(sessionId);
-            if (ns != null) ns.setEnabled(true);
+        if (rec.getState() != AudioRecord.STATE_INITIALIZED) {
+            rec.release();
+            postError("AudioRecord 初始化失败");
+            return false;
         }
-        if (enableAGC && AutomaticGainControl.isAvailable()) {
-            agc = AutomaticGainControl.create(sessionId);
-            if (agc != null) agc.setEnabled(true);
+        // ✅ 初始化音效模块（音效对象的创建、开关与释放都在 captureLock 下进行）
+        synchronized (captureLock) {
+            recorder = rec;
+            applyEffects(rec);
         }
 
-        recorder.startRecording();
-        isRecording = true;
+        rec.startRecording();
+        synchronized (captureLock) {
+            recorderRate = sampleRate;
+            recorderBufferSize = bufferSize;
+            paused = false;
+        }
 
         // ✅ 打印“当前录音路由/音频通道”信息
         logCurrentRoute("▶️ 开始录音");
 
-        // ✅ 【新增】开始录音成功后，立刻回调一次当前录音通道信息
-        emitRouteInfo("▶️ 开始录音");
-
         // ✅ 监听后续路由变化（插拔耳机、蓝牙连接变化等）
         addRoutingListenerIfSupported();
+        return true;
+    }
+
+    /** 按当前 enableAEC/NS/AGC 设置音效：缺的创建，已有的只切换开关（复用 AudioRecord 时不重建）。需持有 captureLock */
+    private void applyEffects(AudioRecord rec) {
+        if (rec == null) return;
+        int sessionId = rec.getAudioSessionId();
+        try {
+            if (aec == null && enableAEC && AcousticEchoCanceler.isAvailable()) {
+                aec = AcousticEchoCanceler.create(sessionId);
+            }
+            if (aec != null) aec.setEnabled(enableAEC);
+            if (ns == null && enableNS && NoiseSuppressor.isAvailable()) {
+                ns = NoiseSuppressor.create(sessionId);
+            }
+            if (ns != null) ns.setEnabled(enableNS);
+            if (agc == null && enableAGC && AutomaticGainControl.isAvailable()) {
+                agc = AutomaticGainControl.create(sessionId);
+            }
+            if (agc != null) agc.setEnabled(enableAGC);
+        } catch (Throwable t) {
+            Log.w(TAG, "音效模块设置失败: " + t.getMessage());
+        }
+    }
+
+    /** 需持有 captureLock */
+    private void startCaptureThread() {
+        AudioRecord rec = recorder;
+        int bufferSize = recorderBufferSize;
+        capturing = true;
+        Thread t = new Thread(() -> captureLoop(rec, bufferSize), "RecorderCapture");
+        captureThread = t;
+        t.start();
+    }
+
+    /** 请采集线程退出当前采集、释放 AudioRecord 后按 sampleRate 重开；需持有 captureLock */
+    private void requestReopen(int sampleRate) {
+        reopenRate = sampleRate;
+        capturing = false;
+        captureLock.notifyAll();
+    }
 
-        if (listener != null) listener.onStart();
-
-        Thread t = new Thread(() -> {
-            short[] buffer = new short[bufferSize];
-            long startTime = SystemClock.elapsedRealtime();
-            double noiseBase = -50; // 环境噪声基线
-            Handler main = new Handler(Looper.getMainLooper());
-
-            while (isRecording) {
-                int read = recorder.read(buffer, 0, buffer.length);
-                if (read > 0 && listener != null) {
-                    int[] frame = new int[read];
-                    double sum = 0;
-                    for (int i = 0; i < read; i++) {
-                        frame[i] = buffer[i];
-                        sum += buffer[i] * buffer[i];
+    /**
+     * 采集线程：唯一读取 AudioRecord 的线程。
+     * 每轮 captureUntilIdle 结束都会释放 AudioRecord；若期间有人 requestReopen，就在本线程按新采样率重开并继续，
+     * 否则清掉 captureThread 退出
+     */
+    private void captureLoop(AudioRecord rec, int bufferSize) {
+        while (true) {
+            captureUntilIdle(rec, bufferSize);
+            int rate;
+            synchronized (captureLock) {
+                rate = reopenRate;
+                reopenRate = 0;
+                if (rate == 0) {
+                    if (captureThread == Thread.currentThread()) captureThread = null;
+                    return;
+                }
+            }
+            if (!openRecorder(rate)) {
+                synchronized (captureLock) {
+                    Run p = pending;
+                    if (p != null) p.cancel();
+                    pending = null;
+                    warm = false;
+                    if (captureThread == Thread.currentThread()) captureThread = null;
+                }
+                return;
+            }
+            synchronized (captureLock) {
+                rec = recorder;
+                bufferSize = recorderBufferSize;
+                // 重开期间又来了换采样率的请求：不进入采集，下一轮直接释放再重开
+                if (reopenRate == rate) reopenRate = 0;
+                capturing = reopenRate == 0;
+                // 预录缓冲里可能是旧采样率的数据，重开一律清空
+                if (preRoll != null) preRoll = new PcmRing(rate * preRollMs / 1000);
+            }
+            emitRouteInfo("▶️ 开始录音");
+        }
+    }
+
+    /**
+     * 一轮采集：有录音时把数据交给当前 Run；没有录音时（预热）只写入预录环形缓冲；
+     * 会话中则 AudioRecord.stop() 暂停并等待下一次 start，空闲超时后结束；都不是则结束。结束时释放 AudioRecord
+     */
+    private void captureUntilIdle(AudioRecord rec, int bufferSize) {
+        short[] buf = new short[bufferSize];
+        try {
+            while (capturing) {
+                Run run = current;
+                if (run != null && run.stopRequested) {
+                    finishAsync(run);
+                    current = null;
+                    run = null;
+                }
+                if (run == null) {
+                    synchronized (captureLock) {
+                        run = pending;
+                        pending = null;
+                        current = run;
+                        if (run == null && !warm) {
+                            if (!session || !awaitSessionStart(rec)) {
+                                capturing = false;
+                                break;
+                            }
+                            continue;
+                        }
+                        if (paused) {
+                            rec.startRecording();
+                            paused = false;
+                        }
                     }
+                    if (run != null) run.begin(preRoll, buf);
+                }
 
-                    double rms = Math.sqrt(sum / read);
-                    double db = 20 * Math.log10(rms / 32768.0 + 1e-6);
+                int read = rec.read(buf, 0, bufferSize);
+                if (read <= 0) continue;
+                if (run != null) {
+                    run.feed(buf, read);
+                } else {
+                    PcmRing ring = preRoll;
+                    if (ring != null) ring.write(buf, 0, read);
+                }
+            }
+            Run run = current;
+            current = null;
+            if (run != null) finishAsync(run);
+        } catch (Throwable t) {
+            Log.e(TAG, "采集线程异常: " + t.getMessage());
+        } finally {
+            releaseRecorder(rec);
+        }
+    }
 
-                    // ✅ 平滑更新噪声基线
-                    noiseBase = 0.95 * noiseBase + 0.05 * db;
+    /**
+     * 把结束的录音交给收尾线程：分帧线程 join 与编码器收尾（最多排空 EncoderStage.QUEUE_MS 积压 + 等 EOS）
+     * 可能要几秒，放在采集线程上会让设备缓冲溢出、预录缓冲断档，下一次 start 也得等它
+     */
+    private void finishAsync(Run run) {
+        finishingRun = run;
+        ExecutorService f;
+        synchronized (this) {
+            if (finisher == null) {
+                finisher = Executors.newSingleThreadExecutor(r -> new Thread(r, "RecorderFinish"));
+            }
+            f = finisher;
+        }
+        f.execute(run::finish);
+    }
 
-                    // ✅ 映射到 0~100
-                    double mapped = (db - noiseBase) * (100.0 / 40);
-                    int volume = (int) mapped;
-                    if (volume < 0) volume = 0;
-                    if (volume > 100) volume = 100;
+    /**
+     * 会话空闲：暂停 AudioRecord 并等待 start / 设置变化；返回 false 表示空闲超时，应释放。需持有 captureLock
+     */
+    private boolean awaitSessionStart(AudioRecord rec) throws InterruptedException {
+        if (!paused) {
+            rec.stop();
+            paused = true;
+            idleSince = SystemClock.elapsedRealtime();
+        }
+        long left = idleSince + sessionIdleMs - SystemClock.elapsedRealtime();
+        if (left <= 0) {
+            Log.d(TAG, "会话空闲超时，释放 AudioRecord");
+            return false;
+        }
+        captureLock.wait(left);
+        return true;
+    }
 
-                    List<int[]> out = new ArrayList<>();
-                    out.add(frame);
-                    long duration = SystemClock.elapsedRealtime() - startTime;
+    /**
+     * 一次 start → stop 的处理链：帧池、（可选）分帧线程、编码阶段、VAD、电平表。
+     * begin / feed 在采集线程上调用，finish 在收尾线程上调用（交接之后采集线程不再碰它）。
+     * 上一次录音仍在收尾时，编码与采集总线照常接收数据，回调这一路（onStart、process、speech 事件）
+     * 先暂存在 held 里，等上一次的 onStop 发出后再补发，保证 JS 看到的事件顺序与同步收尾时一致
+     */
+    private final class Run {
+        final int sampleRate;
+        final int frameSamples;
+        final long requestedAt;
+        final String mode;
+        final Handler main = new Handler(Looper.getMainLooper());
+        final PcmFramePool pool;
+        final FrameChunker chunker;
+        final VoiceActivityDetector vad;
+        final boolean dropSilence;
+        final LevelMeter meter;
+        EncoderStage encoder;
+        Thread consumer;
+        volatile boolean stopRequested;
+        volatile boolean finishing;
+        /** finish 已发出 onStop */
+        volatile boolean finished;
+        /** 需要等它收尾完成才能回调的上一次录音；null 表示无需等待 */
+        Run waitFor;
+        PcmRing held;
+        boolean started;
+        boolean startPosted;
+        long startLatencyMs;
+        long samplesOut;
+        long preRollMs;
+        /** 环境噪声基线（dB），只在投递线程上读写 */
+        double noiseBase = -50;
+        volatile long silentDropped;
+
+        Run(int sampleRate, int bufferSize, long requestedAt, String mode) {
+            this.sampleRate = sampleRate;
+            this.requestedAt = requestedAt;
+            this.mode = mode;
+            this.frameSamples = frameMs > 0 ? sampleRate * frameMs / 1000 : 0;
+            this.pool = new PcmFramePool(PcmFramePool.DEFAULT_FRAMES,
+                    frameSamples > 0 ? frameSamples : bufferSize, frame -> {
+                Listener l = listener;
+                if (l != null) l.onProcess(frame, frame.volume, frame.durationMs, frame.sampleRate);
+            });
+            this.chunker = frameSamples > 0
+                    ? new FrameChunker(frameSamples, bufferSize, pool, (frame, startSample) ->
+                            publish(frame, (startSample + frameSamples) * 1000L / sampleRate))
+                    : null;
+            this.vad = vadEnabled
+                    ? new VoiceActivityDetector(sampleRate, vadThresholdDb, vadMinSpeechMs, vadHangoverMs)
+                    : null;
+            this.dropSilence = vadDropSilence;
+            this.meter = new LevelMeter(sampleRate, 1, 0, 0);
+        }
 
-                    int finalVolume = volume;
-                    main.post(() -> listener.onProcess(out, finalVolume, duration, sampleRate));
+        /** 尚未开始就被新的 start 取代 */
+        void cancel() {
+            stopRequested = true;
+        }
+
+        /** 开始：启动编码与分帧线程，先送出预录音频 */
+        void begin(PcmRing ring, short[] scratch) {
+            lastRun = this;
+            Run prev = finishingRun;
+            if (prev != null && prev != this && !prev.finished) waitFor = prev;
+            encoder = createEncoderStage(sampleRate);
+            if (chunker != null) {
+                consumer = new Thread(() -> {
+                    while (true) {
+                        boolean running = !finishing;
+                        chunker.drain();
+                        if (!running) break;
+                        LockSupport.parkNanos(CHUNKER_IDLE_NS);
+                    }
+                }, "RecorderChunker");
+                consumer.start();
+            }
+            if (ring != null) {
+                long from = ring.clampStart(0);
+                long to = ring.cursor();
+                preRollMs = (to - from) * 1000 / sampleRate;
+                while (from < to) {
+                    int n = ring.read(from, scratch, scratch.length);
+                    if (n <= 0) break;
+                    feed(scratch, n);
+                    from += n;
                 }
+                ring.reset();
             }
-            stopInternal();
-        });
-        recordThread = t;
-        t.start();
+        }
+
+        /** 一段设备数据：整段交给编码阶段与采集总线，再切帧投递（上一次录音未收尾完时先暂存） */
+        void feed(short[] buf, int read) {
+            if (!started) {
+                started = true;
+                startLatencyMs = SystemClock.elapsedRealtime() - requestedAt;
+            }
+            EncoderStage enc = encoder;
+            if (enc != null) enc.submit(buf, read);
+            bus.publish(buf, 0, read, sampleRate);
+            if (waitFor != null) {
+                if (!waitFor.finished) {
+                    if (held == null) held = new PcmRing(sampleRate * HOLD_MS / 1000);
+                    held.write(buf, 0, read);
+                    return;
+                }
+                releaseHeld();
+            }
+            deliver(buf, read);
+        }
+
+        /** 上一次录音已收尾：补发 onStart 与暂存的音频 */
+        private void releaseHeld() {
+            waitFor = null;
+            PcmRing h = held;
+            held = null;
+            if (h == null) return;
+            short[] scratch = new short[Math.max(1, pool.frameCapacity())];
+            long from = h.clampStart(0);
+            long to = h.cursor();
+            while (from < to) {
+                int n = h.read(from, scratch, scratch.length);
+                if (n <= 0) break;
+                deliver(scratch, n);
+                from += n;
+            }
+        }
+
+        /** 回调这一路：onStart（首次）、分帧、电平、VAD 与 process 事件 */
+        private void deliver(short[] buf, int read) {
+            if (!startPosted) {
+                startPosted = true;
+                postStart(startLatencyMs);
+            }
+            if (listener == null) return;
+            if (chunker != null) {
+                chunker.offer(buf, 0, read);
+                if (chunker.pending() >= frameSamples) LockSupport.unpark(consumer);
+                return;
+            }
+            int off = 0;
+            while (off < read) {
+                int n = Math.min(read - off, pool.frameCapacity());
+                PcmFrame frame = pool.acquire();
+                samplesOut += n;
+                if (frame != null) {
+                    System.arraycopy(buf, off, frame.array(), 0, n);
+                    frame.setLength(n);
+                    publish(frame, samplesOut * 1000 / sampleRate);
+                }
+                off += n;
+            }
+        }
+
+        private void postStart(long latencyMs) {
+            StartInfo info = new StartInfo();
+            info.latencyMs = latencyMs;
+            info.preRollMs = preRollMs;
+            info.mode = mode;
+            LatencyStats stats = getStartLatency(mode);
+            if (stats != null) stats.record(latencyMs);
+            main.post(() -> {
+                Listener l = listener;
+                if (l != null) l.onStart(info);
+            });
+        }
+
+        /** 计算音量并投递到主线程；帧本身就是 Runnable，回调结束后自动回收，无需每帧创建 lambda */
+        private void publish(PcmFrame frame, long durationMs) {
+            short[] buffer = frame.array();
+            int read = frame.length();
+            meter.process(buffer, 0, read);
+
+            double db = 20 * Math.log10(meter.rms() / 32768.0 + 1e-6);
+
+            // ✅ 平滑更新噪声基线
+            noiseBase = 0.95 * noiseBase + 0.05 * db;
+
+            // ✅ 映射到 0~100
+            double mapped = (db - noiseBase) * (100.0 / 40);
+            int volume = (int) mapped;
+            if (volume < 0) volume = 0;
+            if (volume > 100) volume = 100;
+
+            frame.volume = volume;
+            frame.durationMs = durationMs;
+            frame.sampleRate = sampleRate;
+            frame.voiced = true;
+            frame.peakDbfs = meter.peakDbfs();
+            frame.rmsDbfs = meter.rmsDbfs();
+            frame.clipCount = meter.clipCount();
+
+            if (vad != null) {
+                int event = vad.process(buffer, read);
+                frame.voiced = vad.lastFrameVoiced();
+                if (event != VoiceActivityDetector.NONE) postSpeechEvent(main, vad, event);
+                if (dropSilence && !vad.shouldForward()) {
+                    silentDropped++;
+                    frame.release();
+                    return;
+                }
+            }
+            if (!main.post(frame)) frame.release();
+        }
+
+        /** 结束（收尾线程）：补发暂存数据，等分帧线程送完、编码器收尾，然后依次回调 onEncodeEnd、onStop */
+        void finish() {
+            // 收尾线程串行执行，轮到这里时上一次录音一定已经 finished
+            if (waitFor != null) releaseHeld();
+            finishing = true;
+            if (consumer != null) {
+                LockSupport.unpark(consumer);
+                try {
+                    consumer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            EncoderStage enc = encoder;
+            encoder = null;
+            if (enc != null) {
+                EncodeResult result = enc.finish();
+                main.post(() -> {
+                    Listener l = listener;
+                    if (l != null) l.onEncodeEnd(result);
+                });
+            }
+            main.post(() -> {
+                Listener l = listener;
+                if (l != null) l.onStop();
+            });
+            finished = true;
+        }
     }
 
+    private EncoderStage createEncoderStage(int sampleRate) {
+        String format = encodeFormat;
+        if (format == null) return null;
+        java.io.File file = encodeFile;
+        int bitrate = encodeBitrate;
+        Handler main = new Handler(Looper.getMainLooper());
+        EncoderStage stage = new EncoderStage(
+                sink -> "wav".equals(format)
+                        ? new WavEncoder(file, sampleRate, 1, sink)
+                        : new MediaCodecEncoder(format, file, sampleRate, 1, bitrate, sink),
+                sampleRate,
+                file != null ? file.getAbsolutePath() : null,
+                chunk -> main.post(() -> {
+                    Listener l = listener;
+                    if (l != null) l.onEncoded(chunk);
+                }));
+        stage.start();
+        return stage;
+    }
+
+    private void postSpeechEvent(Handler main, VoiceActivityDetector v, int event) {
+        if (listener == null) return;
+        if (event == VoiceActivityDetector.SPEECH_START) {
+            long at = v.speechStartMs();
+            main.post(() -> {
+                Listener l = listener;
+                if (l != null) l.onSpeechStart(at);
+            });
+        } else {
+            long at = v.speechEndMs();
+            long speechMs = v.lastSpeechMs();
+            main.post(() -> {
+                Listener l = listener;
+                if (l != null) l.onSpeechEnd(at, speechMs);
+            });
+        }
+    }
+
+    /** 结束本次录音；预热中则回到预热状态，否则释放 AudioRecord */
     public void stop() {
-        isRecording = false;
+        Run p;
+        synchronized (captureLock) {
+            p = pending;
+            pending = null;
+            if (p != null) p.cancel();
+            Run cur = current;
+            if (cur != null) cur.stopRequested = true;
+        }
+        // 还没开始就被停止：采集线程不会再处理它，这里补发 onStop
+        if (p != null && listener != null) {
+            new Handler(Looper.getMainLooper()).post(() -> {
+                Listener l = listener;
+                if (l != null) l.onStop();
+            });
+        }
+    }
+
+    /**
+     * 订阅采集数据：每个订阅者有自己的线程与 queueChunks 块的有界队列，满时按 policy
+     * （CaptureBus.DROP_OLDEST / DROP_NEWEST / BLOCK）处理；订阅跨多次 start/stop 保持，直到 unsubscribe
+     */
+    public CaptureBus.Subscription subscribe(String name, int queueChunks, String policy, CaptureBus.Subscriber subscriber) {
+        return bus.subscribe(name, queueChunks, policy, subscriber);
+    }
+
+    public void unsubscribe(CaptureBus.Subscription subscription) {
+        bus.unsubscribe(subscription);
+    }
+
+    public CaptureBus getCaptureBus() {
+        return bus;
+    }
+
+    /** 因消费方处理不及（帧池耗尽）而丢弃的帧数（最近一次录音） */
+    public long getDroppedFrames() {
+        Run r = lastRun;
+        return r != null ? r.pool.dropped() : 0;
     }
 
-    private void stopInternal() {
+    /** 固定帧长模式下分帧环形缓冲写满而丢弃的样本数（最近一次录音） */
+    public long getOverrunSamples() {
+        Run r = lastRun;
+        return r != null && r.chunker != null ? r.chunker.overruns() : 0;
+    }
+
+    /** 因 VAD 判为静音而未回调 onProcess 的帧数（最近一次录音） */
+    public long getSilentFramesDropped() {
+        Run r = lastRun;
+        return r != null ? r.silentDropped : 0;
+    }
+
+    /** 采集线程退出时释放 AudioRecord；音效模块与路由监听只在它仍是当前 AudioRecord 时一并释放 */
+    private void releaseRecorder(AudioRecord rec) {
+        boolean owner;
+        synchronized (captureLock) {
+            owner = recorder == rec;
+        }
         try {
             // 移除路由监听（API 24+）
-            removeRoutingListenerIfSupported();
+            if (owner) removeRoutingListenerIfSupported();
 
-            if (recorder != null) {
-                recorder.stop();
-                recorder.release();
+            if (rec != null) {
+                rec.stop();
+                rec.release();
             }
         } catch (Throwable ignored) {}
-        recorder = null;
-
-        if (aec != null) { aec.release(); aec = null; }
-        if (ns != null) { ns.release(); ns = null; }
-        if (agc != null) { agc.release(); agc = null; }
-
-        if (listener != null) {
-            new Handler(Looper.getMainLooper()).post(listener::onStop);
+        if (!owner) return;
+        synchronized (captureLock) {
+            if (recorder != rec) return;
+            recorder = null;
+            paused = false;
+            if (aec != null) { aec.release(); aec = null; }
+            if (ns != null) { ns.release(); ns = null; }
+            if (agc != null) { agc.release(); agc = null; }
         }
     }
 
@@ -275,6 +1015,14 @@ public class RecorderManager {
     }
 
     /** 将当前路由信息通过 listener.onRoute 回调给前端（主线程） */
+    private void postError(String message) {
+        if (listener == null) return;
+        new Handler(Looper.getMainLooper()).post(() -> {
+            Listener l = listener;
+            if (l != null) l.onError(message);
+        });
+    }
+
     private void emitRouteInfo(String label) {
         if (listener == null) return;
         Handler main = new Handler(Looper.getMainLooper());
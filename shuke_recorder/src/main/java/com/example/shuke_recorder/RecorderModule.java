@@ -13,12 +13,13 @@ import androidx.core.content.ContextCompat;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 
-import java.util.List;
-
 import io.dcloud.feature.uniapp.annotation.UniJSMethod;
 import io.dcloud.feature.uniapp.bridge.UniJSCallback;
 import io.dcloud.feature.uniapp.common.UniModule;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 🎤 UniApp 原生录音插件模块
  * 支持：
@@ -26,6 +27,11 @@ import io.dcloud.feature.uniapp.common.UniModule;
  * - 录音（AEC/NS/AGC）
  * - 路由变更回调
  * - 统一 JS 回调事件流
+ * - process 事件的 PCM 传输格式可选（transport：json / base64 / int16 / ring），见 PcmTransport
+ * - 固定帧长（frameMs，如 20 / 40）：每个 process 事件恰好一帧
+ * - 边录边编码（encode：wav / aac / opus，写文件或分块回传），见 EncoderStage
+ * - 语音端点检测（vad：{thresholdDb, minSpeechMs, hangoverMs, dropSilence}），发出 speechStart / speechEnd 事件
+ * - 采集总线订阅（subscribeAudio / unsubscribeAudio）：多个消费方各自的队列与丢弃策略，互不拖慢，见 CaptureBus
  */
 public class RecorderModule extends UniModule {
 
@@ -36,6 +42,15 @@ public class RecorderModule extends UniModule {
     private UniJSCallback mCallback;
     private UniJSCallback pendingCb; // 权限请求回调
 
+    private static final int DEFAULT_RING_MS = 5000;
+    private static final int DEFAULT_PRE_ROLL_MS = 500;
+
+    private PcmTransport transport = new PcmTransport(PcmTransport.JSON, null);
+    private PcmRing ring;
+    private int ringSampleRate;
+    /** JS 侧的采集总线订阅，按 name 区分；仅主线程访问 */
+    private final Map<String, CaptureBus.Subscription> busSubs = new HashMap<>();
+
     private Context getCtx() {
         return mUniSDKInstance != null ? mUniSDKInstance.getContext() : null;
     }
@@ -64,8 +79,20 @@ public class RecorderModule extends UniModule {
 
         int sampleRate = 16000;
         boolean enableAEC = true, enableNS = true, enableAGC = true;
+        String transportMode = PcmTransport.JSON;
+        int ringMs = DEFAULT_RING_MS;
+        int frameMs = 0;
+        JSONObject encode = null;
+        JSONObject vad = null;
+        Object session = null;
         try {
             if (params != null) {
+                if (params.containsKey("transport")) transportMode = params.getString("transport");
+                if (params.containsKey("ringMs")) ringMs = Math.max(100, params.getIntValue("ringMs"));
+                if (params.containsKey("frameMs")) frameMs = params.getIntValue("frameMs");
+                encode = params.getJSONObject("encode");
+                vad = params.getJSONObject("vad");
+                session = params.get("session");
                 if (params.containsKey("sampleRate")) sampleRate = params.getIntValue("sampleRate");
                 if (params.containsKey("enableAEC")) enableAEC = params.getBooleanValue("enableAEC");
                 if (params.containsKey("enableNS")) enableNS = params.getBooleanValue("enableNS");
@@ -73,31 +100,64 @@ public class RecorderModule extends UniModule {
             }
         } catch (Throwable ignore) {}
 
+        transportMode = PcmTransport.normalize(transportMode);
+        if (PcmTransport.RING.equals(transportMode)) {
+            synchronized (this) {
+                int capacity = (int) ((long) sampleRate * ringMs / 1000);
+                if (ring == null || ring.capacity() != capacity) ring = new PcmRing(capacity);
+                ring.reset();
+                ringSampleRate = sampleRate;
+            }
+        }
+        transport = new PcmTransport(transportMode, ring);
+
         if (recorderManager == null) recorderManager = new RecorderManager(ctx);
         recorderManager.setEffectOptions(enableAEC, enableNS, enableAGC);
+        recorderManager.setFrameDuration(frameMs);
+        // session: true 或 {enabled, idleTimeoutMs}；不传则沿用上次设置
+        if (session instanceof Boolean) {
+            recorderManager.setSession((Boolean) session, 0);
+        } else if (session instanceof JSONObject) {
+            JSONObject so = (JSONObject) session;
+            recorderManager.setSession(!so.containsKey("enabled") || so.getBooleanValue("enabled"),
+                    so.getIntValue("idleTimeoutMs"));
+        }
+        if (!applyEncodeOptions(ctx, encode)) return;
+        boolean vadEnabled = vad != null && (!vad.containsKey("enabled") || vad.getBooleanValue("enabled"));
+        recorderManager.setVad(vadEnabled,
+                vad != null ? vad.getFloatValue("thresholdDb") : 0,
+                vad != null ? vad.getIntValue("minSpeechMs") : 0,
+                vad != null ? vad.getIntValue("hangoverMs") : 0,
+                vad != null && vad.getBooleanValue("dropSilence"));
+        final boolean reportVoiced = vadEnabled;
 
         recorderManager.setListener(new RecorderManager.Listener() {
             @Override
-            public void onStart() {
-                emitEvent("start", null);
+            public void onStart(RecorderManager.StartInfo info) {
+                JSONObject ev = new JSONObject();
+                ev.put("latencyMs", info.latencyMs);
+                ev.put("preRollMs", info.preRollMs);
+                ev.put("mode", info.mode);
+                emitEvent("start", ev);
             }
 
             @Override
-            public void onProcess(List<int[]> buffers, int volume, long durationMs, int sampleRateCb) {
+            public void onProcess(PcmFrame frame, int volume, long durationMs, int sampleRateCb) {
                 JSONObject ev = new JSONObject();
                 ev.put("volume", volume);
                 ev.put("duration", durationMs);
                 ev.put("sampleRate", sampleRateCb);
+                if (reportVoiced && frame != null) ev.put("speech", frame.isVoiced());
+                if (frame != null) {
+                    JSONObject level = new JSONObject();
+                    level.put("peakDbfs", Math.round(frame.peakDbfs() * 10) / 10f);
+                    level.put("rmsDbfs", Math.round(frame.rmsDbfs() * 10) / 10f);
+                    level.put("clips", frame.clipCount());
+                    ev.put("level", level);
+                }
 
-                if (buffers != null && !buffers.isEmpty()) {
-                    int[] first = buffers.get(0);
-                    JSONObject b0 = new JSONObject();
-                    for (int i = 0; i < first.length; i++) {
-                        b0.put(String.valueOf(i), first[i]);
-                    }
-                    JSONArray arr = new JSONArray();
-                    arr.add(b0);
-                    ev.put("buffers", arr);
+                if (frame != null) {
+                    transport.put(ev, frame.array(), frame.length());
                 }
 
                 emitEvent("process", ev);
@@ -132,6 +192,51 @@ public class RecorderModule extends UniModule {
                 ev.put("data", data);
                 emitEvent("route", ev);
             }
+
+            @Override
+            public void onSpeechStart(long startMs) {
+                JSONObject ev = new JSONObject();
+                ev.put("positionMs", startMs);
+                emitEvent("speechStart", ev);
+            }
+
+            @Override
+            public void onSpeechEnd(long endMs, long speechMs) {
+                JSONObject ev = new JSONObject();
+                ev.put("positionMs", endMs);
+                ev.put("speechMs", speechMs);
+                emitEvent("speechEnd", ev);
+            }
+
+            @Override
+            public void onEncoded(RecorderManager.EncodedChunk chunk) {
+                JSONObject ev = new JSONObject();
+                ev.put("format", chunk.format);
+                ev.put("size", chunk.size);
+                ev.put("totalBytes", chunk.totalBytes);
+                ev.put("ptsMs", chunk.ptsUs / 1000);
+                ev.put("config", chunk.config);
+                if (chunk.data != null) {
+                    ev.put("data", android.util.Base64.encodeToString(chunk.data, android.util.Base64.NO_WRAP));
+                }
+                emitEvent("encoded", ev);
+            }
+
+            @Override
+            public void onEncodeEnd(RecorderManager.EncodeResult result) {
+                JSONObject ev = new JSONObject();
+                ev.put("ok", result.error == null);
+                ev.put("format", result.format);
+                ev.put("path", result.path);
+                ev.put("totalBytes", result.totalBytes);
+                ev.put("durationMs", result.durationMs);
+                ev.put("droppedSamples", result.droppedSamples);
+                if (result.wavHeader != null) {
+                    ev.put("wavHeader", android.util.Base64.encodeToString(result.wavHeader, android.util.Base64.NO_WRAP));
+                }
+                if (result.error != null) ev.put("message", result.error);
+                emitEvent("encodeEnd", ev);
+            }
         });
 
         try {
@@ -141,6 +246,34 @@ public class RecorderModule extends UniModule {
         }
     }
 
+    /**
+     * encode 参数：{format: "wav"|"aac"|"opus", output: "file"|"chunks", fileName?, bitrate?}
+     * 文件输出到应用私有目录 recorder/ 下（与 uniSaveLocalFile 相同）；返回 false 表示参数无效且已发出 error 事件
+     */
+    private boolean applyEncodeOptions(Context ctx, JSONObject encode) {
+        if (encode == null) {
+            recorderManager.setEncoder(null, null, 0);
+            return true;
+        }
+        String format = encode.getString("format");
+        if (!"wav".equals(format) && !MediaCodecEncoder.AAC.equals(format) && !MediaCodecEncoder.OPUS.equals(format)) {
+            emitError("不支持的编码格式: " + format);
+            return false;
+        }
+        java.io.File file = null;
+        if (!"chunks".equals(encode.getString("output"))) {
+            java.io.File dir = ctx.getExternalFilesDir("recorder");
+            if (dir == null) dir = ctx.getFilesDir();
+            if (!dir.exists()) dir.mkdirs();
+            String ext = "wav".equals(format) ? "wav" : MediaCodecEncoder.extension(format);
+            String name = encode.getString("fileName");
+            if (name == null || name.trim().isEmpty()) name = "rec_" + System.currentTimeMillis() + "." + ext;
+            file = new java.io.File(dir, new java.io.File(name).getName());
+        }
+        recorderManager.setEncoder(format, file, encode.getIntValue("bitrate"));
+        return true;
+    }
+
     @UniJSMethod(uiThread = true)
     public void stopRecord(UniJSCallback cb) {
         if (recorderManager != null) {
@@ -155,6 +288,218 @@ public class RecorderModule extends UniModule {
         }
     }
 
+    /**
+     * 预热录音：提前打开麦克风常驻采集，保留最近 preRollMs（默认 500，最大 3000）的音频；
+     * 之后以相同 sampleRate 调用 startRecord 时跳过 AudioRecord 创建，并先送出预录音频。
+     * 预热期间不回调任何事件；coolDown 释放麦克风
+     */
+    @UniJSMethod(uiThread = true)
+    public void warmUp(JSONObject params, UniJSCallback cb) {
+        Context ctx = getCtx();
+        JSONObject r = new JSONObject();
+        if (ctx == null || !hasMicPermission(ctx)) {
+            r.put("ok", false);
+            r.put("message", ctx == null ? "Context 为 null" : "未获得录音权限");
+            if (cb != null) cb.invoke(r);
+            return;
+        }
+        int sampleRate = 16000;
+        int preRollMs = DEFAULT_PRE_ROLL_MS;
+        boolean enableAEC = true, enableNS = true, enableAGC = true;
+        if (params != null) {
+            if (params.containsKey("sampleRate")) sampleRate = params.getIntValue("sampleRate");
+            if (params.containsKey("preRollMs")) preRollMs = params.getIntValue("preRollMs");
+            if (params.containsKey("enableAEC")) enableAEC = params.getBooleanValue("enableAEC");
+            if (params.containsKey("enableNS")) enableNS = params.getBooleanValue("enableNS");
+            if (params.containsKey("enableAGC")) enableAGC = params.getBooleanValue("enableAGC");
+        }
+        if (recorderManager == null) recorderManager = new RecorderManager(ctx);
+        recorderManager.setEffectOptions(enableAEC, enableNS, enableAGC);
+        boolean ok = recorderManager.warmUp(sampleRate, preRollMs);
+        r.put("ok", ok);
+        r.put("sampleRate", sampleRate);
+        r.put("preRollMs", Math.max(0, Math.min(RecorderManager.MAX_PRE_ROLL_MS, preRollMs)));
+        if (cb != null) cb.invoke(r);
+    }
+
+    @UniJSMethod(uiThread = true)
+    public void coolDown(UniJSCallback cb) {
+        if (recorderManager != null) recorderManager.coolDown();
+        if (cb != null) {
+            JSONObject r = new JSONObject();
+            r.put("ok", true);
+            cb.invoke(r);
+        }
+    }
+
+    /** 结束会话模式：空闲时立即释放麦克风与音效模块 */
+    @UniJSMethod(uiThread = true)
+    public void endSession(UniJSCallback cb) {
+        if (recorderManager != null) recorderManager.endSession();
+        if (cb != null) {
+            JSONObject r = new JSONObject();
+            r.put("ok", true);
+            cb.invoke(r);
+        }
+    }
+
+    /**
+     * 录音统计：startLatency 按启动方式（cold / warm / session / reuse）给出 {count, lastMs, avgMs, minMs, maxMs}，
+     * 最近一次录音的丢帧 / 溢出 / 静音丢弃计数，以及采集总线各订阅者的队列、丢弃与滞后
+     */
+    @UniJSMethod(uiThread = true)
+    public void getRecordStats(UniJSCallback cb) {
+        if (cb == null) return;
+        JSONObject r = new JSONObject();
+        RecorderManager m = recorderManager;
+        JSONObject latency = new JSONObject();
+        if (m != null) {
+            for (String mode : new String[]{RecorderManager.MODE_COLD, RecorderManager.MODE_WARM, RecorderManager.MODE_SESSION,
+                    RecorderManager.MODE_REUSE}) {
+                LatencyStats s = m.getStartLatency(mode);
+                JSONObject o = new JSONObject();
+                o.put("count", s.count());
+                o.put("lastMs", s.lastMs());
+                o.put("avgMs", s.meanMs());
+                o.put("minMs", s.minMs());
+                o.put("maxMs", s.maxMs());
+                latency.put(mode, o);
+            }
+        }
+        r.put("ok", true);
+        r.put("startLatency", latency);
+        r.put("warm", m != null && m.isWarm());
+        r.put("session", m != null && m.isSessionActive());
+        r.put("droppedFrames", m != null ? m.getDroppedFrames() : 0);
+        r.put("overrunSamples", m != null ? m.getOverrunSamples() : 0);
+        r.put("silentFramesDropped", m != null ? m.getSilentFramesDropped() : 0);
+        JSONObject bus = new JSONObject();
+        JSONArray subs = new JSONArray();
+        if (m != null) {
+            CaptureBus b = m.getCaptureBus();
+            bus.put("overrunSamples", b.overrunSamples());
+            for (CaptureBus.Subscription s : b.subscriptions()) {
+                JSONObject o = new JSONObject();
+                o.put("name", s.name());
+                o.put("policy", s.policy());
+                o.put("capacity", s.capacity());
+                o.put("queued", s.queued());
+                o.put("maxQueued", s.maxQueued());
+                o.put("delivered", s.delivered());
+                o.put("dropped", s.dropped());
+                o.put("errors", s.errors());
+                o.put("lagMs", s.lagMs());
+                o.put("maxLagMs", s.maxLagMs());
+                o.put("blockedMs", s.blockedMs());
+                subs.add(o);
+            }
+        }
+        bus.put("subscribers", subs);
+        r.put("bus", bus);
+        cb.invoke(r);
+    }
+
+    /**
+     * 订阅采集总线：params {name, queueChunks（默认 32 块）, policy（drop-oldest / drop-newest / block）,
+     * transport（base64 / int16）}。回调先收到 {event:"subscribed", name}，之后每块（≤20ms）收到
+     * {event:"audio", name, position, samples, sampleRate, format, pcm}，在该订阅者自己的线程上发出。
+     * 与 startRecord 的 process 事件并行、互不拖慢；跨多次录音保持，直到 unsubscribeAudio；同名订阅会被替换
+     */
+    @UniJSMethod(uiThread = true)
+    public void subscribeAudio(JSONObject params, final UniJSCallback cb) {
+        Context ctx = getCtx();
+        JSONObject r = new JSONObject();
+        if (cb == null) return;
+        if (ctx == null) {
+            r.put("ok", false);
+            r.put("message", "Context 为 null");
+            cb.invoke(r);
+            return;
+        }
+        String name = params != null && params.containsKey("name") ? params.getString("name") : "js";
+        int queueChunks = params != null ? params.getIntValue("queueChunks") : 0;
+        String policy = params != null ? params.getString("policy") : null;
+        String transportMode = params != null ? params.getString("transport") : null;
+
+        if (recorderManager == null) recorderManager = new RecorderManager(ctx);
+        recorderManager.unsubscribe(busSubs.remove(name));
+        CaptureBus.Subscription s = recorderManager.subscribe(name, queueChunks, policy,
+                new BusAudioEmitter(name, transportMode, cb::invokeAndKeepAlive));
+        busSubs.put(name, s);
+
+        r.put("event", "subscribed");
+        r.put("ok", true);
+        r.put("name", name);
+        r.put("policy", s.policy());
+        r.put("queueChunks", s.capacity());
+        r.put("format", PcmTransport.INT16.equals(BusAudioEmitter.normalize(transportMode)) ? "int16" : "pcm16le");
+        cb.invokeAndKeepAlive(r);
+    }
+
+    /** 取消 subscribeAudio 的订阅；name 不传则取消全部 */
+    @UniJSMethod(uiThread = true)
+    public void unsubscribeAudio(String name, UniJSCallback cb) {
+        int removed = 0;
+        if (recorderManager != null) {
+            if (name == null) {
+                for (CaptureBus.Subscription s : busSubs.values()) recorderManager.unsubscribe(s);
+                removed = busSubs.size();
+                busSubs.clear();
+            } else {
+                CaptureBus.Subscription s = busSubs.remove(name);
+                if (s != null) {
+                    recorderManager.unsubscribe(s);
+                    removed = 1;
+                }
+            }
+        }
+        if (cb != null) {
+            JSONObject r = new JSONObject();
+            r.put("ok", true);
+            r.put("removed", removed);
+            cb.invoke(r);
+        }
+    }
+
+    /**
+     * ring 传输格式下拉取 PCM：params.since 为上次返回的 to（首次传 0），maxSamples 限制单次读取量。
+     * 返回 {from, to, lost, samples, pcm(Base64 PCM16LE), sampleRate}；lost 为读得太慢被覆盖的样本数
+     */
+    @UniJSMethod(uiThread = true)
+    public void readRecordRing(JSONObject params, UniJSCallback cb) {
+        if (cb == null) return;
+        JSONObject r = new JSONObject();
+        PcmRing rb;
+        int rate;
+        synchronized (this) {
+            rb = ring;
+            rate = ringSampleRate;
+        }
+        if (rb == null) {
+            r.put("ok", false);
+            r.put("msg", "未启用 ring 传输");
+            cb.invoke(r);
+            return;
+        }
+        long since = 0;
+        int max = rb.capacity();
+        if (params != null) {
+            if (params.containsKey("since")) since = Math.max(0, params.getLongValue("since"));
+            if (params.containsKey("maxSamples")) max = Math.max(1, Math.min(max, params.getIntValue("maxSamples")));
+        }
+        long from = rb.clampStart(since);
+        short[] tmp = new short[max];
+        int n = rb.read(from, tmp, max);
+        r.put("ok", true);
+        r.put("from", from);
+        r.put("to", from + n);
+        r.put("lost", Math.max(0, from - since));
+        r.put("samples", n);
+        r.put("sampleRate", rate);
+        r.put("pcm", transport.encode(tmp, 0, n));
+        cb.invoke(r);
+    }
+
     // ==================== 权限处理 ====================
 
     @UniJSMethod(uiThread = true)
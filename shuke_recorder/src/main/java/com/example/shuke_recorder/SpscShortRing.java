@@ -0,0 +1,70 @@
+package com.example.shuke_recorder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔄 单生产者单消费者的无锁 short 环形缓冲
+ * - 生产者（AudioRecord 读取线程）只推进 tail，消费者（分帧线程）只推进 head，两端各用 lazySet 发布，无锁无分配
+ * - 容量向上取 2 的幂，下标用掩码取模
+ * - 只允许一个线程 write、一个线程 read/skip；available / free 两端都可调用
+ */
+final class SpscShortRing {
+
+    private final short[] buf;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    SpscShortRing(int minCapacity) {
+        int cap = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+        buf = new short[cap];
+        mask = cap - 1;
+    }
+
+    int capacity() {
+        return buf.length;
+    }
+
+    int available() {
+        return (int) (tail.get() - head.get());
+    }
+
+    int free() {
+        return buf.length - available();
+    }
+
+    /** 生产者：写入最多 len 个样本，返回实际写入数（空间不足时截断） */
+    int write(short[] src, int offset, int len) {
+        long t = tail.get();
+        int n = Math.min(len, buf.length - (int) (t - head.get()));
+        if (n <= 0) return 0;
+        int pos = (int) t & mask;
+        int first = Math.min(n, buf.length - pos);
+        System.arraycopy(src, offset, buf, pos, first);
+        if (first < n) System.arraycopy(src, offset + first, buf, 0, n - first);
+        tail.lazySet(t + n);
+        return n;
+    }
+
+    /** 消费者：读出最多 len 个样本，返回实际读取数 */
+    int read(short[] dst, int offset, int len) {
+        long h = head.get();
+        int n = Math.min(len, (int) (tail.get() - h));
+        if (n <= 0) return 0;
+        int pos = (int) h & mask;
+        int first = Math.min(n, buf.length - pos);
+        System.arraycopy(buf, pos, dst, offset, first);
+        if (first < n) System.arraycopy(buf, 0, dst, offset + first, n - first);
+        head.lazySet(h + n);
+        return n;
+    }
+
+    /** 消费者：丢弃最多 len 个样本 */
+    int skip(int len) {
+        long h = head.get();
+        int n = Math.min(len, (int) (tail.get() - h));
+        if (n <= 0) return 0;
+        head.lazySet(h + n);
+        return n;
+    }
+}
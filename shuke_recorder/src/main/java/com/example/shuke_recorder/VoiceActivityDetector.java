@@ -0,0 +1,164 @@
+package com.example.shuke_recorder;
+
+/**
+ * 🗣️ 能量 + 过零率（ZCR）语音端点检测
+ * - 每帧计算能量（dBFS）与过零率；底噪取第一帧能量（假设录音从静音开始），之后低于底噪立即下探，
+ *   高于底噪则缓慢上调：静音段按 NOISE_RISE_MS，语音段按更慢的 NOISE_RISE_SPEECH_MS（持续的稳态噪声终会被判回静音）
+ * - 判为有声：能量高于底噪 thresholdDb；或能量高于底噪 thresholdDb/2 且过零率落在清辅音区间（/s/ /f/ 等弱摩擦音）
+ * - 状态机：连续有声达到 minSpeechMs 才确认 speechStart（时间回溯到起音帧），
+ *   语音中连续静音达到 hangoverMs 才确认 speechEnd（时间为静音开始处），避免句中停顿被切断
+ * - 时间按样本数累计，与回调时机无关；非线程安全，只在投递线程上调用，不分配内存
+ */
+final class VoiceActivityDetector {
+
+    static final int NONE = 0;
+    static final int SPEECH_START = 1;
+    static final int SPEECH_END = 2;
+
+    static final float DEFAULT_THRESHOLD_DB = 12f;
+    static final int DEFAULT_MIN_SPEECH_MS = 90;
+    static final int DEFAULT_HANGOVER_MS = 600;
+    /** 绝对下限：低于此能量一律视为静音（防止安静环境下底噪过低导致误触发） */
+    static final float MIN_SPEECH_DBFS = -55f;
+    static final float FRICATIVE_ZCR_MIN = 0.25f;
+    static final float FRICATIVE_ZCR_MAX = 0.65f;
+    private static final float NOISE_RISE_MS = 2000f;
+    private static final float NOISE_RISE_SPEECH_MS = 4000f;
+    private static final float MIN_FLOOR_DB = -90f;
+
+    private final int sampleRate;
+    private final float thresholdDb;
+    private final long minSpeechSamples;
+    private final long hangoverSamples;
+
+    private float noiseFloorDb = Float.NaN;
+    private boolean speaking;
+    private boolean lastVoiced;
+    private long position;          // 已处理样本数
+    private long voicedRun;         // 静音态下连续有声样本数
+    private long onset;             // 本轮起音位置
+    private long silenceRun;        // 语音态下连续静音样本数
+    private long silenceStart;
+    private long speechStart = -1;
+    private long speechEnd = -1;
+    private float lastDb;
+    private float lastZcr;
+
+    VoiceActivityDetector(int sampleRate, float thresholdDb, int minSpeechMs, int hangoverMs) {
+        this.sampleRate = Math.max(1, sampleRate);
+        this.thresholdDb = thresholdDb > 0 ? thresholdDb : DEFAULT_THRESHOLD_DB;
+        this.minSpeechSamples = (long) this.sampleRate * Math.max(0, minSpeechMs) / 1000;
+        this.hangoverSamples = (long) this.sampleRate * Math.max(0, hangoverMs) / 1000;
+    }
+
+    VoiceActivityDetector(int sampleRate) {
+        this(sampleRate, DEFAULT_THRESHOLD_DB, DEFAULT_MIN_SPEECH_MS, DEFAULT_HANGOVER_MS);
+    }
+
+    /** 处理一帧（单声道 PCM16），返回本帧触发的事件：NONE / SPEECH_START / SPEECH_END */
+    int process(short[] pcm, int length) {
+        if (length <= 0) return NONE;
+        long sum = 0;
+        int crossings = 0;
+        int prev = pcm[0];
+        for (int i = 0; i < length; i++) {
+            int s = pcm[i];
+            sum += s * s;
+            if ((s ^ prev) < 0) crossings++;
+            prev = s;
+        }
+        float db = (float) (10 * Math.log10((double) sum / length / (32768.0 * 32768.0) + 1e-10));
+        float zcr = (float) crossings / length;
+        lastDb = db;
+        lastZcr = zcr;
+        if (Float.isNaN(noiseFloorDb)) noiseFloorDb = Math.max(MIN_FLOOR_DB, db);
+
+        float above = db - noiseFloorDb;
+        boolean voiced = db > MIN_SPEECH_DBFS
+                && (above > thresholdDb
+                || (above > thresholdDb / 2 && zcr >= FRICATIVE_ZCR_MIN && zcr <= FRICATIVE_ZCR_MAX));
+        lastVoiced = voiced;
+
+        long frameStart = position;
+        position += length;
+        int event = NONE;
+        if (!speaking) {
+            if (voiced) {
+                if (voicedRun == 0) onset = frameStart;
+                voicedRun += length;
+                if (voicedRun >= minSpeechSamples) {
+                    speaking = true;
+                    silenceRun = 0;
+                    speechStart = onset;
+                    event = SPEECH_START;
+                }
+            } else {
+                voicedRun = 0;
+                trackNoise(db, length, NOISE_RISE_MS);
+            }
+        } else {
+            trackNoise(db, length, NOISE_RISE_SPEECH_MS);
+            if (voiced) {
+                silenceRun = 0;
+            } else {
+                if (silenceRun == 0) silenceStart = frameStart;
+                silenceRun += length;
+                if (silenceRun >= hangoverSamples) {
+                    speaking = false;
+                    voicedRun = 0;
+                    speechEnd = silenceStart;
+                    event = SPEECH_END;
+                }
+            }
+        }
+        return event;
+    }
+
+    private void trackNoise(float db, int length, float riseMs) {
+        if (db < noiseFloorDb) {
+            noiseFloorDb = Math.max(MIN_FLOOR_DB, db);
+        } else {
+            float frameMs = length * 1000f / sampleRate;
+            float a = Math.min(1f, frameMs / riseMs);
+            noiseFloorDb += (db - noiseFloorDb) * a;
+        }
+    }
+
+    /** 丢弃静音时本帧是否仍应转发：语音中（含拖尾）或疑似起音的帧都转发 */
+    boolean shouldForward() {
+        return speaking || lastVoiced;
+    }
+
+    boolean isSpeaking() {
+        return speaking;
+    }
+
+    boolean lastFrameVoiced() {
+        return lastVoiced;
+    }
+
+    long speechStartMs() {
+        return speechStart * 1000 / sampleRate;
+    }
+
+    long speechEndMs() {
+        return speechEnd * 1000 / sampleRate;
+    }
+
+    /** 最近一段语音的时长（speechEnd 之后有效） */
+    long lastSpeechMs() {
+        return Math.max(0, speechEnd - speechStart) * 1000 / sampleRate;
+    }
+
+    float noiseFloorDb() {
+        return Float.isNaN(noiseFloorDb) ? MIN_FLOOR_DB : noiseFloorDb;
+    }
+
+    float lastDb() {
+        return lastDb;
+    }
+
+    float lastZcr() {
+        return lastZcr;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.shuke_recorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * 🌊 WAV（PCM16 小端）流式写入
+ * - 文件模式：先写 44 字节占位头，录音中顺序追加 PCM，finish 时回到文件开头补写 RIFF / data 长度
+ * - 分块模式：第一块为流式头（长度字段填 0xFFFFFFFF），之后每块为原始 PCM；
+ *   结束后 finalHeader() 给出真实长度的 44 字节头，接收方用它覆盖前 44 字节即得到标准 WAV
+ * - 字节缓冲复用，编码过程不分配内存
+ */
+final class WavEncoder implements PcmEncoder {
+
+    static final int HEADER_BYTES = 44;
+    private static final long STREAMING_SIZE = 0xFFFFFFFFL;
+
+    private final File file;
+    private final int sampleRate;
+    private final int channels;
+    private final PcmEncoder.ChunkSink sink;
+    private RandomAccessFile raf;
+    private byte[] bytes = new byte[0];
+    private long dataBytes;
+
+    /** file 为 null 时为分块模式 */
+    WavEncoder(File file, int sampleRate, int channels, PcmEncoder.ChunkSink sink) {
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.channels = Math.max(1, channels);
+        this.sink = sink;
+    }
+
+    @Override
+    public String format() {
+        return "wav";
+    }
+
+    @Override
+    public void start() throws IOException {
+        dataBytes = 0;
+        byte[] head = header(sampleRate, channels, STREAMING_SIZE);
+        if (file != null) {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+            raf.write(head);
+        }
+        sink.onChunk(head, 0, head.length, 0, true);
+    }
+
+    @Override
+    public void encode(short[] pcm, int length) throws IOException {
+        if (length <= 0) return;
+        int n = length * 2;
+        if (bytes.length < n) bytes = new byte[n];
+        for (int i = 0, j = 0; i < length; i++) {
+            short s = pcm[i];
+            bytes[j++] = (byte) s;
+            bytes[j++] = (byte) (s >> 8);
+        }
+        if (raf != null) raf.write(bytes, 0, n);
+        long ptsUs = dataBytes / 2 / channels * 1_000_000L / sampleRate;
+        dataBytes += n;
+        sink.onChunk(bytes, 0, n, ptsUs, false);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (raf != null) {
+            try {
+                raf.seek(0);
+                raf.write(finalHeader());
+            } finally {
+                raf.close();
+                raf = null;
+            }
+        }
+    }
+
+    @Override
+    public void abort() {
+        if (raf != null) {
+            try { raf.close(); } catch (IOException ignored) {}
+            raf = null;
+        }
+    }
+
+    long dataBytes() {
+        return dataBytes;
+    }
+
+    byte[] finalHeader() {
+        return header(sampleRate, channels, dataBytes);
+    }
+
+    /** 标准 44 字节 PCM16 WAV 头；dataBytes 为 0xFFFFFFFF 时 RIFF 长度也填 0xFFFFFFFF */
+    static byte[] header(int sampleRate, int channels, long dataBytes) {
+        long riff = dataBytes >= STREAMING_SIZE ? STREAMING_SIZE : Math.min(STREAMING_SIZE, dataBytes + 36);
+        long data = Math.min(STREAMING_SIZE, dataBytes);
+        int byteRate = sampleRate * channels * 2;
+        byte[] h = new byte[HEADER_BYTES];
+        putAscii(h, 0, "RIFF");
+        putLe(h, 4, riff, 4);
+        putAscii(h, 8, "WAVE");
+        putAscii(h, 12, "fmt ");
+        putLe(h, 16, 16, 4);
+        putLe(h, 20, 1, 2);              // PCM
+        putLe(h, 22, channels, 2);
+        putLe(h, 24, sampleRate, 4);
+        putLe(h, 28, byteRate, 4);
+        putLe(h, 32, channels * 2, 2);   // block align
+        putLe(h, 34, 16, 2);             // bits per sample
+        putAscii(h, 36, "data");
+        putLe(h, 40, data, 4);
+        return h;
+    }
+
+    private static void putAscii(byte[] dst, int off, String s) {
+        for (int i = 0; i < s.length(); i++) dst[off + i] = (byte) s.charAt(i);
+    }
+
+    private static void putLe(byte[] dst, int off, long v, int n) {
+        for (int i = 0; i < n; i++) dst[off + i] = (byte) (v >>> (8 * i));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.shuke_recorder;
+
+import com.alibaba.fastjson.JSONObject;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * BusAudioEmitter 本地单元测试：经采集总线投递的块转成 audio 事件（base64 / int16）、位置连续、传输格式归一
+ */
+public class BusAudioEmitterTest {
+
+    private static final int RATE = 16000;
+
+    private static short[] ramp(int from, int n) {
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) (from + i);
+        return s;
+    }
+
+    private static List<JSONObject> collect(String transport, int total) throws InterruptedException {
+        List<JSONObject> events = new ArrayList<>();
+        CaptureBus bus = new CaptureBus();
+        CaptureBus.Subscription s = bus.subscribe("js", 64, CaptureBus.BLOCK,
+                new BusAudioEmitter("js", transport, ev -> {
+                    synchronized (events) {
+                        events.add(ev);
+                    }
+                }));
+        for (int off = 0; off < total; off += 320) bus.publish(ramp(off, 320), 0, 320, RATE);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((bus.publishedSamples() < total || s.lagSamples() > 0) && System.nanoTime() < deadline) Thread.sleep(2);
+        bus.unsubscribe(s);
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    @Test
+    public void base64EventsCarryContiguousPcm() throws Exception {
+        List<JSONObject> events = collect("base64", 3200);
+        ByteBuffer all = ByteBuffer.allocate(3200 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        long expectPos = 0;
+        for (JSONObject ev : events) {
+            assertEquals("audio", ev.getString("event"));
+            assertEquals("js", ev.getString("name"));
+            assertEquals(RATE, ev.getIntValue("sampleRate"));
+            assertEquals("pcm16le", ev.getString("format"));
+            assertEquals(expectPos, ev.getLongValue("position"));
+            byte[] b = Base64.getDecoder().decode(ev.getString("pcm"));
+            assertEquals(ev.getIntValue("samples") * 2, b.length);
+            all.put(b);
+            expectPos += ev.getIntValue("samples");
+        }
+        assertEquals(3200, expectPos);
+        all.flip();
+        for (int i = 0; i < 3200; i++) assertEquals((short) i, all.getShort());
+    }
+
+    @Test
+    public void int16EventsCarrySamples() throws Exception {
+        List<JSONObject> events = collect("int16", 960);
+        int next = 0;
+        for (JSONObject ev : events) {
+            assertEquals("int16", ev.getString("format"));
+            short[] pcm = (short[]) ev.get("pcm");
+            assertEquals(ev.getIntValue("samples"), pcm.length);
+            for (short v : pcm) assertEquals((short) next++, v);
+        }
+        assertEquals(960, next);
+    }
+
+    @Test
+    public void unsupportedTransportsFallBackToBase64() {
+        assertEquals(PcmTransport.BASE64, BusAudioEmitter.normalize(null));
+        assertEquals(PcmTransport.BASE64, BusAudioEmitter.normalize(PcmTransport.JSON));
+        assertEquals(PcmTransport.BASE64, BusAudioEmitter.normalize(PcmTransport.RING));
+        assertEquals(PcmTransport.INT16, BusAudioEmitter.normalize(PcmTransport.INT16));
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.shuke_recorder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * CaptureBus 本地单元测试：多订阅者收到相同且有序的数据、三种丢弃策略、慢订阅者不阻塞 publish、
+ * 滞后统计、采样率切换不跨块、取消订阅
+ */
+public class CaptureBusTest {
+
+    private static final int RATE = 16000;
+
+    /** 记录收到的样本（首样本值）与位置 */
+    private static final class Recorder implements CaptureBus.Subscriber {
+        final List<Long> positions = new ArrayList<>();
+        final List<Integer> rates = new ArrayList<>();
+        final List<Short> samples = new ArrayList<>();
+        volatile long received;
+
+        @Override
+        public synchronized void onAudio(short[] pcm, int length, long position, int sampleRate) {
+            positions.add(position);
+            rates.add(sampleRate);
+            for (int i = 0; i < length; i++) samples.add(pcm[i]);
+            received += length;
+        }
+    }
+
+    private static short[] ramp(int from, int n) {
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) (from + i);
+        return s;
+    }
+
+    private static void await(CaptureBus.Subscription s, long samples, Recorder r) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (r.received < samples && System.nanoTime() < deadline) Thread.sleep(2);
+        assertEquals(samples, r.received);
+    }
+
+    @Test
+    public void everySubscriberGetsSameOrderedData() throws Exception {
+        CaptureBus bus = new CaptureBus();
+        Recorder a = new Recorder();
+        Recorder b = new Recorder();
+        CaptureBus.Subscription sa = bus.subscribe("a", 64, CaptureBus.BLOCK, a);
+        CaptureBus.Subscription sb = bus.subscribe("b", 64, CaptureBus.DROP_OLDEST, b);
+        for (int i = 0; i < 10; i++) bus.publish(ramp(i * 320, 320), 0, 320, RATE);
+        await(sa, 3200, a);
+        await(sb, 3200, b);
+        for (int i = 0; i < 3200; i++) {
+            assertEquals((short) i, (short) a.samples.get(i));
+            assertEquals((short) i, (short) b.samples.get(i));
+        }
+        assertEquals(0, sa.dropped());
+        assertEquals(0, sa.lagSamples());
+        assertEquals(0, bus.overrunSamples());
+        bus.unsubscribe(sa);
+        bus.unsubscribe(sb);
+    }
+
+    @Test
+    public void slowSubscriberDoesNotStallPublisherAndDrops() throws Exception {
+        CaptureBus bus = new CaptureBus();
+        CountDownLatch gate = new CountDownLatch(1);
+        Recorder fast = new Recorder();
+        CaptureBus.Subscription slow = bus.subscribe("slow", 4, CaptureBus.DROP_NEWEST, (pcm, len, pos, rate) -> {
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {}
+        });
+        CaptureBus.Subscription sf = bus.subscribe("fast", 256, CaptureBus.DROP_OLDEST, fast);
+
+        short[] frame = ramp(0, 320);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            bus.publish(frame, 0, 320, RATE);
+            Thread.sleep(1);
+        }
+        long publishMs = (System.nanoTime() - t0) / 1_000_000;
+        await(sf, 32000, fast);
+
+        assertTrue("publish 被慢订阅者拖住: " + publishMs + "ms", publishMs < 2000);
+        assertTrue(slow.dropped() > 0);
+        assertTrue(slow.queued() <= 4);
+        assertTrue(slow.lagMs() > 0);
+        assertEquals(0, sf.dropped());
+        gate.countDown();
+        bus.unsubscribe(slow);
+        bus.unsubscribe(sf);
+    }
+
+    @Test
+    public void dropOldestKeepsNewestChunks() throws Exception {
+        CaptureBus bus = new CaptureBus();
+        CountDownLatch gate = new CountDownLatch(1);
+        Recorder r = new Recorder();
+        CountDownLatch first = new CountDownLatch(1);
+        CaptureBus.Subscription s = bus.subscribe("s", 2, CaptureBus.DROP_OLDEST, (pcm, len, pos, rate) -> {
+            first.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {}
+            r.onAudio(pcm, len, pos, rate);
+        });
+        bus.publish(ramp(0, 100), 0, 100, RATE);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        // 回调卡在第 0 块；之后 5 块只能留下最后 2 块
+        for (int i = 1; i <= 5; i++) {
+            bus.publish(ramp(i * 100, 100), 0, 100, RATE);
+            Thread.sleep(20);
+        }
+        gate.countDown();
+        await(s, 300, r);
+        assertEquals(Long.valueOf(0), r.positions.get(0));
+        assertEquals(Long.valueOf(400), r.positions.get(1));
+        assertEquals(Long.valueOf(500), r.positions.get(2));
+        assertEquals(3, s.dropped());
+        bus.unsubscribe(s);
+    }
+
+    @Test
+    public void blockPolicyIsLosslessWhileRingHasRoom() throws Exception {
+        CaptureBus bus = new CaptureBus();
+        Recorder r = new Recorder();
+        CaptureBus.Subscription s = bus.subscribe("slow", 2, CaptureBus.BLOCK, (pcm, len, pos, rate) -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ignored) {}
+            r.onAudio(pcm, len, pos, rate);
+        });
+        for (int i = 0; i < 50; i++) bus.publish(ramp(i * 320, 320), 0, 320, RATE);
+        await(s, 16000, r);
+        for (int i = 0; i < 16000; i++) assertEquals((short) i, (short) r.samples.get(i));
+        assertEquals(0, s.dropped());
+        assertEquals(0, bus.overrunSamples());
+        assertTrue(s.maxLagSamples() > 0);
+        bus.unsubscribe(s);
+    }
+
+    @Test
+    public void chunksNeverSpanSampleRateChange() throws Exception {
+        CaptureBus bus = new CaptureBus();
+        CountDownLatch gate = new CountDownLatch(1);
+        Recorder r = new Recorder();
+        CaptureBus.Subscription s = bus.subscribe("s", 64, CaptureBus.BLOCK, (pcm, len, pos, rate) -> {
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {}
+            r.onAudio(pcm, len, pos, rate);
+        });
+        bus.publish(ramp(0, 300), 0, 300, 16000);
+        bus.publish(ramp(300, 300), 0, 300, 48000);
+        gate.countDown();
+        await(s, 600, r);
+        long at16 = 0, at48 = 0;
+        for (int i = 0; i < r.positions.size(); i++) {
+            long pos = r.positions.get(i);
+            if (r.rates.get(i) == 16000) {
+                assertTrue(pos < 300);
+                at16++;
+            } else {
+                assertEquals(48000, (int) r.rates.get(i));
+                assertTrue(pos >= 300);
+                at48++;
+            }
+        }
+        assertTrue(at16 > 0 && at48 > 0);
+        bus.unsubscribe(s);
+    }
+
+    @Test
+    public void unsubscribeStopsDeliveryAndPublishWithoutSubscribersIsNoop() throws Exception {
+        CaptureBus bus = new CaptureBus();
+        Recorder r = new Recorder();
+        CaptureBus.Subscription s = bus.subscribe("s", 8, CaptureBus.DROP_NEWEST, r);
+        bus.publish(ramp(0, 100), 0, 100, RATE);
+        await(s, 100, r);
+        bus.unsubscribe(s);
+        assertFalse(s.isActive());
+        assertFalse(bus.hasSubscribers());
+        long before = bus.publishedSamples();
+        bus.publish(ramp(0, 100), 0, 100, RATE);
+        Thread.sleep(20);
+        assertEquals(before, bus.publishedSamples());
+        assertEquals(100, r.received);
+        assertEquals("drop-oldest", CaptureBus.normalizePolicy("whatever"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.shuke_recorder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * EncoderStage + WavEncoder 本地单元测试：文件模式补写 WAV 头、分块模式的流式头与最终头、
+ * 文件模式进度节流、编码器出错与跟不上时采集端不受影响
+ */
+public class EncoderStageTest {
+
+    private static final int RATE = 16000;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static short[] ramp(int n) {
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) (i * 7 - 20000);
+        return s;
+    }
+
+    private static int le32(byte[] b, int off) {
+        return ByteBuffer.wrap(b, off, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    @Test
+    public void wavFileHeaderIsPatchedAtFinish() throws IOException {
+        File f = tmp.newFile("a.wav");
+        List<RecorderManager.EncodedChunk> chunks = new ArrayList<>();
+        EncoderStage stage = new EncoderStage(sink -> new WavEncoder(f, RATE, 1, sink), RATE, f.getAbsolutePath(), chunks::add);
+        stage.start();
+        short[] pcm = ramp(RATE * 3 / 2);               // 不超过环形缓冲容量，瞬间提交也不丢
+        for (int off = 0; off < pcm.length; off += 1000) {
+            short[] part = new short[Math.min(1000, pcm.length - off)];
+            System.arraycopy(pcm, off, part, 0, part.length);
+            stage.submit(part, part.length);
+        }
+        RecorderManager.EncodeResult r = stage.finish();
+
+        assertNull(r.error);
+        assertEquals(f.getAbsolutePath(), r.path);
+        assertEquals(1500, r.durationMs);
+        assertEquals(0, r.droppedSamples);
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        assertEquals(44 + pcm.length * 2, bytes.length);
+        assertEquals(r.totalBytes, bytes.length);
+        assertEquals("RIFF", new String(bytes, 0, 4, "US-ASCII"));
+        assertEquals(bytes.length - 8, le32(bytes, 4));
+        assertEquals(RATE, le32(bytes, 24));
+        assertEquals(pcm.length * 2, le32(bytes, 40));
+        ByteBuffer data = ByteBuffer.wrap(bytes, 44, pcm.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (short s : pcm) assertEquals(s, data.getShort());
+
+        // 文件模式：首块头 + 每秒音频至多一次进度，且不带数据
+        assertTrue(chunks.get(0).config);
+        assertTrue(chunks.size() <= 1 + 2);
+        for (RecorderManager.EncodedChunk c : chunks) assertNull(c.data);
+    }
+
+    @Test
+    public void wavChunksCarryDataAndFinalHeader() {
+        List<RecorderManager.EncodedChunk> chunks = new ArrayList<>();
+        EncoderStage stage = new EncoderStage(sink -> new WavEncoder(null, RATE, 1, sink), RATE, null, chunks::add);
+        stage.start();
+        short[] pcm = ramp(4321);
+        stage.submit(pcm, pcm.length);
+        RecorderManager.EncodeResult r = stage.finish();
+
+        assertNull(r.path);
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        long last = -1;
+        for (RecorderManager.EncodedChunk c : chunks) {
+            assertEquals(c.size, c.data.length);
+            if (!c.config) {
+                assertTrue(c.ptsUs > last);
+                last = c.ptsUs;
+            }
+            joined.write(c.data, 0, c.data.length);
+        }
+        byte[] stream = joined.toByteArray();
+        assertEquals(0xFFFFFFFF, le32(stream, 40));         // 流式头
+        assertEquals(r.totalBytes, stream.length);
+        System.arraycopy(r.wavHeader, 0, stream, 0, WavEncoder.HEADER_BYTES);
+        assertEquals(4321 * 2, le32(stream, 40));
+        assertEquals(stream.length - 8, le32(stream, 4));
+        assertEquals(pcm[4320], ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN).getShort(stream.length - 2));
+    }
+
+    @Test
+    public void failingEncoderReportsErrorWithoutBlockingCapture() {
+        EncoderStage stage = new EncoderStage(sink -> new WavEncoder(new File(tmp.getRoot(), "missing/dir/x.wav"), RATE, 1, sink),
+                RATE, "x", null);
+        stage.start();
+        short[] pcm = new short[RATE];
+        for (int i = 0; i < 20; i++) stage.submit(pcm, pcm.length);
+        RecorderManager.EncodeResult r = stage.finish();
+        assertNotNull(r.error);
+        assertNull(r.path);
+    }
+
+    @Test
+    public void slowEncoderDropsInsteadOfBlocking() {
+        Object gate = new Object();
+        PcmEncoder slow = new PcmEncoder() {
+            @Override public String format() { return "slow"; }
+            @Override public void start() {}
+            @Override public void encode(short[] pcm, int length) {
+                synchronized (gate) {
+                    try { gate.wait(50); } catch (InterruptedException ignored) {}
+                }
+            }
+            @Override public void finish() {}
+            @Override public void abort() {}
+        };
+        EncoderStage stage = new EncoderStage(sink -> slow, RATE, null, null);
+        stage.start();
+        short[] pcm = new short[RATE / 10];
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 50; i++) stage.submit(pcm, pcm.length);   // 5 秒音频瞬间到达
+        long submitMs = (System.nanoTime() - t0) / 1_000_000;
+        assertTrue("submit blocked " + submitMs + "ms", submitMs < 200);
+        assertTrue(stage.droppedSamples() > 0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.shuke_recorder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SpscShortRing / FrameChunker 本地单元测试：环绕读写、不定长设备缓冲切成等长帧、帧池耗尽与环形缓冲写满，
+ * 以及读取线程与分帧线程并发时样本不错序不丢失
+ */
+public class FrameChunkerTest {
+
+    @Test
+    public void ringCapacityIsPowerOfTwoAndWraps() {
+        SpscShortRing ring = new SpscShortRing(10);
+        assertEquals(16, ring.capacity());
+        short[] src = new short[40];
+        for (int i = 0; i < src.length; i++) src[i] = (short) i;
+        short[] dst = new short[40];
+        assertEquals(12, ring.write(src, 0, 12));
+        assertEquals(10, ring.read(dst, 0, 10));
+        assertEquals(14, ring.write(src, 12, 20));   // 只剩 14 个空位
+        assertEquals(16, ring.available());
+        assertEquals(0, ring.free());
+        assertEquals(16, ring.read(dst, 10, 40));
+        for (int i = 0; i < 26; i++) assertEquals(i, dst[i]);
+        assertEquals(0, ring.read(dst, 0, 1));
+    }
+
+    @Test
+    public void reChunksDeviceBuffersIntoExactFrames() {
+        List<short[]> frames = new ArrayList<>();
+        List<Long> starts = new ArrayList<>();
+        PcmFramePool pool = new PcmFramePool(4, 320, null);
+        FrameChunker c = new FrameChunker(320, 1000, pool, (f, start) -> {
+            short[] copy = new short[f.length()];
+            f.copyTo(copy, 0);
+            frames.add(copy);
+            starts.add(start);
+            f.release();
+        });
+
+        short[] device = new short[1234];   // 设备缓冲大小与帧长无关
+        int next = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < device.length; i++) device[i] = (short) (next++);
+            assertEquals(0, c.offer(device, 0, device.length));
+            c.drain();
+        }
+        assertEquals(5 * 1234 / 320, frames.size());
+        assertEquals(5 * 1234 % 320, c.pending());    // 不足一帧的尾巴留在环里
+        for (int k = 0; k < frames.size(); k++) {
+            assertEquals(320, frames.get(k).length);
+            assertEquals(320L * k, (long) starts.get(k));
+            assertEquals((short) (320 * k), frames.get(k)[0]);
+            assertEquals((short) (320 * k + 319), frames.get(k)[319]);
+        }
+        assertEquals(4, pool.available());
+    }
+
+    @Test
+    public void exhaustedPoolSkipsFrameButKeepsTimeline() {
+        List<Long> starts = new ArrayList<>();
+        List<PcmFrame> held = new ArrayList<>();
+        PcmFramePool pool = new PcmFramePool(1, 160, null);
+        FrameChunker c = new FrameChunker(160, 160, pool, (f, start) -> {
+            starts.add(start);
+            held.add(f);                       // 消费方不释放
+        });
+        c.offer(new short[480], 0, 480);
+        assertEquals(1, c.drain());
+        assertEquals(2, pool.dropped());
+        held.get(0).release();
+        c.offer(new short[160], 0, 160);
+        c.drain();
+        assertEquals(480L, (long) starts.get(1));
+    }
+
+    @Test
+    public void fullRingCountsOverruns() {
+        PcmFramePool pool = new PcmFramePool(1, 10, null);
+        FrameChunker c = new FrameChunker(10, 10, pool, (f, start) -> f.release());
+        short[] big = new short[1000];
+        int lost = c.offer(big, 0, big.length);
+        assertTrue(lost > 0);
+        assertEquals(lost, c.overruns());
+        assertEquals(1000 - lost, c.pending());
+    }
+
+    @Test(timeout = 20_000)
+    public void concurrentProducerConsumerKeepsOrder() throws Exception {
+        final int total = 2_000_000;
+        final int frame = 640;
+        long[] checked = new long[1];
+        boolean[] ok = {true};
+        PcmFramePool pool = new PcmFramePool(8, frame, null);
+        FrameChunker c = new FrameChunker(frame, 1777, pool, (f, start) -> {
+            short[] a = f.array();
+            for (int i = 0; i < frame; i++) {
+                if (a[i] != (short) (start + i)) ok[0] = false;
+            }
+            checked[0] += frame;
+            f.release();
+        });
+        Thread producer = new Thread(() -> {
+            short[] buf = new short[1777];
+            int next = 0;
+            while (next < total) {
+                int n = Math.min(buf.length, total - next);
+                for (int i = 0; i < n; i++) buf[i] = (short) (next + i);
+                int off = 0;
+                while (off < n) {              // 测试里不允许丢：空间不足时等待消费者
+                    int w = n - off - c.offer(buf, off, n - off);
+                    off += w;
+                    if (off < n) Thread.yield();
+                }
+                next += n;
+            }
+        });
+        producer.start();
+        while (producer.isAlive() || c.pending() >= frame) {
+            if (c.drain() == 0) Thread.yield();
+        }
+        producer.join();
+        c.drain();
+        assertTrue(ok[0]);
+        assertEquals(total / frame * (long) frame, checked[0]);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.shuke_recorder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * LatencyStats 本地单元测试：空统计、累计均值/极值、负值截断与重置，以及复用采集线程时的启动方式归类
+ */
+public class LatencyStatsTest {
+
+    @Test
+    public void emptyStatsAreZero() {
+        LatencyStats s = new LatencyStats();
+        assertEquals(0, s.count());
+        assertEquals(0, s.meanMs());
+        assertEquals(0, s.minMs());
+        assertEquals(0, s.maxMs());
+    }
+
+    @Test
+    public void tracksLastMeanMinMax() {
+        LatencyStats s = new LatencyStats();
+        s.record(120);
+        s.record(30);
+        s.record(60);
+        assertEquals(3, s.count());
+        assertEquals(60, s.lastMs());
+        assertEquals(70, s.meanMs());
+        assertEquals(30, s.minMs());
+        assertEquals(120, s.maxMs());
+    }
+
+    @Test
+    public void negativeClampedAndResetClears() {
+        LatencyStats s = new LatencyStats();
+        s.record(-5);
+        assertEquals(0, s.minMs());
+        assertEquals(0, s.lastMs());
+        s.record(40);
+        s.reset();
+        assertEquals(0, s.count());
+        s.record(15);
+        assertEquals(15, s.minMs());
+        assertEquals(15, s.meanMs());
+    }
+
+    @Test
+    public void reuseModeFollowsRealFlags() {
+        assertEquals(RecorderManager.MODE_WARM, RecorderManager.reuseMode(true, false));
+        assertEquals(RecorderManager.MODE_WARM, RecorderManager.reuseMode(true, true));
+        assertEquals(RecorderManager.MODE_SESSION, RecorderManager.reuseMode(false, true));
+        // 既没预热也没开会话，只是上一次录音还没收尾：不能算进 session
+        assertEquals(RecorderManager.MODE_REUSE, RecorderManager.reuseMode(false, false));
+    }
+}
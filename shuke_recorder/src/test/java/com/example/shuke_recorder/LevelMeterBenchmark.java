@@ -0,0 +1,83 @@
+package com.example.shuke_recorder;
+
+import java.util.Random;
+
+/**
+ * 电平计量微基准：LevelMeter vs 旧采集循环（逐样本 int→int[] 拷贝 + double 平方和 + 每缓冲 sqrt/log10）
+ * - 1280 样本一块（常见 getMinBufferSize），手动运行 main() 打印 ns/sample；不参与单元测试，
+ *   两种实现 RMS 一致由 LevelMeterTest.rmsMatchesLegacyLoop 校验
+ */
+public class LevelMeterBenchmark {
+
+    static final int BLOCK = 1280;
+    private static final int BLOCKS = 2000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    private static double sink;
+
+    public static void main(String[] args) {
+        short[] audio = noise(BLOCK * 16, 3L);
+        LevelMeter meter = new LevelMeter(16000, 1, 0, 0);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runLegacy(audio);
+            runMeter(audio, meter);
+        }
+        long legacy = Long.MAX_VALUE;
+        long metered = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            runLegacy(audio);
+            long t1 = System.nanoTime();
+            runMeter(audio, meter);
+            long t2 = System.nanoTime();
+            legacy = Math.min(legacy, t1 - t0);
+            metered = Math.min(metered, t2 - t1);
+        }
+        double samples = (double) BLOCK * BLOCKS;
+        System.out.printf("LevelMeterBenchmark block=%d samples=%d%n", BLOCK, (long) samples);
+        System.out.printf("  legacy loop : %.3f ns/sample%n", legacy / samples);
+        System.out.printf("  LevelMeter  : %.3f ns/sample%n", metered / samples);
+    }
+
+    static short[] noise(int n, long seed) {
+        Random rnd = new Random(seed);
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) (rnd.nextGaussian() * 6000);
+        return s;
+    }
+
+    /** 旧采集循环的 RMS：double 平方和再开方 */
+    static double legacyRms(short[] buffer, int off, int read) {
+        double sum = 0;
+        for (int i = 0; i < read; i++) sum += buffer[off + i] * buffer[off + i];
+        return Math.sqrt(sum / read);
+    }
+
+    /** 旧 RecorderManager 读循环的计量部分（含 int[] 拷贝与 dB 计算） */
+    private static void runLegacy(short[] audio) {
+        double acc = 0;
+        for (int b = 0; b < BLOCKS; b++) {
+            int off = (b % 16) * BLOCK;
+            int[] frame = new int[BLOCK];
+            double sum = 0;
+            for (int i = 0; i < BLOCK; i++) {
+                frame[i] = audio[off + i];
+                sum += audio[off + i] * audio[off + i];
+            }
+            double rms = Math.sqrt(sum / BLOCK);
+            acc += 20 * Math.log10(rms / 32768.0 + 1e-6) + frame[BLOCK - 1];
+        }
+        sink += acc;
+    }
+
+    private static void runMeter(short[] audio, LevelMeter meter) {
+        double acc = 0;
+        for (int b = 0; b < BLOCKS; b++) {
+            meter.process(audio, (b % 16) * BLOCK, BLOCK);
+            acc += meter.rmsDbfs() + meter.peak();
+        }
+        sink += acc;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.shuke_recorder;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * PcmFramePool 本地单元测试：帧循环复用、池耗尽时丢帧、只读视图内容、retain/release 引用计数，
+ * 以及稳态采集-投递-回收不分配内存
+ */
+public class PcmFramePoolTest {
+
+    private static PcmFrame fill(PcmFramePool pool, short... samples) {
+        PcmFrame f = pool.acquire();
+        System.arraycopy(samples, 0, f.array(), 0, samples.length);
+        f.setLength(samples.length);
+        return f;
+    }
+
+    @Test
+    public void framesAreRecycledAfterDelivery() {
+        int[] delivered = new int[1];
+        PcmFramePool pool = new PcmFramePool(2, 16, f -> delivered[0] += f.length());
+        PcmFrame a = fill(pool, (short) 1, (short) 2, (short) 3);
+        assertEquals(1, pool.available());
+        a.run();                                     // 模拟主线程投递
+        assertEquals(3, delivered[0]);
+        assertEquals(2, pool.available());
+        assertEquals(0, a.refCount());
+    }
+
+    @Test
+    public void exhaustedPoolDropsInsteadOfBlocking() {
+        PcmFramePool pool = new PcmFramePool(2, 16, null);
+        PcmFrame a = pool.acquire();
+        PcmFrame b = pool.acquire();
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNull(pool.acquire());
+        assertEquals(1, pool.dropped());
+        a.release();
+        assertSame(a, pool.acquire());
+    }
+
+    @Test
+    public void viewsAreReadOnlyAndMatchSamples() {
+        PcmFramePool pool = new PcmFramePool(1, 8, null);
+        PcmFrame f = fill(pool, (short) 0x1234, (short) -2, (short) 7);
+
+        ShortBuffer sb = f.samples();
+        assertEquals(3, sb.remaining());
+        assertEquals(0x1234, sb.get(0));
+        assertEquals(-2, f.get(1));
+        try {
+            sb.put(0, (short) 0);
+            fail("ShortBuffer 视图应只读");
+        } catch (ReadOnlyBufferException expected) {
+        }
+
+        ByteBuffer bb = f.bytes();
+        assertEquals(6, bb.remaining());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, bb.order());
+        assertEquals(0x34, bb.get(0));
+        assertEquals(0x12, bb.get(1));
+        assertEquals(-2, bb.getShort(2));
+        assertTrue(bb.isReadOnly());
+    }
+
+    @Test
+    public void byteViewIsReencodedAfterReuse() {
+        PcmFramePool pool = new PcmFramePool(1, 8, null);
+        PcmFrame f = fill(pool, (short) 100);
+        assertEquals(100, f.bytes().getShort(0));
+        f.release();
+        PcmFrame g = fill(pool, (short) -100, (short) 5);
+        assertSame(f, g);
+        assertEquals(-100, g.bytes().getShort(0));
+        assertEquals(4, g.bytes().remaining());
+    }
+
+    @Test
+    public void retainKeepsFrameOutOfPool() {
+        PcmFrame[] held = new PcmFrame[1];
+        PcmFramePool pool = new PcmFramePool(1, 8, f -> held[0] = f.retain());
+        PcmFrame f = fill(pool, (short) 1);
+        f.run();
+        assertEquals(0, pool.available());          // 消费方仍持有
+        assertNull(pool.acquire());
+        held[0].release();
+        assertEquals(1, pool.available());
+        try {
+            f.release();
+            fail("重复释放应报错");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, pool.available());
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mx.isThreadAllocatedMemorySupported());
+
+        long[] sum = new long[1];
+        PcmFramePool pool = new PcmFramePool(4, 320, f -> {
+            ShortBuffer sb = f.samples();
+            sum[0] += sb.get(0) + f.bytes().get(1);
+        });
+        Runnable cycle = () -> {
+            PcmFrame f = pool.acquire();
+            f.array()[0] = 3;
+            f.setLength(320);
+            f.run();
+        };
+        for (int i = 0; i < 20_000; i++) cycle.run();   // 预热 JIT
+
+        long tid = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 1000; i++) cycle.run();
+        assertEquals(0, mx.getThreadAllocatedBytes(tid) - before);
+        assertEquals(4, pool.available());
+    }
+}
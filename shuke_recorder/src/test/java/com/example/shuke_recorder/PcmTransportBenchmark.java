@@ -0,0 +1,97 @@
+package com.example.shuke_recorder;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.Random;
+
+/**
+ * process 事件传输格式微基准：每秒音频经 JS 桥的字节数与主线程 CPU 时间
+ * - 16kHz 单声道，按 1280 样本（常见 getMinBufferSize 取值）切帧，每帧构造事件并用 fastjson 序列化（近似桥上的序列化开销）
+ * - ring 格式的每帧事件只带游标，另按每 100ms 一次 readRecordRing 计入拉取的开销
+ * - 手动运行 main()，打印每种格式的字节数与 CPU 时间（多轮取最好）；不参与单元测试，
+ *   各格式的体积关系由 PcmTransportTest.bridgeBytesPerMode 基于同一个 bridgeBytes 校验
+ */
+public class PcmTransportBenchmark {
+
+    static final int RATE = 16000;
+    private static final int FRAME = 1280;
+    private static final int SECONDS = 4;
+    private static final int POLL_SAMPLES = RATE / 10;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        short[] audio = speechLike(RATE * SECONDS);
+        String[] modes = {PcmTransport.JSON, PcmTransport.INT16, PcmTransport.BASE64, PcmTransport.RING};
+        long[] bytes = new long[modes.length];
+        long[] best = new long[modes.length];
+        for (int m = 0; m < modes.length; m++) {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) bridgeBytes(modes[m], audio);
+            best[m] = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                long t0 = System.nanoTime();
+                bytes[m] = bridgeBytes(modes[m], audio);
+                best[m] = Math.min(best[m], System.nanoTime() - t0);
+            }
+        }
+
+        System.out.printf("PcmTransportBenchmark rate=%d frame=%d samples%n", RATE, FRAME);
+        for (int m = 0; m < modes.length; m++) {
+            System.out.printf("  %-7s: %8d bytes/s  %7.3f ms CPU/s%n",
+                    modes[m], bytes[m] / SECONDS, best[m] / 1e6 / SECONDS);
+        }
+    }
+
+    /** 返回 audio 全部经桥传输的序列化字节数（UTF-8，均为 ASCII） */
+    static long bridgeBytes(String mode, short[] audio) {
+        PcmRing ring = new PcmRing(RATE * 5);
+        PcmTransport t = new PcmTransport(mode, ring);
+        long total = 0;
+        long polled = 0;
+        short[] pollBuf = new short[POLL_SAMPLES];
+        for (int off = 0; off + FRAME <= audio.length; off += FRAME) {
+            short[] frame = new short[FRAME];
+            System.arraycopy(audio, off, frame, 0, FRAME);
+            JSONObject ev = new JSONObject();
+            ev.put("event", "process");
+            ev.put("volume", 42);
+            ev.put("duration", off * 1000L / RATE);
+            ev.put("sampleRate", RATE);
+            t.put(ev, frame, FRAME);
+            total += JSON.toJSONString(ev).length();
+
+            if (PcmTransport.RING.equals(mode)) {
+                while (ring.cursor() - polled >= POLL_SAMPLES) {
+                    int n = ring.read(polled, pollBuf, POLL_SAMPLES);
+                    JSONObject r = new JSONObject();
+                    r.put("ok", true);
+                    r.put("from", polled);
+                    r.put("to", polled + n);
+                    r.put("lost", 0);
+                    r.put("samples", n);
+                    r.put("sampleRate", RATE);
+                    r.put("pcm", t.encode(pollBuf, 0, n));
+                    total += JSON.toJSONString(r).length();
+                    polled += n;
+                }
+            }
+        }
+        sink += total;
+        return total;
+    }
+
+    /** 带包络的低频正弦 + 噪声，数值分布接近语音（多数样本为 3~5 位数） */
+    static short[] speechLike(int n) {
+        Random rnd = new Random(7);
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) {
+            double env = 0.5 + 0.5 * Math.sin(2 * Math.PI * 3 * i / RATE);
+            double v = env * 9000 * Math.sin(2 * Math.PI * 180 * i / RATE) + rnd.nextGaussian() * 300;
+            s[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+        }
+        return s;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.shuke_recorder;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * PcmTransport / PcmRing 本地单元测试：Base64 与 JDK 编码一致、各格式字段与经桥体积、环形缓冲游标与覆盖
+ */
+public class PcmTransportTest {
+
+    private static short[] noise(int n, long seed) {
+        Random rnd = new Random(seed);
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) s[i] = (short) rnd.nextInt();
+        return s;
+    }
+
+    private static String jdkBase64(short[] pcm, int offset, int n) {
+        ByteBuffer bb = ByteBuffer.allocate(n * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i++) bb.putShort(pcm[offset + i]);
+        return Base64.getEncoder().encodeToString(bb.array());
+    }
+
+    @Test
+    public void base64MatchesJdk() {
+        PcmTransport t = new PcmTransport(PcmTransport.BASE64, null);
+        short[] pcm = noise(1000, 1);
+        for (int n = 0; n < 20; n++) {
+            assertEquals(jdkBase64(pcm, 3, n), t.encode(pcm, 3, n));   // 覆盖 0/1/2 字节余数
+        }
+        assertEquals(jdkBase64(pcm, 0, 1000), t.encode(pcm, 0, 1000));
+        assertEquals(jdkBase64(pcm, 0, 7), t.encode(pcm, 0, 7));        // 复用更大的字符缓冲
+    }
+
+    @Test
+    public void unknownModeFallsBackToJson() {
+        assertEquals(PcmTransport.JSON, PcmTransport.normalize(null));
+        assertEquals(PcmTransport.JSON, PcmTransport.normalize("protobuf"));
+        assertEquals(PcmTransport.INT16, PcmTransport.normalize("int16"));
+    }
+
+    @Test
+    public void eventFieldsPerMode() {
+        short[] pcm = {1, -2, 300};
+
+        JSONObject legacy = new JSONObject();
+        new PcmTransport(PcmTransport.JSON, null).put(legacy, pcm, 3);
+        JSONObject b0 = legacy.getJSONArray("buffers").getJSONObject(0);
+        assertEquals(-2, b0.getIntValue("1"));
+
+        JSONObject b64 = new JSONObject();
+        new PcmTransport(PcmTransport.BASE64, null).put(b64, pcm, 3);
+        assertEquals("pcm16le", b64.getString("format"));
+        assertEquals(jdkBase64(pcm, 0, 3), b64.getString("pcm"));
+
+        JSONObject i16 = new JSONObject();
+        new PcmTransport(PcmTransport.INT16, null).put(i16, pcm, 2);
+        JSONArray arr = JSON.parseObject(JSON.toJSONString(i16)).getJSONArray("pcm");
+        assertEquals(2, arr.size());
+        assertEquals(-2, arr.getIntValue(1));
+
+        PcmRing ring = new PcmRing(16);
+        JSONObject r = new JSONObject();
+        new PcmTransport(PcmTransport.RING, ring).put(r, pcm, 3);
+        assertEquals(3L, r.getJSONObject("ring").getLongValue("cursor"));
+        assertNull(r.get("pcm"));
+    }
+
+    @Test
+    public void ringWrapsAndReportsOldestReadable() {
+        PcmRing ring = new PcmRing(8);
+        short[] src = new short[20];
+        for (int i = 0; i < src.length; i++) src[i] = (short) i;
+        ring.write(src, 0, 5);
+        ring.write(src, 5, 6);                  // 累计 11，最旧可读为 3
+        assertEquals(11, ring.cursor());
+        assertEquals(3, ring.clampStart(0));
+        assertEquals(11, ring.clampStart(99));
+
+        short[] dst = new short[8];
+        assertEquals(8, ring.read(0, dst, 8));
+        for (int i = 0; i < 8; i++) assertEquals(3 + i, dst[i]);
+        assertEquals(2, ring.read(9, dst, 8));
+        assertEquals(9, dst[0]);
+
+        ring.write(src, 0, 20);                 // 单次超过容量：只保留最后 8 个
+        assertEquals(31, ring.cursor());
+        assertEquals(8, ring.read(0, dst, 8));
+        assertEquals(12, dst[0]);
+        assertEquals(19, dst[7]);
+    }
+
+    @Test
+    public void bridgeBytesPerMode() {
+        short[] audio = PcmTransportBenchmark.speechLike(PcmTransportBenchmark.RATE);
+        long json = PcmTransportBenchmark.bridgeBytes(PcmTransport.JSON, audio);
+        long int16 = PcmTransportBenchmark.bridgeBytes(PcmTransport.INT16, audio);
+        long base64 = PcmTransportBenchmark.bridgeBytes(PcmTransport.BASE64, audio);
+        // PCM16 原始大小为 2 字节/样本，Base64 约 4/3 倍；旧格式每个样本一个字符串键
+        long raw = 2L * audio.length;
+        assertTrue(base64 < raw * 3 / 2);
+        assertTrue(json > base64 * 3);
+        assertTrue(json > int16);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.shuke_recorder;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * VoiceActivityDetector 本地单元测试：合成的底噪 + 浊音/清音段上验证起止时间、句中停顿不切断、
+ * 底噪自适应，以及丢弃静音帧后转发量
+ */
+public class VoiceActivityDetectorTest {
+
+    private static final int RATE = 16000;
+    private static final int FRAME = RATE / 50;   // 20ms
+
+    /** 按段生成：type 0=底噪，1=浊音（200Hz 谐波），2=清擦音（高频噪声、能量较低） */
+    private static short[] signal(long seed, int noiseAmp, int[]... segments) {
+        int total = 0;
+        for (int[] seg : segments) total += RATE * seg[1] / 1000;
+        short[] s = new short[total];
+        Random rnd = new Random(seed);
+        int pos = 0;
+        for (int[] seg : segments) {
+            int n = RATE * seg[1] / 1000;
+            for (int i = 0; i < n; i++, pos++) {
+                double v = rnd.nextGaussian() * noiseAmp;
+                if (seg[0] == 1) {
+                    double t = (double) pos / RATE;
+                    v += 6000 * Math.sin(2 * Math.PI * 200 * t) + 2500 * Math.sin(2 * Math.PI * 400 * t);
+                } else if (seg[0] == 2) {
+                    v += rnd.nextGaussian() * noiseAmp * 4;
+                }
+                s[pos] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+            }
+        }
+        return s;
+    }
+
+    private static int[] seg(int type, int ms) {
+        return new int[]{type, ms};
+    }
+
+    /** 逐帧运行，返回 {startMs, endMs, speechMs, startCount, endCount, forwardedFrames, frames} */
+    private static long[] run(VoiceActivityDetector vad, short[] pcm) {
+        long[] r = {-1, -1, -1, 0, 0, 0, 0};
+        short[] frame = new short[FRAME];
+        for (int off = 0; off + FRAME <= pcm.length; off += FRAME) {
+            System.arraycopy(pcm, off, frame, 0, FRAME);
+            int ev = vad.process(frame, FRAME);
+            if (ev == VoiceActivityDetector.SPEECH_START) {
+                r[0] = vad.speechStartMs();
+                r[3]++;
+            } else if (ev == VoiceActivityDetector.SPEECH_END) {
+                r[1] = vad.speechEndMs();
+                r[2] = vad.lastSpeechMs();
+                r[4]++;
+            }
+            if (vad.shouldForward()) r[5]++;
+            r[6]++;
+        }
+        return r;
+    }
+
+    @Test
+    public void detectsUtteranceBoundaries() {
+        short[] pcm = signal(1, 100, seg(0, 1000), seg(1, 800), seg(0, 1500));
+        long[] r = run(new VoiceActivityDetector(RATE), pcm);
+        assertEquals(1, r[3]);
+        assertEquals(1, r[4]);
+        assertEquals(1000, r[0], 20);      // 起音回溯到第一帧有声
+        assertEquals(1800, r[1], 20);      // 结束时间为拖尾静音开始处，而非确认时刻
+        assertEquals(800, r[2], 40);
+    }
+
+    @Test
+    public void shortPauseDoesNotSplitUtterance() {
+        short[] pcm = signal(2, 100, seg(0, 800), seg(1, 400), seg(0, 300), seg(1, 400), seg(0, 1200));
+        long[] r = run(new VoiceActivityDetector(RATE), pcm);
+        assertEquals(1, r[3]);
+        assertEquals(1, r[4]);
+        assertEquals(1100, r[2], 40);
+    }
+
+    @Test
+    public void clickShorterThanMinSpeechIsIgnored() {
+        short[] pcm = signal(3, 100, seg(0, 800), seg(1, 40), seg(0, 800));
+        long[] r = run(new VoiceActivityDetector(RATE), pcm);
+        assertEquals(0, r[3]);
+    }
+
+    @Test
+    public void weakFricativeOnsetIsSpeechViaZcr() {
+        // 清擦音能量不足以单独越过阈值，但过零率高：作为起音的一部分被计入
+        short[] pcm = signal(4, 150, seg(0, 1000), seg(2, 100), seg(1, 500), seg(0, 1000));
+        VoiceActivityDetector vad = new VoiceActivityDetector(RATE);
+        long[] r = run(vad, pcm);
+        assertEquals(1, r[3]);
+        assertTrue("start " + r[0], r[0] < 1060);
+    }
+
+    @Test
+    public void noiseFloorAdaptsToLouderRoom() {
+        // 底噪从很安静突然变吵：一段时间后底噪跟上，稳态噪声不再被当成语音
+        short[] pcm = signal(5, 30, seg(0, 500));
+        short[] loud = signal(6, 1500, seg(0, 15_000));
+        short[] all = new short[pcm.length + loud.length];
+        System.arraycopy(pcm, 0, all, 0, pcm.length);
+        System.arraycopy(loud, 0, all, pcm.length, loud.length);
+        VoiceActivityDetector vad = new VoiceActivityDetector(RATE);
+        run(vad, all);
+        assertFalse(vad.isSpeaking());
+        assertEquals(vad.lastDb(), vad.noiseFloorDb(), 3);
+    }
+
+    @Test
+    public void droppingSilenceHalvesDialogTraffic() {
+        // 典型对话：约三成时间在说话
+        short[] pcm = signal(7, 120,
+                seg(0, 2000), seg(1, 1200), seg(0, 3000), seg(1, 900), seg(0, 2500), seg(1, 1500), seg(0, 3000));
+        long[] r = run(new VoiceActivityDetector(RATE), pcm);
+        assertEquals(3, r[3]);
+        assertEquals(3, r[4]);
+        double forwarded = (double) r[5] / r[6];
+        assertTrue("forwarded " + forwarded, forwarded < 0.5);
+    }
+}